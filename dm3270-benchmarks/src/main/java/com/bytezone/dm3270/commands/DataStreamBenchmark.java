@@ -0,0 +1,154 @@
+package com.bytezone.dm3270.commands;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.session.CapturedSession;
+import com.bytezone.dm3270.telnet.TelnetCommandProcessor;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+
+// Parsing the host's data stream, one stage at a time, for every record in a captured
+// session. Each call processes the whole session, so compare sessions by the time per
+// record rather than per call.
+//
+//   java -jar benchmarks.jar DataStreamBenchmark -p session=sdsf.cap
+//
+// telnetListen    - TelnetProcessor.listen() splitting the buffers into records
+// getCommand      - Command.getCommand() decoding each record
+// getOrder        - Order.getOrder() walking the orders of each Write
+// getTelnetData   - AbstractBuffer.getTelnetData() re-encoding each Write
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class DataStreamBenchmark
+{
+  @Param ({ "" })
+  private String session;
+
+  private List<byte[]> serverBuffers;
+  private List<byte[]> records;
+  private List<WriteCommand> writeCommands;
+  private TelnetProcessor telnetProcessor;
+  private int processed;
+
+  @Setup
+  public void setup () throws Exception
+  {
+    CapturedSession capturedSession = new CapturedSession (session);
+    serverBuffers = capturedSession.getServerBuffers ();
+    records = capturedSession.getRecords ();
+    writeCommands = capturedSession.getWriteCommands ();
+    if (writeCommands.isEmpty ())
+      throw new IllegalArgumentException ("No Write commands in " + session);
+
+    telnetProcessor = new TelnetProcessor (new TelnetCommandProcessor ()
+    {
+      @Override
+      public void processData (byte[] buffer, int length)
+      {
+        processed += length;
+      }
+
+      @Override
+      public void processRecord (byte[] buffer, int length)
+      {
+        processed += length;
+      }
+
+      @Override
+      public void processTelnetCommand (byte[] buffer, int length)
+      {
+        processed += length;
+      }
+
+      @Override
+      public void processTelnetSubcommand (byte[] buffer, int length)
+      {
+        processed += length;
+      }
+    });
+  }
+
+  @Benchmark
+  public int telnetListen ()
+  {
+    processed = 0;
+    for (byte[] buffer : serverBuffers)
+      telnetProcessor.listen (buffer);
+    return processed;
+  }
+
+  @Benchmark
+  public int getCommand ()
+  {
+    int total = 0;
+    for (byte[] record : records)
+      if (Command.getCommand (record, 0, record.length) != null)
+        total++;
+    return total;
+  }
+
+  @Benchmark
+  public int getOrder ()
+  {
+    int total = 0;
+    for (byte[] record : records)
+    {
+      if (!isWrite (record[0]))
+        continue;
+
+      int ptr = 2;                            // command and WCC
+      while (ptr < record.length)
+      {
+        Order order = Order.getOrder (record, ptr, record.length);
+        if (order.rejected ())
+          break;
+        ptr += order.size ();
+        total++;
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int getTelnetData ()
+  {
+    int total = 0;
+    for (WriteCommand writeCommand : writeCommands)
+      total += writeCommand.getTelnetData ().length;
+    return total;
+  }
+
+  private static boolean isWrite (byte value)
+  {
+    switch (value)
+    {
+      case Command.WRITE_F1:
+      case Command.WRITE_01:
+      case Command.ERASE_WRITE_F5:
+      case Command.ERASE_WRITE_05:
+      case Command.ERASE_WRITE_ALTERNATE_7E:
+      case Command.ERASE_WRITE_ALTERNATE_0D:
+        return true;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.bytezone.dm3270.database;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bytezone.dm3270.database.DatabaseRequest.Command;
+
+// Latency of the find and list requests that ScreenWatcher and the dataset tables
+// make, against a site database of 100k datasets with 10 members each. Each request
+// goes through the DatabaseThread's queue and waits for its result, as a caller would.
+// Datasets are chosen at random, so most of them miss the DatabaseThread's cache.
+//
+//   java -jar benchmarks.jar DatabaseBenchmark -p datasets=10000,100000
+//
+// The database is loaded through UPDATE requests in setup (which takes a while), in
+// ~/dm3270/databases, and deleted afterwards.
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.SampleTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+public class DatabaseBenchmark
+{
+  private static final int QUALIFIERS = 100;           // high level qualifiers
+  private static final int LOAD_CHUNK = 10_000;        // requests between waits
+
+  @Param ({ "100000" })
+  private int datasets;
+
+  @Param ({ "10" })
+  private int members;
+
+  private String databaseName;
+  private BlockingQueue<DatabaseRequest> queue;
+  private DatabaseThread databaseThread;
+  private final Random random = new Random (42);
+
+  private final BlockingQueue<DatabaseRequest> results = new ArrayBlockingQueue<> (1);
+  private final Initiator initiator = request -> results.offer (request);
+
+  @Setup
+  public void setup () throws Exception
+  {
+    Path folder = Paths.get (System.getProperty ("user.home"), "dm3270", "databases");
+    Files.createDirectories (folder);
+    databaseName = "benchmark-" + System.nanoTime () + ".db";
+
+    queue = new LinkedBlockingQueue<> ();
+    databaseThread = new DatabaseThread (databaseName, queue);
+    databaseThread.start ();
+    send (new DatabaseRequest (initiator, Command.OPEN));
+
+    load ();
+  }
+
+  private void load () throws InterruptedException
+  {
+    int total = datasets * (members + 1);
+    int sent = 0;
+    CountDownLatch latch = null;
+    Initiator loader = null;
+
+    for (int i = 0; i < datasets; i++)
+    {
+      Dataset dataset = new Dataset (getDatasetName (i));
+      dataset.setLocation (String.format ("VOL%03d", i % 500), "3390", "CATALOG.UCAT");
+      dataset.setSpace (15, 1, 1, 40);
+      dataset.setDisposition ("PO", "FB", 80, 27920);
+
+      for (int j = -1; j < members; j++)
+      {
+        if (sent % LOAD_CHUNK == 0)
+        {
+          if (latch != null)
+            latch.await ();
+          CountDownLatch chunk = new CountDownLatch (Math.min (LOAD_CHUNK, total - sent));
+          latch = chunk;
+          loader = request -> chunk.countDown ();
+        }
+
+        if (j < 0)
+          queue.put (new DatasetRequest (loader, Command.UPDATE, dataset));
+        else
+        {
+          Member member = new Member (dataset, getMemberName (j));
+          member.setID ("USER01");
+          member.setSize (500, 500, 0, 1, 0);
+          queue.put (new MemberRequest (loader, Command.UPDATE, member));
+        }
+        ++sent;
+      }
+    }
+
+    latch.await ();
+  }
+
+  private DatabaseRequest send (DatabaseRequest request) throws InterruptedException
+  {
+    queue.put (request);
+    return results.take ();
+  }
+
+  private static String getDatasetName (int index)
+  {
+    return String.format ("USER%02d.DATA.D%06d", index % QUALIFIERS, index);
+  }
+
+  private static String getMemberName (int index)
+  {
+    return String.format ("MEMBER%02d", index);
+  }
+
+  private Dataset randomDataset ()
+  {
+    return new Dataset (getDatasetName (random.nextInt (datasets)));
+  }
+
+  @TearDown
+  public void tearDown () throws Exception
+  {
+    System.out.printf ("%nCache hits/misses: %,d / %,d%n", databaseThread.getCacheHits (),
+                       databaseThread.getCacheMisses ());
+
+    send (new DatabaseRequest (initiator, Command.CLOSE));
+    databaseThread.join ();
+
+    Path folder = Paths.get (System.getProperty ("user.home"), "dm3270", "databases");
+    for (String suffix : new String[] { "", "-wal", "-shm" })
+      try
+      {
+        Files.deleteIfExists (folder.resolve (databaseName + suffix));
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace ();
+      }
+  }
+
+  @Benchmark
+  public DatabaseRequest findDataset () throws InterruptedException
+  {
+    return send (new DatasetRequest (initiator, Command.FIND, randomDataset ()));
+  }
+
+  @Benchmark
+  public DatabaseRequest findMember () throws InterruptedException
+  {
+    String memberName = getMemberName (random.nextInt (members));
+    Member member = new Member (randomDataset (), memberName);
+    return send (new MemberRequest (initiator, Command.FIND, member));
+  }
+
+  // every member of a dataset, as for a member list screen
+  @Benchmark
+  public DatabaseRequest listMembers () throws InterruptedException
+  {
+    return send (new MemberRequest (initiator, Command.LIST, randomDataset (), "*"));
+  }
+
+  // the datasets under one high level qualifier - datasets / QUALIFIERS of them
+  @Benchmark
+  public DatabaseRequest listDatasets () throws InterruptedException
+  {
+    String prefix = String.format ("USER%02d.*", random.nextInt (QUALIFIERS));
+    return send (new DatasetRequest (initiator, Command.LIST, prefix));
+  }
+}
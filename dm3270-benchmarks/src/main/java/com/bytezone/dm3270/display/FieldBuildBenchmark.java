@@ -0,0 +1,86 @@
+package com.bytezone.dm3270.display;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.session.CapturedSession;
+
+// Allocation per screen write, driven by a captured session file. Run with the GC
+// profiler to see the bytes allocated by each call:
+//
+//   java -jar benchmarks.jar FieldBuildBenchmark -prof gc -p session=spy001.txt
+//
+// buildFields measures FieldManager.buildFields() on its own, once for each screen
+// the session produced. replayWrites processes every Write command in the session,
+// which includes the orders as well as building the fields.
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class FieldBuildBenchmark
+{
+  @Param ({ "" })
+  private String session;
+
+  @Param ({ "2" })
+  private int model;
+
+  private List<WriteCommand> writeCommands;
+  private Screen[] screens;           // the screen after each write
+  private Screen replayScreen;
+
+  @Setup
+  public void setup () throws Exception
+  {
+    writeCommands = new CapturedSession (session).getWriteCommands ();
+    if (writeCommands.isEmpty ())
+      throw new IllegalArgumentException ("No Write commands in " + session);
+
+    screens = new Screen[writeCommands.size ()];
+    for (int i = 0; i < screens.length; i++)
+    {
+      screens[i] = CapturedSession.getScreen (model);
+      for (int j = 0; j <= i; j++)
+        writeCommands.get (j).process (screens[i]);
+    }
+
+    replayScreen = CapturedSession.getScreen (model);
+  }
+
+  @Benchmark
+  public int buildFields ()
+  {
+    int totalFields = 0;
+    for (Screen screen : screens)
+    {
+      FieldManager fieldManager = screen.getFieldManager ();
+      fieldManager.buildFields (screen.getScreenBuffer ());
+      totalFields += fieldManager.size ();
+    }
+    return totalFields;
+  }
+
+  @Benchmark
+  public int replayWrites ()
+  {
+    for (WriteCommand writeCommand : writeCommands)
+      writeCommand.process (replayScreen);
+    return replayScreen.getFieldManager ().size ();
+  }
+}
@@ -0,0 +1,142 @@
+package com.bytezone.dm3270.display;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bytezone.dm3270.application.Console.Function;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.streams.TelnetState;
+
+// Compares the position index in FieldManager with the stream and linear scans that
+// it replaced. The screen is a typical form - a protected label and an unprotected
+// input field on every row.
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class FieldLookupBenchmark
+{
+  private static final byte PROTECTED = 0x20;
+  private static final byte UNPROTECTED = 0x00;
+
+  @Param ({ "2", "5" })
+  private int model;
+
+  private FieldManager fieldManager;
+  private int screenSize;
+  private int columns;
+  private int position;
+  private int row;
+
+  @Setup
+  public void setup ()
+  {
+    ScreenDimensions screenDimensions = model == 5 ? new ScreenDimensions (27, 132)
+        : new ScreenDimensions (24, 80);
+    Screen screen = new Screen (screenDimensions, screenDimensions, Function.TERMINAL,
+        null, new TelnetState ());
+
+    Pen pen = screen.getPen ();
+    columns = screenDimensions.columns;
+    screenSize = screenDimensions.size;
+
+    for (int line = 0; line < screenDimensions.rows; line++)
+    {
+      pen.moveTo (line * columns);
+      writeField (pen, PROTECTED, 20);
+      writeField (pen, UNPROTECTED, columns - 22);
+    }
+
+    fieldManager = screen.getFieldManager ();
+    fieldManager.buildFields (screen.getScreenBuffer ());
+  }
+
+  private void writeField (Pen pen, byte attribute, int length)
+  {
+    pen.startField (new StartFieldAttribute (attribute));
+    pen.moveRight ();
+    for (int i = 0; i < length; i++)
+      pen.write ((byte) 0xC1);            // 'A'
+  }
+
+  // a different cursor position on each call, as when tabbing or typing
+  private int nextPosition ()
+  {
+    position += 37;
+    if (position >= screenSize)
+      position -= screenSize;
+    return position;
+  }
+
+  private int nextRow ()
+  {
+    if (++row == screenSize / columns)
+      row = 0;
+    return row;
+  }
+
+  @Benchmark
+  public Optional<Field> getFieldAtIndexed ()
+  {
+    return fieldManager.getFieldAt (nextPosition ());
+  }
+
+  @Benchmark
+  public Optional<Field> getFieldAtParallelStream ()
+  {
+    int location = nextPosition ();
+    return fieldManager.getFields ().parallelStream ()
+        .filter (f -> f.contains (location)).findAny ();
+  }
+
+  @Benchmark
+  public Optional<Field> getFieldAtStream ()
+  {
+    int location = nextPosition ();
+    return fieldManager.getFields ().stream ().filter (f -> f.contains (location))
+        .findAny ();
+  }
+
+  @Benchmark
+  public List<Field> getRowFieldsIndexed ()
+  {
+    return fieldManager.getRowFields (nextRow ());
+  }
+
+  @Benchmark
+  public List<Field> getRowFieldsScan ()
+  {
+    int firstLocation = nextRow () * columns;
+    int lastLocation = firstLocation + columns - 1;
+
+    List<Field> rowFields = new ArrayList<> ();
+    for (Field field : fieldManager.getFields ())
+    {
+      int location = field.getFirstLocation ();
+      if (location < firstLocation)
+        continue;
+      if (location > lastLocation)
+        break;
+      if (field.getDisplayLength () > 0)
+        rowFields.add (field);
+    }
+    return rowFields;
+  }
+}
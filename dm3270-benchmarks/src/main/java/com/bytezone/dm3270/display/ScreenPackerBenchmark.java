@@ -0,0 +1,115 @@
+package com.bytezone.dm3270.display;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.session.CapturedSession;
+
+// Building the inbound data stream from each screen of a captured session - what
+// happens every time the user presses Enter (readModifiedFields) or the host asks
+// for the whole buffer (readBuffer).
+//
+// Every unprotected field is marked as modified, as if the user had typed into all of
+// them. TSO command screens are left out, as ScreenPacker remembers every command
+// sent from one.
+//
+// The writes are replayed once, and each screen is kept as a ScreenSnapshot rather
+// than as a Screen of its own. Each benchmark restores the snapshots into one screen,
+// so the restore baseline should be subtracted from their times.
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class ScreenPackerBenchmark
+{
+  @Param ({ "" })
+  private String session;
+
+  @Param ({ "2" })
+  private int model;
+
+  private final List<ScreenSnapshot> snapshots = new ArrayList<> ();
+  private Screen screen;
+
+  @Setup
+  public void setup () throws Exception
+  {
+    List<WriteCommand> writeCommands = new CapturedSession (session).getWriteCommands ();
+    Screen replayScreen = CapturedSession.getScreen (model);
+    screen = CapturedSession.getScreen (model);
+
+    for (WriteCommand writeCommand : writeCommands)
+    {
+      writeCommand.process (replayScreen);
+      replayScreen.getFieldManager ()
+          .buildFields (replayScreen.getScreenBuffer ());         // not all do
+
+      if (replayScreen.isTSOCommandScreen ())
+        continue;
+
+      // modify a copy, so that the replay isn't affected
+      screen.restore (replayScreen.getSnapshot ());
+      for (Field field : screen.getFieldManager ().getUnprotectedFields ())
+        field.setModified (true);
+      screen.setAID (AIDCommand.AID_ENTER);
+      snapshots.add (screen.getSnapshot ());
+    }
+
+    if (snapshots.isEmpty ())
+      throw new IllegalArgumentException ("No screens in " + session);
+  }
+
+  @Benchmark
+  public int restore ()
+  {
+    int total = 0;
+    for (ScreenSnapshot snapshot : snapshots)
+    {
+      screen.restore (snapshot);
+      total += screen.getAID ();
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int readModifiedFields ()
+  {
+    int total = 0;
+    for (ScreenSnapshot snapshot : snapshots)
+    {
+      screen.restore (snapshot);
+      total += screen.readModifiedFields ().size ();
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int readBuffer ()
+  {
+    int total = 0;
+    for (ScreenSnapshot snapshot : snapshots)
+    {
+      screen.restore (snapshot);
+      total += screen.readBuffer ().size ();
+    }
+    return total;
+  }
+}
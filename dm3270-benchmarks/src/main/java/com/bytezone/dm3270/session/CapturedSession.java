@@ -0,0 +1,147 @@
+package com.bytezone.dm3270.session;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.bytezone.dm3270.application.Console.Function;
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+import com.bytezone.dm3270.streams.TelnetState;
+
+// The host's side of a session file saved by the spy (text or binary), for parsing
+// and for replaying onto headless screens. An empty file name selects the sample
+// session that is bundled with the emulator - TSO logon, the ISPF menus, a data set
+// list and an edit session. Pass an SDSF capture as the session parameter to measure
+// SDSF's larger screens.
+
+public class CapturedSession
+{
+  private static final String SAMPLE = "com/bytezone/dm3270/application/mf.txt";
+
+  private final List<byte[]> serverBuffers = new ArrayList<> ();
+  private final List<byte[]> records = new ArrayList<> ();
+  private final List<WriteCommand> writeCommands = new ArrayList<> ();
+
+  public CapturedSession (String fileName) throws Exception
+  {
+    try (CaptureReader reader = fileName.isEmpty () ? new TextCaptureReader (readSample ())
+        : CaptureReader.getInstance (Paths.get (fileName)))
+    {
+      CaptureRecord captureRecord;
+      while ((captureRecord = reader.next ()) != null)
+        if (captureRecord.source == Source.SERVER)
+          add (captureRecord.buffer);
+    }
+  }
+
+  private void add (byte[] buffer)
+  {
+    serverBuffers.add (buffer);
+
+    int length = buffer.length;
+    if (length < 3 || buffer[length - 2] != (byte) 0xFF
+        || buffer[length - 1] != (byte) 0xEF)
+      return;                                 // telnet negotiation
+
+    // a 3270 command never starts with a zero, but a TN3270E header does
+    int offset = buffer[0] == 0 ? 5 : 0;
+    if (offset + 2 >= length)
+      return;
+
+    byte[] record = Arrays.copyOfRange (buffer, offset, length - 2);
+    if (!isCommand (record[0]))
+      return;                                 // TN3270E responses etc
+
+    records.add (record);
+    if (isWrite (record[0]))
+    {
+      Command command = Command.getCommand (record, 0, record.length);
+      if (command instanceof WriteCommand)
+        writeCommands.add ((WriteCommand) command);
+    }
+  }
+
+  private static boolean isCommand (byte value)
+  {
+    switch (value)
+    {
+      case Command.ERASE_ALL_UNPROTECTED_6F:
+      case Command.ERASE_ALL_UNPROTECTED_0F:
+      case Command.READ_BUFFER_F2:
+      case Command.READ_BUFFER_02:
+      case Command.READ_MODIFIED_F6:
+      case Command.READ_MODIFIED_06:
+      case Command.READ_MODIFIED_ALL_6E:
+      case Command.READ_MODIFIED_ALL_0E:
+      case Command.WRITE_STRUCTURED_FIELD_F3:
+      case Command.WRITE_STRUCTURED_FIELD_11:
+        return true;
+      default:
+        return isWrite (value);
+    }
+  }
+
+  private static boolean isWrite (byte value)
+  {
+    switch (value)
+    {
+      case Command.WRITE_F1:
+      case Command.WRITE_01:
+      case Command.ERASE_WRITE_F5:
+      case Command.ERASE_WRITE_05:
+      case Command.ERASE_WRITE_ALTERNATE_7E:
+      case Command.ERASE_WRITE_ALTERNATE_0D:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static List<String> readSample () throws IOException
+  {
+    InputStream in = CapturedSession.class.getClassLoader ().getResourceAsStream (SAMPLE);
+    if (in == null)
+      throw new IOException (SAMPLE + " not found");
+
+    try (BufferedReader reader = new BufferedReader (new InputStreamReader (in)))
+    {
+      return reader.lines ().collect (Collectors.toList ());
+    }
+  }
+
+  // every buffer the host sent, exactly as it was received (telnet framing included)
+  public List<byte[]> getServerBuffers ()
+  {
+    return serverBuffers;
+  }
+
+  // the host's 3270 records, without the TN3270E header or IAC/EOR (IAC bytes are
+  // still doubled, which is rare in a 3270 data stream)
+  public List<byte[]> getRecords ()
+  {
+    return records;
+  }
+
+  public List<WriteCommand> getWriteCommands ()
+  {
+    return writeCommands;
+  }
+
+  public static Screen getScreen (int model)
+  {
+    ScreenDimensions alternateScreenDimensions =
+        model == 5 ? new ScreenDimensions (27, 132) : new ScreenDimensions (24, 80);
+    return new Screen (new ScreenDimensions (24, 80), alternateScreenDimensions,
+        Function.TERMINAL, null, new TelnetState ());
+  }
+}
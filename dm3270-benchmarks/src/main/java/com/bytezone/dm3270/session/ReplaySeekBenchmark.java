@@ -0,0 +1,97 @@
+package com.bytezone.dm3270.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bytezone.dm3270.buffers.ReplyBuffer;
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// Latency of selecting a random record in a replay, against the length of the
+// capture. The capture is the session's Write commands repeated until it has the
+// required number of records.
+//
+//   java -jar benchmarks.jar ReplaySeekBenchmark -p records=1000,10000
+//
+// seekWithCheckpoints uses a ReplayIndex whose checkpoints have all been taken, so
+// it measures a restore plus at most interval-1 commands. seekFromStart is the
+// alternative that gives the same screen - processing every record up to the one
+// selected.
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class ReplaySeekBenchmark
+{
+  @Param ({ "" })
+  private String session;
+
+  @Param ({ "100", "1000", "10000" })
+  private int records;
+
+  @Param ({ "32" })
+  private int interval;
+
+  private List<SessionRecord> sessionRecords;
+  private ReplayIndex replayIndex;
+  private Screen fromStartScreen;
+  private final Random random = new Random (42);
+
+  @Setup
+  public void setup () throws Exception
+  {
+    List<WriteCommand> writeCommands = new CapturedSession (session).getWriteCommands ();
+    if (writeCommands.isEmpty ())
+      throw new IllegalArgumentException ("No Write commands in " + session);
+
+    sessionRecords = new ArrayList<> (records);
+    while (sessionRecords.size () < records)
+      sessionRecords.add (new SessionRecord (SessionRecordType.TN3270,
+          writeCommands.get (sessionRecords.size () % writeCommands.size ()),
+          Source.SERVER, null, true));
+
+    replayIndex =
+        new ReplayIndex (sessionRecords, CapturedSession.getScreen (2), interval);
+    replayIndex.replay (records - 1);               // take every checkpoint
+
+    fromStartScreen = CapturedSession.getScreen (2);
+  }
+
+  @Benchmark
+  public ReplyBuffer seekWithCheckpoints ()
+  {
+    return replayIndex.replay (random.nextInt (records));
+  }
+
+  @Benchmark
+  public ReplyBuffer seekFromStart ()
+  {
+    int index = random.nextInt (records);
+    fromStartScreen.clearScreen ();
+    for (int i = 0; i < index; i++)
+      sessionRecords.get (i).getMessage ().process (fromStartScreen);
+
+    ReplyBuffer message = sessionRecords.get (index).getMessage ();
+    message.process (fromStartScreen);
+    return message;
+  }
+}
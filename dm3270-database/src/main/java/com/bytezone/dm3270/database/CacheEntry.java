@@ -41,9 +41,15 @@ class CacheEntry
     members.put (member.name, member);
   }
 
+  // the number of rows held, as DatasetCache counts them
+  int size ()
+  {
+    return (dataset == null ? 0 : 1) + (members == null ? 0 : members.size ());
+  }
+
   void replace (Dataset dataset)
   {
-    assert dataset.getName ().equals (dataset.getName ());
+    assert this.dataset == null || this.dataset.getName ().equals (dataset.getName ());
     this.dataset = dataset;
   }
 }
\ No newline at end of file
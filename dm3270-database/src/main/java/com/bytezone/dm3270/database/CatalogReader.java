@@ -0,0 +1,390 @@
+package com.bytezone.dm3270.database;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Reads a catalog listing that has been downloaded from the mainframe, one line at a
+// time, and collects the datasets and members that it describes. It understands:
+//
+//   IDCAMS LISTCAT   - NONVSAM and CLUSTER entries, with the catalog, and with the
+//                      dates, volume and device when LISTCAT ALL was used
+//   ISPF DSLIST      - a saved data set list, whose heading names the columns
+//   ISPF member list - a saved member list, whose heading has Name and VV.MM
+//
+// Lines may start with an ASA carriage control character. Anything else is ignored.
+
+public class CatalogReader
+{
+  private static final String SEGMENT = "[A-Z@#$][-A-Z0-9@#$]{0,7}";
+  private static final Pattern datasetNamePattern =
+      Pattern.compile (SEGMENT + "(\\." + SEGMENT + "){1,21}");
+  private static final Pattern memberNamePattern = Pattern.compile (SEGMENT);
+  private static final Pattern tokenPattern = Pattern.compile ("\\S+");
+  private static final Pattern datePattern = Pattern.compile ("\\d{4}/\\d{2}/\\d{2}");
+  private static final Pattern timePattern = Pattern.compile ("\\d{2}:\\d{2}(:\\d{2})?");
+  private static final Pattern formatPattern = Pattern.compile ("[A-Z][-A-Z]{0,3}");
+  private static final Pattern selectionPattern = Pattern.compile ("_+");
+
+  // LISTCAT
+  private static final Pattern entryPattern =
+      Pattern.compile ("^.?\\s*([A-Z]+( BASE)?) -+ (\\S+)\\s*$");
+  private static final Pattern listingPattern =
+      Pattern.compile ("LISTING FROM CATALOG -+ (\\S+)");
+  private static final Pattern inCatPattern = Pattern.compile ("IN-CAT -+ (\\S+)");
+  private static final Pattern creationPattern =
+      Pattern.compile ("CREATION-+(\\d{4})\\.(\\d{3})");
+  private static final Pattern expirationPattern =
+      Pattern.compile ("EXPIRATION-+(\\d{4})\\.(\\d{3})");
+  private static final Pattern volserPattern = Pattern.compile ("VOLSER-+(\\S+)");
+  private static final Pattern devtypePattern =
+      Pattern.compile ("DEVTYPE-+X'([0-9A-F]{8})'");
+
+  private static final DateTimeFormatter formatter =
+      DateTimeFormatter.ofPattern ("yyyy/MM/dd");
+
+  private static final String[] datasetHeadings = { "VOLUME", "TRACKS", "%USED", "XT",
+      "DEVICE", "DSORG", "RECFM", "LRECL", "BLKSIZE", "CREATED", "EXPIRES", "REFERRED",
+      "CATALOG" };
+  private static final String[] memberHeadings =
+      { "VV.MM", "CREATED", "CHANGED", "SIZE", "INIT", "MOD", "ID" };
+
+  private enum Mode
+  {
+    NONE, LISTCAT, DSLIST, MEMBERS
+  }
+
+  private final Map<String, Dataset> datasets = new LinkedHashMap<> ();
+  private final Map<String, Member> members = new LinkedHashMap<> ();
+
+  private Mode mode = Mode.NONE;
+  private List<Token> headings;
+  private String catalog;                   // from the LISTCAT heading
+  private Dataset entry;                    // the LISTCAT entry being read
+  private String lastDatasetName;           // the PDS of a member list
+
+  public void read (String line)
+  {
+    if (readListcat (line))
+      return;
+
+    List<Token> tokens = getTokens (line);
+    if (!tokens.isEmpty () && selectionPattern.matcher (tokens.get (0).text).matches ())
+      tokens.remove (0);                                 // an empty selection column
+    if (tokens.isEmpty ())
+      return;
+
+    if (isHeading (tokens, datasetHeadings, 2))
+    {
+      mode = Mode.DSLIST;
+      headings = tokens;
+      return;
+    }
+
+    if (isHeading (tokens, memberHeadings, 2) && contains (tokens, "NAME"))
+    {
+      mode = Mode.MEMBERS;
+      headings = tokens;
+      return;
+    }
+
+    String first = tokens.get (0).text;
+    String datasetName = null;
+    for (Token token : tokens)
+      if (datasetNamePattern.matcher (token.text).matches ())
+      {
+        datasetName = token.text;
+        break;
+      }
+
+    if (mode == Mode.DSLIST && first.equals (datasetName))
+      addDataset (first, getValues (tokens));
+    else if (mode == Mode.MEMBERS && datasetName == null && lastDatasetName != null
+        && memberNamePattern.matcher (first).matches ())
+      addMember (lastDatasetName, first, getValues (tokens));
+    else if (mode == Mode.NONE && first.equals (datasetName) && tokens.size () == 1)
+    {
+      addDataset (first, new HashMap<> ());              // a plain list of names
+      lastDatasetName = first;                           // or a member list's title
+    }
+    else if (datasetName != null)
+      lastDatasetName = datasetName;                     // a member list's title
+  }
+
+  public List<Dataset> getDatasets ()
+  {
+    return new ArrayList<> (datasets.values ());
+  }
+
+  public List<Member> getMembers ()
+  {
+    return new ArrayList<> (members.values ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // LISTCAT
+  // ---------------------------------------------------------------------------------//
+
+  private boolean readListcat (String line)
+  {
+    Matcher matcher = listingPattern.matcher (line);
+    if (matcher.find ())
+    {
+      mode = Mode.LISTCAT;
+      catalog = matcher.group (1);
+      return true;
+    }
+
+    matcher = entryPattern.matcher (line);
+    if (matcher.find ())
+    {
+      mode = Mode.LISTCAT;
+      String type = matcher.group (1);
+      String name = matcher.group (3);
+
+      // the DATA and INDEX components belong to the CLUSTER before them
+      if (type.equals ("DATA") || type.equals ("INDEX"))
+        return true;
+
+      entry = null;
+      if ((type.equals ("NONVSAM") || type.equals ("CLUSTER"))
+          && datasetNamePattern.matcher (name).matches ())
+      {
+        entry = addDataset (name, new HashMap<> ());
+        if (catalog != null)
+          entry.setCatalog (catalog);
+        if (type.equals ("CLUSTER"))
+          entry.setDisposition ("VS", null, 0, 0);
+      }
+      return true;
+    }
+
+    if (mode != Mode.LISTCAT)
+      return false;
+
+    if (entry != null)
+    {
+      if ((matcher = inCatPattern.matcher (line)).find ())
+        entry.setCatalog (matcher.group (1));
+      if ((matcher = creationPattern.matcher (line)).find ())
+        entry.setDates (getDate (matcher), "", "");
+      if ((matcher = expirationPattern.matcher (line)).find ())
+        entry.setDates ("", getDate (matcher), "");
+      if ((matcher = volserPattern.matcher (line)).find () && entry.volume == null)
+        entry.setVolume (matcher.group (1));
+      if ((matcher = devtypePattern.matcher (line)).find () && entry.device == null)
+        entry.setDevice (getDevice (matcher.group (1)));
+    }
+
+    return true;
+  }
+
+  // yyyy.ddd - 0000.000 means no date
+  private String getDate (Matcher matcher)
+  {
+    int year = Integer.parseInt (matcher.group (1));
+    int day = Integer.parseInt (matcher.group (2));
+    if (year == 0 || day == 0)
+      return "";
+
+    try
+    {
+      return LocalDate.ofYearDay (year, day).format (formatter);
+    }
+    catch (DateTimeException e)
+    {
+      return "";
+    }
+  }
+
+  private String getDevice (String devtype)
+  {
+    switch (devtype)
+    {
+      case "3010200F":
+        return "3390";
+      case "3010200E":
+        return "3380";
+      default:
+        return null;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // DSLIST and member list
+  // ---------------------------------------------------------------------------------//
+
+  private Dataset addDataset (String name, Map<String, String> values)
+  {
+    Dataset dataset = new Dataset (name);
+
+    dataset.setVolume (values.get ("VOLUME"));
+    dataset.setDevice (values.get ("DEVICE"));
+    String catalog = values.get ("CATALOG");
+    if (catalog != null && datasetNamePattern.matcher (catalog).matches ())
+      dataset.setCatalog (catalog);
+
+    dataset.setSpace (getInteger (values, "TRACKS"), 0, getInteger (values, "XT"),
+                      getInteger (values, "%USED"));
+    dataset.setDisposition (getFormat (values, "DSORG"), getFormat (values, "RECFM"),
+                            getInteger (values, "LRECL"), getInteger (values, "BLKSIZE"));
+    dataset.setDates (getDate (values, "CREATED"), getDate (values, "EXPIRES"),
+                      getDate (values, "REFERRED"));
+
+    Dataset currentDataset = datasets.get (name);
+    if (currentDataset == null)
+    {
+      datasets.put (name, dataset);
+      return dataset;
+    }
+
+    currentDataset.merge (dataset);
+    return currentDataset;
+  }
+
+  private void addMember (String datasetName, String name, Map<String, String> values)
+  {
+    Dataset dataset = datasets.get (datasetName);
+    if (dataset == null)
+      dataset = new Dataset (datasetName);
+    Member member = new Member (dataset, name);
+
+    int vv = 0;
+    int mm = 0;
+    String vvmm = values.get ("VV.MM");
+    if (vvmm != null && vvmm.matches ("\\d{2}\\.\\d{2}"))
+    {
+      vv = Integer.parseInt (vvmm.substring (0, 2));
+      mm = Integer.parseInt (vvmm.substring (3));
+    }
+    member.setSize (getInteger (values, "SIZE"), getInteger (values, "INIT"),
+                    getInteger (values, "MOD"), vv, mm);
+
+    String changed = getDate (values, "CHANGED");
+    if (!changed.isEmpty ())
+    {
+      String time = values.get ("CHANGED").substring (changed.length ()).trim ();
+      if (!timePattern.matcher (time).matches ())
+        time = "00:00:00";
+      else if (time.length () == 5)
+        time += ":00";
+      changed += " " + time;
+    }
+    member.setDates (getDate (values, "CREATED"), changed);
+
+    String id = values.get ("ID");
+    if (id != null)
+      member.setID (id);
+
+    members.put (datasetName + "(" + name + ")", member);
+  }
+
+  // Each token after the name belongs to the heading above it, or failing that to the
+  // nearest heading. A heading that gets more than one token (a date and a time) gets
+  // them all.
+  private Map<String, String> getValues (List<Token> tokens)
+  {
+    Map<String, String> values = new HashMap<> ();
+
+    for (int i = 1; i < tokens.size (); i++)
+    {
+      Token heading = getHeading (tokens.get (i));
+      if (heading == null)
+        continue;
+
+      String key = heading.text.toUpperCase ();
+      String value = values.get (key);
+      values.put (key, value == null ? tokens.get (i).text
+          : value + " " + tokens.get (i).text);
+    }
+
+    return values;
+  }
+
+  private Token getHeading (Token token)
+  {
+    Token bestHeading = null;
+    int bestDistance = Integer.MAX_VALUE;
+
+    for (Token heading : headings)
+    {
+      int distance = Math.max (token.start - heading.end, heading.start - token.end);
+      if (distance < bestDistance)
+      {
+        bestDistance = distance;
+        bestHeading = heading;
+      }
+    }
+
+    return bestHeading;
+  }
+
+  private boolean isHeading (List<Token> tokens, String[] names, int needed)
+  {
+    int found = 0;
+    for (String name : names)
+      if (contains (tokens, name))
+        ++found;
+    return found >= needed;
+  }
+
+  private boolean contains (List<Token> tokens, String name)
+  {
+    for (Token token : tokens)
+      if (token.text.equalsIgnoreCase (name))
+        return true;
+    return false;
+  }
+
+  private String getDate (Map<String, String> values, String key)
+  {
+    String value = values.get (key);
+    if (value == null)
+      return "";
+    Matcher matcher = datePattern.matcher (value);
+    return matcher.lookingAt () ? matcher.group () : "";
+  }
+
+  // DSORG and RECFM, but not **NONE** and the like
+  private String getFormat (Map<String, String> values, String key)
+  {
+    String value = values.get (key);
+    return value != null && formatPattern.matcher (value).matches () ? value : null;
+  }
+
+  private int getInteger (Map<String, String> values, String key)
+  {
+    String value = values.get (key);
+    return value != null && value.matches ("\\d{1,9}") ? Integer.parseInt (value) : 0;
+  }
+
+  private List<Token> getTokens (String line)
+  {
+    List<Token> tokens = new ArrayList<> ();
+    Matcher matcher = tokenPattern.matcher (line);
+    while (matcher.find ())
+      tokens.add (new Token (matcher.group (), matcher.start (), matcher.end ()));
+    return tokens;
+  }
+
+  private static class Token
+  {
+    final String text;
+    final int start;
+    final int end;
+
+    Token (String text, int start, int end)
+    {
+      this.text = text;
+      this.start = start;
+      this.end = end;
+    }
+  }
+}
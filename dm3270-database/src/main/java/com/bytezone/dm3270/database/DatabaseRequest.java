@@ -11,6 +11,7 @@ public class DatabaseRequest
     DELETE,   // must exist
     FIND,     // get dataset/member
     LIST,     // get list of datasets/members
+    IMPORT,   // update from a catalog listing, in one transaction
 
     // database
     CREATE,   // drop tables and create 
@@ -29,6 +30,7 @@ public class DatabaseRequest
   public Result result;
   public String databaseName;
   public boolean databaseUpdated;
+  public long queuedAt;                     // nanoTime, set by the initiator
 
   public DatabaseRequest (Initiator initiator, Command command)
   {
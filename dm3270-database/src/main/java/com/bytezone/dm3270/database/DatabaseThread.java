@@ -6,15 +6,31 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import com.bytezone.dm3270.database.DatabaseRequest.Command;
 import com.bytezone.dm3270.database.DatabaseRequest.Result;
 
+// Every statement is prepared once and kept until the connection is closed. OPEN
+// puts the database in WAL mode and upgrades a schema made by an earlier version.
+//
+// UPDATE requests for datasets and members are not written straight away. Requests
+// for the same dataset or member are merged, and everything waiting is written in a
+// single transaction when there are BATCH_SIZE of them, when the oldest has waited
+// FLUSH_MILLIS, or before any other request is processed (so that it sees them).
+
 public class DatabaseThread extends Thread
 {
+  private static final int SCHEMA_VERSION = 1;             // pragma user_version
+  private static final int BATCH_SIZE = 100;
+  private static final long FLUSH_MILLIS = 200;
+
   private static final String INSERT_DATASET =
       "insert into DATASETS (VOLUME, DEVICE, CATALOG, "
           + "TRACKS, CYLINDERS, PERCENT, EXTENTS, DSORG, RECFM, LRECL, BLKSIZE,"
@@ -33,12 +49,46 @@ public class DatabaseThread extends Thread
       "update MEMBERS set ID=?, SIZE=?, INIT=?, MOD=?, VV=?, MM=?, CREATED=?, "
           + "CHANGED=? where DATASET=? and NAME=?";
 
+  private static final String SELECT_DATASET = "select * from DATASETS where NAME=?";
+
+  private static final String SELECT_MEMBER =
+      "select * from MEMBERS where DATASET=? and NAME=?";
+
+  private static final String INSERT_PO_DATASET =
+      "insert into DATASETS (NAME, DSORG) values (?, 'PO')";
+
+  private static final String UPDATE_PO_DATASET =
+      "update DATASETS set DSORG='PO' where NAME=?";
+
+  private static final String LIST_DATASETS = "select * from DATASETS";
+
+  private static final String LIST_DATASETS_RANGE =
+      "select * from DATASETS where NAME>=? and NAME<=?";
+
+  private static final String LIST_MEMBERS = "select * from MEMBERS where DATASET=?";
+
+  private static final String LIST_MEMBERS_RANGE =
+      "select * from MEMBERS where DATASET=? and NAME>=? and NAME<=?";
+
+  private static final String DELETE_DATASET = "delete from DATASETS where NAME=?";
+
+  private static final String DELETE_MEMBERS = "delete from MEMBERS where DATASET=?";
+
+  private static final String DELETE_MEMBER =
+      "delete from MEMBERS where DATASET=? and NAME=?";
+
   private Connection connection;
   private BlockingQueue<DatabaseRequest> queue;
   private boolean cancelled;
   private final String databaseName;
 
-  private final Map<String, CacheEntry> cache = new TreeMap<> ();
+  private final DatasetCache cache = new DatasetCache (DatasetCache.DEFAULT_CAPACITY);
+  private final Map<String, PreparedStatement> statements = new HashMap<> ();
+
+  // write-behind
+  private final Map<String, Pending<Dataset>> pendingDatasets = new LinkedHashMap<> ();
+  private final Map<String, Pending<Member>> pendingMembers = new LinkedHashMap<> ();
+  private long firstPendingTime;                  // nanoTime of the oldest request
 
   public DatabaseThread (String databaseName, BlockingQueue<DatabaseRequest> queue)
   {
@@ -60,6 +110,22 @@ public class DatabaseThread extends Thread
     }
   }
 
+  // the cache counters may be read from any thread
+  public long getCacheHits ()
+  {
+    return cache.getHits ();
+  }
+
+  public long getCacheMisses ()
+  {
+    return cache.getMisses ();
+  }
+
+  public long getCacheEvictions ()
+  {
+    return cache.getEvictions ();
+  }
+
   @Override
   public void run ()
   {
@@ -67,11 +133,25 @@ public class DatabaseThread extends Thread
     {
       try
       {
-        DatabaseRequest request = queue.take ();
+        DatabaseRequest request = getRequest ();
+        if (request == null)                  // the oldest update has waited long enough
+        {
+          flush ();
+          continue;
+        }
 
         request.result = Result.FAILURE;
         request.databaseName = databaseName;
 
+        if (addPending (request))
+        {
+          if (getPendingCount () >= BATCH_SIZE)
+            flush ();
+          continue;
+        }
+
+        flush ();
+
         if (request instanceof DatasetRequest)
           process ((DatasetRequest) request);
         else if (request instanceof MemberRequest)
@@ -89,6 +169,9 @@ public class DatabaseThread extends Thread
       }
     }
 
+    flush ();
+    closeStatements ();
+
     try
     {
       connection.close ();
@@ -100,12 +183,25 @@ public class DatabaseThread extends Thread
     }
   }
 
+  // waits for as long as the oldest pending update allows, returns null on timeout
+  private DatabaseRequest getRequest () throws InterruptedException
+  {
+    if (getPendingCount () == 0)
+      return queue.take ();
+
+    long waited = TimeUnit.NANOSECONDS.toMillis (System.nanoTime () - firstPendingTime);
+    if (waited >= FLUSH_MILLIS)
+      return null;
+
+    return queue.poll (FLUSH_MILLIS - waited, TimeUnit.MILLISECONDS);
+  }
+
   private void process (DatabaseRequest request)
   {
     switch (request.command)
     {
       case OPEN:
-        if (create (request))                       // create if not already there
+        if (open () && create (request) && upgrade ())  // create if not already there
           request.result = Result.SUCCESS;
         break;
 
@@ -115,7 +211,7 @@ public class DatabaseThread extends Thread
         break;
 
       case CREATE:
-        if (drop (request) && create (request))
+        if (drop (request) && create (request) && upgrade ())
           request.result = Result.SUCCESS;
         break;
 
@@ -124,6 +220,11 @@ public class DatabaseThread extends Thread
         request.result = Result.SUCCESS;
         break;
 
+      case IMPORT:
+        if (importCatalog ((ImportRequest) request))
+          request.result = Result.SUCCESS;
+        break;
+
       default:
         System.out.printf ("Unnown database request: %s%n", request);
         break;
@@ -225,6 +326,7 @@ public class DatabaseThread extends Thread
           request.member = optMember.get ();
           request.result = Result.SUCCESS;
         }
+        break;
 
       case LIST:
         if (createMemberList (request))
@@ -237,8 +339,104 @@ public class DatabaseThread extends Thread
     }
   }
 
+  // ---------------------------------------------------------------------------------//
+  // Schema
+  // ---------------------------------------------------------------------------------//
+
+  // In WAL mode the list requests don't wait for a write to finish, and a commit
+  // only has to reach the log. NORMAL is safe with WAL - a power failure can lose the
+  // last commits but can't corrupt the database.
+  private boolean open ()
+  {
+    try (Statement stmt = connection.createStatement ())
+    {
+      stmt.execute ("pragma journal_mode=WAL");
+      stmt.execute ("pragma synchronous=NORMAL");
+      return true;
+    }
+    catch (SQLException e)
+    {
+      System.err.println (e.getClass ().getName () + ": " + e.getMessage ());
+      return false;
+    }
+  }
+
+  // Brings the tables made by create() up to SCHEMA_VERSION, one version at a time.
+  private boolean upgrade ()
+  {
+    try (Statement stmt = connection.createStatement ())
+    {
+      int version = 0;
+      try (ResultSet rs = stmt.executeQuery ("pragma user_version"))
+      {
+        if (rs.next ())
+          version = rs.getInt (1);
+      }
+      if (version >= SCHEMA_VERSION)
+        return true;
+
+      connection.setAutoCommit (false);
+
+      // 1 - find and list search on NAME and on (DATASET, NAME), which are the
+      // primary keys. A table made without its key gets an index instead.
+      if (version < 1)
+      {
+        if (!hasPrimaryKey (stmt, "DATASETS"))
+          stmt.executeUpdate ("create unique index if not exists DATASETS_NAME "
+              + "on DATASETS (NAME)");
+        if (!hasPrimaryKey (stmt, "MEMBERS"))
+          stmt.executeUpdate ("create unique index if not exists MEMBERS_NAME "
+              + "on MEMBERS (DATASET, NAME)");
+      }
+
+      stmt.executeUpdate ("pragma user_version=" + SCHEMA_VERSION);
+      connection.commit ();
+      System.out.printf ("Database upgraded from version %d to %d%n", version,
+                         SCHEMA_VERSION);
+      return true;
+    }
+    catch (SQLException e)
+    {
+      System.err.println (e.getClass ().getName () + ": " + e.getMessage ());
+      try
+      {
+        connection.rollback ();
+      }
+      catch (SQLException e1)
+      {
+        e1.printStackTrace ();
+      }
+      return false;
+    }
+    finally
+    {
+      try
+      {
+        connection.setAutoCommit (true);
+      }
+      catch (SQLException e)
+      {
+        e.printStackTrace ();
+      }
+    }
+  }
+
+  private boolean hasPrimaryKey (Statement stmt, String table) throws SQLException
+  {
+    try (ResultSet rs = stmt.executeQuery ("pragma index_list(" + table + ")"))
+    {
+      while (rs.next ())
+        if ("pk".equals (rs.getString ("origin")))
+          return true;
+    }
+    return false;
+  }
+
+  // the statements refer to the tables, so they go when the tables are dropped
   private boolean drop (DatabaseRequest request)
   {
+    closeStatements ();
+
     try
     {
       Statement stmt = connection.createStatement ();
@@ -341,35 +539,42 @@ public class DatabaseThread extends Thread
     }
   }
 
+  // ---------------------------------------------------------------------------------//
+  // Queries
+  // ---------------------------------------------------------------------------------//
+
+  // a name ending in * lists every name that starts with the same characters
   private boolean createDatasetList (DatasetRequest request)
   {
     request.datasets = new ArrayList<> ();
     try
     {
-      Statement stmt = connection.createStatement ();
-
-      String query = "select * from DATASETS ";
+      PreparedStatement ps;
       int pos = request.datasetName.indexOf ('*');
 
       if (pos < 0)
-        query += "where NAME='" + request.datasetName + "'";
+      {
+        ps = prepare (SELECT_DATASET);
+        ps.setString (1, request.datasetName);
+      }
       else if (pos > 0)
       {
         String from = request.datasetName.substring (0, pos);
-        String to = from + "Z";
-        query += "where NAME>='" + from + "' and NAME<='" + to + "'";
+        ps = prepare (LIST_DATASETS_RANGE);
+        ps.setString (1, from);
+        ps.setString (2, from + "Z");
       }
+      else
+        ps = prepare (LIST_DATASETS);
 
-      ResultSet rs = stmt.executeQuery (query);
-      while (rs.next ())
+      try (ResultSet rs = ps.executeQuery ())
       {
-        Dataset dataset = createDataset (rs);
-        request.datasets.add (dataset);
-        CacheEntry cacheEntry = cache.get (dataset.getName ());
-        if (cacheEntry == null)
-          cache.put (dataset.getName (), new CacheEntry (dataset));
-        else
-          cacheEntry.replace (dataset);       // is this necessary?
+        while (rs.next ())
+        {
+          Dataset dataset = createDataset (rs);
+          request.datasets.add (dataset);
+          cache.putDataset (copy (dataset));
+        }
       }
 
       return true;
@@ -388,28 +593,31 @@ public class DatabaseThread extends Thread
     if (!optDataset.isPresent ())
       return false;
     Dataset dataset = optDataset.get ();
-    CacheEntry cacheEntry = cache.get (dataset.getName ());
 
     try
     {
-      Statement stmt = connection.createStatement ();
-
-      String query = "select * from MEMBERS where DATASET='" + request.datasetName + "'";
+      PreparedStatement ps;
       int pos = request.memberName.indexOf ('*');
 
       if (pos > 0)
       {
         String from = request.memberName.substring (0, pos);
-        String to = from + "Z";
-        query += "where NAME>='" + from + "' and NAME<='" + to + "'";
+        ps = prepare (LIST_MEMBERS_RANGE);
+        ps.setString (2, from);
+        ps.setString (3, from + "Z");
       }
+      else
+        ps = prepare (LIST_MEMBERS);
+      ps.setString (1, request.datasetName);
 
-      ResultSet rs = stmt.executeQuery (query);
-      while (rs.next ())
+      try (ResultSet rs = ps.executeQuery ())
       {
-        Member member = createMember (rs, dataset);
-        request.members.add (member);
-        cacheEntry.addMember (member);
+        while (rs.next ())
+        {
+          Member member = createMember (rs, dataset);
+          request.members.add (member);
+          cache.putMember (copy (member));
+        }
       }
 
       return true;
@@ -421,21 +629,12 @@ public class DatabaseThread extends Thread
     }
   }
 
+  // SQLite is only asked when the cache doesn't have the dataset
   private Optional<Dataset> findDataset (String datasetName)
   {
     try
     {
-      Statement stmt = connection.createStatement ();
-      ResultSet rs =
-          stmt.executeQuery ("SELECT * FROM DATASETS where NAME = '" + datasetName + "'");
-      if (rs.next ())
-      {
-        Dataset dataset = createDataset (rs);
-        CacheEntry cacheEntry = cache.get (dataset.name);
-        if (cacheEntry == null)
-          cache.put (dataset.name, new CacheEntry (dataset));
-        return Optional.of (dataset);
-      }
+      return lookupDataset (prepare (SELECT_DATASET), datasetName);
     }
     catch (SQLException e)
     {
@@ -446,24 +645,13 @@ public class DatabaseThread extends Thread
 
   private Optional<Member> findMember (Dataset dataset, String memberName)
   {
+    Optional<Dataset> optDataset = findDataset (dataset.getName ());
+    if (optDataset.isPresent ())
+      dataset = optDataset.get ();            // replace the parameter we were given
+
     try
     {
-      Statement stmt = connection.createStatement ();
-      ResultSet rs = stmt.executeQuery ("select * from MEMBERS where DATASET='"
-          + dataset.getName () + "' and NAME='" + memberName + "'");
-
-      if (rs.next ())
-      {
-        Optional<Dataset> optDataset = findDataset (dataset.getName ());
-        if (optDataset.isPresent ())
-          dataset = optDataset.get ();        // replace the parameter we were given
-
-        CacheEntry cacheEntry = cache.get (dataset.name);
-
-        Member member = createMember (rs, dataset);
-        cacheEntry.putMember (member);
-        return Optional.of (member);
-      }
+      return lookupMember (prepare (SELECT_MEMBER), dataset, memberName);
     }
     catch (SQLException e)
     {
@@ -472,6 +660,50 @@ public class DatabaseThread extends Thread
     return Optional.empty ();
   }
 
+  // Returns a copy of the cached dataset, reading it into the cache first if it isn't
+  // there. The caller may change the copy.
+  private Optional<Dataset> lookupDataset (PreparedStatement ps, String datasetName)
+      throws SQLException
+  {
+    Optional<Dataset> optDataset = cache.getDataset (datasetName);
+    if (!optDataset.isPresent ())
+    {
+      optDataset = selectDataset (ps, datasetName);
+      if (!optDataset.isPresent ())
+        return optDataset;
+      cache.putDataset (optDataset.get ());
+    }
+    return Optional.of (copy (optDataset.get ()));
+  }
+
+  private Optional<Member> lookupMember (PreparedStatement ps, Dataset dataset,
+      String memberName) throws SQLException
+  {
+    Optional<Member> optMember = cache.getMember (dataset.getName (), memberName);
+    if (!optMember.isPresent ())
+    {
+      optMember = selectMember (ps, dataset, memberName);
+      if (!optMember.isPresent ())
+        return optMember;
+      cache.putMember (optMember.get ());
+    }
+    return Optional.of (copy (optMember.get ()));
+  }
+
+  private static Dataset copy (Dataset dataset)
+  {
+    Dataset copy = new Dataset (dataset.getName ());
+    copy.merge (dataset);
+    return copy;
+  }
+
+  private static Member copy (Member member)
+  {
+    Member copy = new Member (member.dataset, member.getName ());
+    copy.merge (member);
+    return copy;
+  }
+
   private boolean updateDataset (DatasetRequest request)
   {
     Dataset dataset = request.dataset;
@@ -486,26 +718,17 @@ public class DatabaseThread extends Thread
       dataset = currentDataset;
       request.dataset = dataset;
     }
-    else
-    {
-      CacheEntry cacheEntry = new CacheEntry (dataset);
-      cache.put (dataset.name, cacheEntry);
-    }
 
     try
     {
       System.out.println ("Dataset modified:");
       System.out.println (dataset);
 
-      PreparedStatement ps3 = connection.prepareStatement (UPDATE_DATASET);
-
-      setDatasetStatement (ps3, dataset);
-      ps3.executeUpdate ();
-      ps3.close ();
+      PreparedStatement ps = prepare (UPDATE_DATASET);
+      setDatasetStatement (ps, dataset);
+      ps.executeUpdate ();
       request.databaseUpdated = true;
-
-      CacheEntry cacheEntry = cache.get (dataset.name);
-      cacheEntry.dataset = dataset;
+      cache.putDataset (copy (dataset));
 
       return true;
     }
@@ -518,7 +741,6 @@ public class DatabaseThread extends Thread
   private boolean updateMember (MemberRequest request)
   {
     Member member = request.member;
-    Optional<Dataset> optDataset = findDataset (member.dataset.name);
     Optional<Member> optMember = findMember (member.dataset, member.name);
     if (optMember.isPresent ())
     {
@@ -529,25 +751,6 @@ public class DatabaseThread extends Thread
       currentMember.merge (member);
       member = currentMember;
       request.member = member;
-
-      Dataset dataset = optDataset.get ();
-      CacheEntry cacheEntry = cache.get (dataset.name);
-      cacheEntry.putMember (currentMember);
-    }
-    else
-    {
-      if (optDataset.isPresent ())
-      {
-        Dataset dataset = optDataset.get ();
-        CacheEntry cacheEntry = cache.get (dataset.name);
-        cacheEntry.putMember (member);
-      }
-      else
-      {
-        CacheEntry cacheEntry = new CacheEntry (member.dataset);
-        cache.put (member.dataset.name, cacheEntry);
-        cacheEntry.putMember (member);
-      }
     }
 
     try
@@ -555,12 +758,11 @@ public class DatabaseThread extends Thread
       System.out.printf ("Member modified: %s(%s)%n", member.dataset.name, member.name);
       System.out.println (member);
 
-      PreparedStatement ps4 = connection.prepareStatement (UPDATE_MEMBER);
-
-      setMemberStatement (ps4, member);
-      ps4.executeUpdate ();
-      ps4.close ();
+      PreparedStatement ps = prepare (UPDATE_MEMBER);
+      setMemberStatement (ps, member);
+      ps.executeUpdate ();
       request.databaseUpdated = true;
+      cache.putMember (copy (member));
 
       return true;
     }
@@ -577,18 +779,18 @@ public class DatabaseThread extends Thread
       connection.setAutoCommit (false);
 
       // delete members
-      Statement stmt = connection.createStatement ();
-      stmt.executeUpdate ("delete from MEMBERS where DATASET='" + dataset.getName ()
-          + "'");
-      stmt.close ();
+      PreparedStatement ps = prepare (DELETE_MEMBERS);
+      ps.setString (1, dataset.getName ());
+      ps.executeUpdate ();
 
       // delete dataset
-      stmt = connection.createStatement ();
-      stmt.executeUpdate ("delete from DATASETS where NAME='" + dataset.getName () + "'");
-      stmt.close ();
+      ps = prepare (DELETE_DATASET);
+      ps.setString (1, dataset.getName ());
+      ps.executeUpdate ();
 
       connection.commit ();
       connection.setAutoCommit (true);
+      cache.removeDataset (dataset.getName ());
 
       return true;
     }
@@ -610,10 +812,11 @@ public class DatabaseThread extends Thread
   {
     try
     {
-      Statement stmt = connection.createStatement ();
-      stmt.executeUpdate ("delete from MEMEBERS where DATASET='"
-          + member.dataset.getName () + "' and NAME='" + member.getName () + "'");
-      stmt.close ();
+      PreparedStatement ps = prepare (DELETE_MEMBER);
+      ps.setString (1, member.dataset.getName ());
+      ps.setString (2, member.getName ());
+      ps.executeUpdate ();
+      cache.removeMember (member.dataset.getName (), member.getName ());
       return true;
     }
     catch (SQLException e)
@@ -626,11 +829,10 @@ public class DatabaseThread extends Thread
   {
     try
     {
-      PreparedStatement ps1 = connection.prepareStatement (INSERT_DATASET);
-
-      setDatasetStatement (ps1, dataset);
-      ps1.executeUpdate ();
-      ps1.close ();
+      PreparedStatement ps = prepare (INSERT_DATASET);
+      setDatasetStatement (ps, dataset);
+      ps.executeUpdate ();
+      cache.putDataset (copy (dataset));
 
       return true;
     }
@@ -649,12 +851,12 @@ public class DatabaseThread extends Thread
       if (dataset.dsorg == null)
       {
         dataset.dsorg = "PO";
-        String cmd = "update DATASETS set DSORG='PO' where NAME='" + dataset.name + "'";
         try
         {
-          Statement stmt = connection.createStatement ();
-          stmt.executeUpdate (cmd);
-          stmt.close ();
+          PreparedStatement ps = prepare (UPDATE_PO_DATASET);
+          ps.setString (1, dataset.name);
+          ps.executeUpdate ();
+          cache.putDataset (dataset);
         }
         catch (SQLException e)
         {
@@ -666,13 +868,12 @@ public class DatabaseThread extends Thread
     {
       Dataset dataset = new Dataset (request.datasetName);
       dataset.dsorg = "PO";
-      String cmd =
-          "insert into DATASETS (NAME,DSORG) values ('" + dataset.name + "', 'PO')";
       try
       {
-        Statement stmt = connection.createStatement ();
-        stmt.executeUpdate (cmd);
-        stmt.close ();
+        PreparedStatement ps = prepare (INSERT_PO_DATASET);
+        ps.setString (1, dataset.name);
+        ps.executeUpdate ();
+        cache.putDataset (dataset);
       }
       catch (SQLException e)
       {
@@ -683,11 +884,10 @@ public class DatabaseThread extends Thread
     Member member = request.member;
     try
     {
-      PreparedStatement ps2 = connection.prepareStatement (INSERT_MEMBER);
-
-      setMemberStatement (ps2, member);
-      ps2.executeUpdate ();
-      ps2.close ();
+      PreparedStatement ps = prepare (INSERT_MEMBER);
+      setMemberStatement (ps, member);
+      ps.executeUpdate ();
+      cache.putMember (copy (member));
 
       return true;
     }
@@ -697,6 +897,331 @@ public class DatabaseThread extends Thread
     }
   }
 
+  // ---------------------------------------------------------------------------------//
+  // Prepared statements
+  // ---------------------------------------------------------------------------------//
+
+  private PreparedStatement prepare (String sql) throws SQLException
+  {
+    PreparedStatement ps = statements.get (sql);
+    if (ps == null)
+    {
+      ps = connection.prepareStatement (sql);
+      statements.put (sql, ps);
+    }
+    return ps;
+  }
+
+  // a failed flush may have left its batch behind
+  private PreparedStatement prepareBatch (String sql) throws SQLException
+  {
+    PreparedStatement ps = prepare (sql);
+    ps.clearBatch ();
+    return ps;
+  }
+
+  private void closeStatements ()
+  {
+    for (PreparedStatement ps : statements.values ())
+      try
+      {
+        ps.close ();
+      }
+      catch (SQLException e)
+      {
+        e.printStackTrace ();
+      }
+    statements.clear ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Write-behind
+  // ---------------------------------------------------------------------------------//
+
+  // returns false if the request must be processed now
+  private boolean addPending (DatabaseRequest request)
+  {
+    if (request.command != Command.UPDATE)
+      return false;
+
+    if (request instanceof DatasetRequest)
+    {
+      addPending (((DatasetRequest) request).dataset, request);
+      return true;
+    }
+
+    if (request instanceof MemberRequest)
+    {
+      addPending (((MemberRequest) request).member, request);
+      return true;
+    }
+
+    return false;
+  }
+
+  // the request is null when nobody is waiting for this row
+  private void addPending (Dataset dataset, DatabaseRequest request)
+  {
+    if (getPendingCount () == 0)
+      firstPendingTime = System.nanoTime ();
+
+    Pending<Dataset> pending = pendingDatasets.get (dataset.getName ());
+    if (pending == null)
+    {
+      pending = new Pending<> (new Dataset (dataset.getName ()));
+      pendingDatasets.put (dataset.getName (), pending);
+    }
+    pending.value.merge (dataset);
+    if (request != null)
+      pending.requests.add (request);
+  }
+
+  private void addPending (Member member, DatabaseRequest request)
+  {
+    if (getPendingCount () == 0)
+      firstPendingTime = System.nanoTime ();
+
+    String key = member.dataset.getName () + "(" + member.getName () + ")";
+    Pending<Member> pending = pendingMembers.get (key);
+    if (pending == null)
+    {
+      pending = new Pending<> (new Member (member.dataset, member.getName ()));
+      pendingMembers.put (key, pending);
+    }
+    pending.value.merge (member);
+    if (request != null)
+      pending.requests.add (request);
+  }
+
+  // Everything in the listing joins the pending updates, and is written with them in
+  // one transaction however many rows there are.
+  private boolean importCatalog (ImportRequest request)
+  {
+    for (Dataset dataset : request.datasets)
+      addPending (dataset, null);
+    for (Member member : request.members)
+      addPending (member, null);
+
+    return flush ();
+  }
+
+  private int getPendingCount ()
+  {
+    return pendingDatasets.size () + pendingMembers.size ();
+  }
+
+  // Write all the pending updates in one transaction, then report every request that
+  // was merged into them. Returns false if the transaction was rolled back.
+  private boolean flush ()
+  {
+    if (getPendingCount () == 0)
+      return true;
+
+    Map<String, Dataset> datasets = null;
+    try
+    {
+      connection.setAutoCommit (false);
+      datasets = writePending ();
+      connection.commit ();
+    }
+    catch (SQLException e)
+    {
+      System.err.println (e.getClass ().getName () + ": " + e.getMessage ());
+      datasets = null;
+      try
+      {
+        connection.rollback ();
+      }
+      catch (SQLException e1)
+      {
+        e1.printStackTrace ();
+      }
+    }
+    finally
+    {
+      try
+      {
+        connection.setAutoCommit (true);
+      }
+      catch (SQLException e)
+      {
+        e.printStackTrace ();
+      }
+    }
+
+    boolean success = datasets != null;
+    if (success)
+      updateCache (datasets);
+
+    for (Pending<Dataset> pending : pendingDatasets.values ())
+      for (DatabaseRequest request : pending.requests)
+      {
+        ((DatasetRequest) request).dataset = pending.value;
+        report (request, pending, success);
+      }
+
+    for (Pending<Member> pending : pendingMembers.values ())
+      for (DatabaseRequest request : pending.requests)
+      {
+        ((MemberRequest) request).member = pending.value;
+        report (request, pending, success);
+      }
+
+    pendingDatasets.clear ();
+    pendingMembers.clear ();
+
+    return success;
+  }
+
+  private void report (DatabaseRequest request, Pending<?> pending, boolean success)
+  {
+    request.result = success ? Result.SUCCESS : Result.FAILURE;
+    request.databaseUpdated = success && pending.updated;
+    request.initiator.processResult (request);
+  }
+
+  // Each pending update becomes an insert, an update, or nothing if the row already
+  // holds the same values. Members are written after their datasets, and a member of
+  // a dataset that isn't there yet creates it as a PO dataset. Returns every dataset
+  // as it will be once the transaction is committed.
+  private Map<String, Dataset> writePending () throws SQLException
+  {
+    PreparedStatement selectDataset = prepare (SELECT_DATASET);
+    PreparedStatement selectMember = prepare (SELECT_MEMBER);
+    PreparedStatement insertDataset = prepareBatch (INSERT_DATASET);
+    PreparedStatement updateDataset = prepareBatch (UPDATE_DATASET);
+    PreparedStatement insertPO = prepareBatch (INSERT_PO_DATASET);
+    PreparedStatement updatePO = prepareBatch (UPDATE_PO_DATASET);
+    PreparedStatement insertMember = prepareBatch (INSERT_MEMBER);
+    PreparedStatement updateMember = prepareBatch (UPDATE_MEMBER);
+
+    Map<String, Dataset> datasets = new HashMap<> ();   // as they will be after commit
+
+    for (Pending<Dataset> pending : pendingDatasets.values ())
+    {
+      Dataset dataset = pending.value;
+      Optional<Dataset> optDataset = lookupDataset (selectDataset, dataset.getName ());
+      if (optDataset.isPresent ())
+      {
+        Dataset currentDataset = optDataset.get ();
+        if (currentDataset.differsFrom (dataset))
+        {
+          currentDataset.merge (dataset);
+          System.out.println ("Dataset modified:");
+          System.out.println (currentDataset);
+          setDatasetStatement (updateDataset, currentDataset);
+          updateDataset.addBatch ();
+          pending.updated = true;
+        }
+        pending.value = currentDataset;
+      }
+      else
+      {
+        setDatasetStatement (insertDataset, dataset);
+        insertDataset.addBatch ();
+      }
+      datasets.put (dataset.getName (), pending.value);
+    }
+
+    for (Pending<Member> pending : pendingMembers.values ())
+    {
+      Member member = pending.value;
+      String datasetName = member.dataset.getName ();
+
+      Optional<Member> optMember =
+          lookupMember (selectMember, member.dataset, member.getName ());
+      if (optMember.isPresent ())
+      {
+        Member currentMember = optMember.get ();
+        if (currentMember.differsFrom (member))
+        {
+          currentMember.merge (member);
+          System.out.printf ("Member modified: %s(%s)%n", datasetName, member.name);
+          System.out.println (currentMember);
+          setMemberStatement (updateMember, currentMember);
+          updateMember.addBatch ();
+          pending.updated = true;
+        }
+        pending.value = currentMember;
+        continue;
+      }
+
+      Dataset dataset = datasets.get (datasetName);
+      if (dataset == null)
+        dataset = lookupDataset (selectDataset, datasetName).orElse (null);
+
+      if (dataset == null)
+      {
+        dataset = new Dataset (datasetName);
+        dataset.dsorg = "PO";
+        insertPO.setString (1, datasetName);
+        insertPO.addBatch ();
+      }
+      else if (dataset.dsorg == null)
+      {
+        dataset.dsorg = "PO";
+        updatePO.setString (1, datasetName);
+        updatePO.addBatch ();
+      }
+      datasets.put (datasetName, dataset);
+
+      setMemberStatement (insertMember, member);
+      insertMember.addBatch ();
+    }
+
+    insertDataset.executeBatch ();
+    updateDataset.executeBatch ();
+    insertPO.executeBatch ();
+    updatePO.executeBatch ();
+    insertMember.executeBatch ();
+    updateMember.executeBatch ();
+
+    return datasets;
+  }
+
+  private Optional<Dataset> selectDataset (PreparedStatement ps, String datasetName)
+      throws SQLException
+  {
+    ps.setString (1, datasetName);
+    try (ResultSet rs = ps.executeQuery ())
+    {
+      return rs.next () ? Optional.of (createDataset (rs)) : Optional.empty ();
+    }
+  }
+
+  private Optional<Member> selectMember (PreparedStatement ps, Dataset dataset,
+      String memberName) throws SQLException
+  {
+    ps.setString (1, dataset.getName ());
+    ps.setString (2, memberName);
+    try (ResultSet rs = ps.executeQuery ())
+    {
+      return rs.next () ? Optional.of (createMember (rs, dataset)) : Optional.empty ();
+    }
+  }
+
+  // only called once the transaction has been committed
+  private void updateCache (Map<String, Dataset> datasets)
+  {
+    for (Dataset dataset : datasets.values ())
+      cache.putDataset (copy (dataset));
+
+    for (Pending<Member> pending : pendingMembers.values ())
+      cache.putMember (copy (pending.value));
+  }
+
+  private static class Pending<T>
+  {
+    T value;                                  // all the requests merged together
+    final List<DatabaseRequest> requests = new ArrayList<> ();
+    boolean updated;                          // an existing row was changed
+
+    Pending (T value)
+    {
+      this.value = value;
+    }
+  }
+
   private void setDatasetStatement (PreparedStatement ps, Dataset dataset)
       throws SQLException
   {
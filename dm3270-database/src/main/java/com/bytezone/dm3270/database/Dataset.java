@@ -271,6 +271,77 @@ public class Dataset
     return dsorg != null && dsorg.equals ("PO");
   }
 
+  public String getVolume ()
+  {
+    return volume;
+  }
+
+  public String getDevice ()
+  {
+    return device;
+  }
+
+  public String getCatalog ()
+  {
+    return catalog;
+  }
+
+  public int getTracks ()
+  {
+    return tracks;
+  }
+
+  public int getCylinders ()
+  {
+    return cylinders;
+  }
+
+  public int getExtents ()
+  {
+    return extents;
+  }
+
+  public int getPercentUsed ()
+  {
+    return percent;
+  }
+
+  public String getDsorg ()
+  {
+    return dsorg;
+  }
+
+  public String getRecfm ()
+  {
+    return recfm;
+  }
+
+  public int getLrecl ()
+  {
+    return lrecl;
+  }
+
+  public int getBlksize ()
+  {
+    return blksize;
+  }
+
+  // dates are yyyy/MM/dd, or empty
+  public String getCreated ()
+  {
+    return created == null ? "" : fmt1.format (created);
+  }
+
+  public String getExpires ()
+  {
+    return expires == null ? "" : fmt1.format (expires);
+  }
+
+  public String getReferred ()
+  {
+    return referred == null ? "" : fmt1.format (referred);
+  }
+
   @Override
   public String toString ()
   {
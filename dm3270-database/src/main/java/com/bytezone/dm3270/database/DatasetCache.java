@@ -0,0 +1,139 @@
+package com.bytezone.dm3270.database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// The datasets and members most recently read from or written to the database, so
+// that rescanning the same DSLIST and member list screens doesn't go back to SQLite.
+// Datasets are kept in LRU order, and a dataset's members go when it is evicted. An
+// entry may hold members without its dataset, if the dataset row hasn't been read.
+// The capacity counts both datasets and members, so a large PDS pushes out several
+// smaller ones - and a PDS with more members than the whole cache isn't kept at all.
+//
+// DatabaseThread only puts what is in the database, and gives callers copies of what
+// it finds here. Only used on the database thread, but the counters may be read from
+// anywhere.
+
+class DatasetCache
+{
+  static final int DEFAULT_CAPACITY = 10_000;          // datasets and members
+
+  private final Map<String, CacheEntry> entries =
+      new LinkedHashMap<String, CacheEntry> (16, 0.75f, true);
+  private final int capacity;
+  private int size;                                    // rows in all the entries
+
+  private volatile long hits;
+  private volatile long misses;
+  private volatile long evictions;
+
+  DatasetCache (int capacity)
+  {
+    this.capacity = capacity;
+  }
+
+  Optional<Dataset> getDataset (String datasetName)
+  {
+    CacheEntry cacheEntry = entries.get (datasetName);
+    if (cacheEntry == null || cacheEntry.dataset == null)
+    {
+      ++misses;
+      return Optional.empty ();
+    }
+    ++hits;
+    return Optional.of (cacheEntry.dataset);
+  }
+
+  Optional<Member> getMember (String datasetName, String memberName)
+  {
+    CacheEntry cacheEntry = entries.get (datasetName);
+    Member member = cacheEntry == null || cacheEntry.members == null ? null
+        : cacheEntry.members.get (memberName);
+    if (member == null)
+    {
+      ++misses;
+      return Optional.empty ();
+    }
+    ++hits;
+    return Optional.of (member);
+  }
+
+  void putDataset (Dataset dataset)
+  {
+    CacheEntry cacheEntry = getEntry (dataset.getName ());
+    size -= cacheEntry.size ();
+    cacheEntry.replace (dataset);
+    size += cacheEntry.size ();
+    evict ();
+  }
+
+  void putMember (Member member)
+  {
+    CacheEntry cacheEntry = getEntry (member.dataset.getName ());
+    size -= cacheEntry.size ();
+    cacheEntry.putMember (member);
+    size += cacheEntry.size ();
+    evict ();
+  }
+
+  private CacheEntry getEntry (String datasetName)
+  {
+    CacheEntry cacheEntry = entries.get (datasetName);
+    if (cacheEntry == null)
+    {
+      cacheEntry = new CacheEntry (null);
+      entries.put (datasetName, cacheEntry);
+    }
+    return cacheEntry;
+  }
+
+  // drop the least recently used entries until everything fits
+  private void evict ()
+  {
+    Iterator<CacheEntry> iterator = entries.values ().iterator ();
+    while (size > capacity && iterator.hasNext ())
+    {
+      size -= iterator.next ().size ();
+      iterator.remove ();
+      ++evictions;
+    }
+  }
+
+  void removeDataset (String datasetName)
+  {
+    CacheEntry cacheEntry = entries.remove (datasetName);
+    if (cacheEntry != null)
+      size -= cacheEntry.size ();
+  }
+
+  void removeMember (String datasetName, String memberName)
+  {
+    CacheEntry cacheEntry = entries.get (datasetName);
+    if (cacheEntry != null && cacheEntry.members != null
+        && cacheEntry.members.remove (memberName) != null)
+      --size;
+  }
+
+  void clear ()
+  {
+    entries.clear ();
+    size = 0;
+  }
+
+  long getHits ()
+  {
+    return hits;
+  }
+
+  long getMisses ()
+  {
+    return misses;
+  }
+
+  long getEvictions ()
+  {
+    return evictions;
+  }
+}
@@ -0,0 +1,33 @@
+package com.bytezone.dm3270.database;
+
+import java.util.List;
+
+// The datasets and members from a catalog listing (see CatalogReader). They are
+// merged with what is already in the database, and written in a single transaction.
+
+public class ImportRequest extends DatabaseRequest
+{
+  public final List<Dataset> datasets;
+  public final List<Member> members;
+
+  public ImportRequest (Initiator initiator, List<Dataset> datasets,
+      List<Member> members)
+  {
+    super (initiator, Command.IMPORT);
+
+    this.datasets = datasets;
+    this.members = members;
+  }
+
+  @Override
+  public String toString ()
+  {
+    StringBuilder text = new StringBuilder ();
+
+    text.append (super.toString ());
+    text.append (String.format ("Datasets ...... %,d%n", datasets.size ()));
+    text.append (String.format ("Members ....... %,d%n", members.size ()));
+
+    return text.toString ();
+  }
+}
@@ -195,6 +195,21 @@ public class Member
     return name;
   }
 
+  public Dataset getDataset ()
+  {
+    return dataset;
+  }
+
+  public String getID ()
+  {
+    return id;
+  }
+
+  public int getSize ()
+  {
+    return size;
+  }
+
   @Override
   public String toString ()
   {
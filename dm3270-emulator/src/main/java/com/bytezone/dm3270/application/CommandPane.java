@@ -7,6 +7,7 @@ import com.bytezone.dm3270.buffers.ReplyBuffer;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.extended.AbstractExtendedCommand;
 import com.bytezone.dm3270.extended.CommandHeader;
+import com.bytezone.dm3270.session.ReplayIndex;
 import com.bytezone.dm3270.session.SessionRecord;
 import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
 import com.bytezone.dm3270.session.SessionTable;
@@ -32,6 +33,7 @@ class CommandPane extends TabPane
 
   private final ProcessInstruction processInstruction;
   private Screen screen;
+  private ReplayIndex replayIndex;
 
   enum ProcessInstruction
   {
@@ -64,6 +66,12 @@ class CommandPane extends TabPane
     this.screen = screen;
   }
 
+  // records are replayed from the nearest checkpoint, instead of on their own
+  public void setReplayIndex (ReplayIndex replayIndex)
+  {
+    this.replayIndex = replayIndex;
+  }
+
   protected void replay (SessionRecord sessionRecord)
   {
     if (sessionRecord == null)            // nothing selected
@@ -80,10 +88,17 @@ class CommandPane extends TabPane
             ((AbstractExtendedCommand) sessionRecord.getMessage ()).getCommandHeader ();
     }
 
-    ReplyBuffer message = sessionRecord.getMessage ();
+    ReplyBuffer message;
 
-    if (processInstruction == ProcessInstruction.DoProcess)
+    if (processInstruction == ProcessInstruction.DontProcess)
+      message = sessionRecord.getMessage ();
+    else if (replayIndex != null)
+      message = replayIndex.replay (sessionRecord);
+    else
+    {
+      message = sessionRecord.getMessage ();
       message.process (screen);       // only process the message when in Replay mode
+    }
 
     commandTextArea.setText ("");
 
@@ -13,6 +13,7 @@ import com.bytezone.dm3270.plugins.PluginsStage;
 import com.bytezone.dm3270.session.Session;
 import com.bytezone.dm3270.streams.TelnetState;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import com.bytezone.dm3270.utilities.Site;
 import com.bytezone.dm3270.utilities.WindowSaver;
 
@@ -26,7 +27,8 @@ public class Console extends Application
 {
   private static final int MAINFRAME_EMULATOR_PORT = 5555;
   private static final Site DEFAULT_MAINFRAME =
-      new Site ("mainframe", "localhost", MAINFRAME_EMULATOR_PORT, true, 2, false, "");
+      new Site ("mainframe", "localhost", MAINFRAME_EMULATOR_PORT, true, 2,
+          EbcdicCodec.DEFAULT_CODE_PAGE, false, "");
 
   private Stage primaryStage;
   private Rectangle2D primaryScreenBounds;
@@ -119,6 +121,7 @@ public class Console extends Application
             if (serverSite.isPresent ())
             {
               Site site = serverSite.get ();
+              setCodePage (site);
               setConsolePane (createScreen (Function.REPLAY, site), site);
             }
             else
@@ -144,6 +147,7 @@ public class Console extends Application
         {
           Site serverSite = optionalServerSite.get ();
           setModel (serverSite);
+          setCodePage (serverSite);
           setConsolePane (createScreen (Function.TERMINAL, serverSite), serverSite);
           consolePane.connect ();
         }
@@ -161,6 +165,7 @@ public class Console extends Application
         {
           Site serverSite = optionalServerSite.get ();
           Site clientSite = optionalClientSite.get ();
+          setCodePage (serverSite);
           setSpyPane (createScreen (Function.SPY, null), serverSite, clientSite);
         }
 
@@ -172,6 +177,7 @@ public class Console extends Application
         else
         {
           Site clientSite = optionalClientSite.get ();
+          setCodePage (DEFAULT_MAINFRAME);
           setSpyPane (createScreen (Function.TEST, null), DEFAULT_MAINFRAME, clientSite);
           mainframeStage = new MainframeStage (telnetState, MAINFRAME_EMULATOR_PORT);
           mainframeStage.show ();
@@ -211,6 +217,12 @@ public class Console extends Application
     }
   }
 
+  // everything in this session that translates EBCDIC uses the server's code page
+  private void setCodePage (Site serverSite)
+  {
+    telnetState.setCodec (EbcdicCodec.forCodePage (serverSite.getCodePage ()));
+  }
+
   //  private Optional<Site> findSite (String serverName)
   //  {
   //    Optional<Site> optionalServerSite =
@@ -243,7 +255,7 @@ public class Console extends Application
     }
 
     scene.setOnKeyPressed (new ConsoleKeyPress (consolePane, screen));
-    scene.setOnKeyTyped (new ConsoleKeyEvent (screen));
+    scene.setOnKeyTyped (new ConsoleKeyEvent (consolePane, screen));
 
     primaryStage.sizeToScene ();
     primaryStage.show ();
@@ -251,7 +263,10 @@ public class Console extends Application
 
   private void setSpyPane (Screen screen, Site server, Site client)
   {
-    spyPane = new SpyPane (screen, server, client, telnetState);
+    Path captureFolder = optionStage.spyFolder.isEmpty ()
+        ? Paths.get (System.getProperty ("java.io.tmpdir"), "dm3270")
+        : Paths.get (optionStage.spyFolder);
+    spyPane = new SpyPane (screen, server, client, telnetState, captureFolder);
 
     primaryStage.setScene (new Scene (spyPane));
     primaryStage.setTitle ("Terminal Spy");
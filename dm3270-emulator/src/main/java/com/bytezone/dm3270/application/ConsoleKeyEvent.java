@@ -2,18 +2,19 @@ package com.bytezone.dm3270.application;
 
 import com.bytezone.dm3270.display.Cursor;
 import com.bytezone.dm3270.display.Screen;
-import com.bytezone.dm3270.utilities.Dm3270Utility;
 
 import javafx.event.EventHandler;
 import javafx.scene.input.KeyEvent;
 
 public class ConsoleKeyEvent implements EventHandler<KeyEvent>
 {
+  private final ConsolePane consolePane;
   private final Screen screen;
   private final Cursor cursor;
 
-  public ConsoleKeyEvent (Screen screen)
+  public ConsoleKeyEvent (ConsolePane consolePane, Screen screen)
   {
+    this.consolePane = consolePane;
     this.screen = screen;
     this.cursor = screen.getScreenCursor ();
   }
@@ -28,6 +29,10 @@ public class ConsoleKeyEvent implements EventHandler<KeyEvent>
       return;
     char ch = c.charAt (0);
 
+    if (ch >= 32 && ch < 0x7F && !e.isMetaDown () && !e.isControlDown ()
+        && !e.isAltDown () && consolePane.addTypeahead (this, e))
+      return;
+
     if (screen.isKeyboardLocked () || e.isMetaDown () || e.isControlDown ()
         || e.isAltDown ())
     {
@@ -51,7 +56,7 @@ public class ConsoleKeyEvent implements EventHandler<KeyEvent>
 
     if (ch >= 32 && ch < 0x7F)
     {
-      cursor.typeChar ((byte) Dm3270Utility.asc2ebc[ch]);
+      cursor.typeChar (screen.getCodec ().toByte (ch));
       e.consume ();
     }
   }
@@ -34,6 +34,9 @@ class ConsoleKeyPress implements EventHandler<KeyEvent>
 
     KeyCode keyCodePressed = keyEvent.getCode ();
 
+    if (isTypeaheadKey (keyEvent) && consolePane.addTypeahead (this, keyEvent))
+      return;
+
     if (screen.isKeyboardLocked ())           // could be in screen history mode
     {
       if (keyCodePressed == KeyCode.LEFT)
@@ -211,4 +214,29 @@ class ConsoleKeyPress implements EventHandler<KeyEvent>
           break;
       }
   }
+
+  // the keys that act on the screen, which are kept while the keyboard is locked
+  private static boolean isTypeaheadKey (KeyEvent keyEvent)
+  {
+    KeyCode keyCode = keyEvent.getCode ();
+
+    if (keyEvent.isMetaDown () || keyEvent.isControlDown ())
+      if (keyCode == KeyCode.H || keyCode == KeyCode.I)
+        return true;
+
+    switch (keyCode)
+    {
+      case ENTER:
+      case TAB:
+      case BACK_SPACE:
+      case DELETE:
+      case INSERT:
+      case ESCAPE:
+        return true;
+
+      default:
+        return keyCode.isArrowKey () || keyCode.isNavigationKey ()
+            || keyCode.isFunctionKey ();
+    }
+  }
 }
\ No newline at end of file
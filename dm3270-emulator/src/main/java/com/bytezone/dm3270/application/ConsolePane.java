@@ -3,6 +3,7 @@ package com.bytezone.dm3270.application;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import com.bytezone.dm3270.application.Parameters.SiteParameters;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
@@ -27,6 +28,7 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.text.Font;
@@ -38,6 +40,7 @@ public class ConsolePane extends BorderPane
   private final static int GAP = 12;
   private final static String OS = System.getProperty ("os.name");
   private final static boolean SYSTEM_MENUBAR = OS != null && OS.startsWith ("Mac");
+  private final static int REPORT_MINUTES = 15;     // response times to the console
   private final Parameters parameters = new Parameters ();
 
   private final Screen screen;
@@ -56,6 +59,7 @@ public class ConsolePane extends BorderPane
   private Thread terminalServerThread;
 
   private HistoryManager screenHistory;             // null unless showing screen history 
+  private Typeahead typeahead = new Typeahead (Typeahead.DEFAULT_DEPTH);
 
   private HBox historyBox;                          // status display area
   private final Label historyLabel = new Label ();  // status text
@@ -80,7 +84,7 @@ public class ConsolePane extends BorderPane
     screen.getScreenCursor ().addFieldChangeListener (this);
     screen.getScreenCursor ().addCursorMoveListener (this);
 
-    setMargin (screen, new Insets (MARGIN, MARGIN, 0, MARGIN));
+    setMargin (screen.getCanvas (), new Insets (MARGIN, MARGIN, 0, MARGIN));
 
     menuBar.getMenus ().addAll (getCommandsMenu (), fontManager.getFontMenu ());
 
@@ -89,7 +93,7 @@ public class ConsolePane extends BorderPane
       menuBar.getMenus ().add (pluginsStage.getMenu (server));
 
     setTop (menuBar);
-    setCenter (screen);
+    setCenter (screen.getCanvas ());
     setBottom (statusPane = getStatusBar ());
     menuBar.setUseSystemMenuBar (SYSTEM_MENUBAR);
 
@@ -116,10 +120,21 @@ public class ConsolePane extends BorderPane
           System.out.println ("Site        : " + now);
           System.out.println ();
         }
+
+        String depth = sp.get ().getParameter ("typeahead");
+        if (!depth.isEmpty ())
+          try
+          {
+            typeahead = new Typeahead (Math.max (0, Integer.parseInt (depth)));
+          }
+          catch (NumberFormatException e)
+          {
+            System.out.println ("Invalid typeahead value: " + depth);
+          }
       }
     }
 
-    screen.requestFocus ();
+    screen.getCanvas ().requestFocus ();
   }
 
   public void setStatusText (String text)
@@ -246,10 +261,12 @@ public class ConsolePane extends BorderPane
     else                                        // in screen history mode
     {
       screenHistory = null;
-      setCenter (screen);
+      setCenter (screen.getCanvas ());
       setBottom (statusPane);
       screen.resume ();
       setStyle (null);
+      if (!isKeyboardLocked ())
+        typeahead.replay (this);
     }
   }
 
@@ -276,6 +293,28 @@ public class ConsolePane extends BorderPane
                                          screenHistory.size ()));
   }
 
+  // Returns true if the key has been taken by the typeahead buffer (or lost because
+  // the buffer is full), or false if the handler should act on it now.
+  // called from ConsoleKeyPress.handle()
+  // called from ConsoleKeyEvent.handle()
+  boolean addTypeahead (EventHandler<KeyEvent> handler, KeyEvent keyEvent)
+  {
+    if (terminalServer == null || screenHistory != null
+        || !typeahead.isWaiting (screen.isKeyboardLocked ()))
+      return false;
+
+    if (!typeahead.add (handler, keyEvent))
+      screen.soundAlarm ();
+    keyEvent.consume ();
+    return true;
+  }
+
+  // called from Typeahead.replay()
+  boolean isKeyboardLocked ()
+  {
+    return screen.isKeyboardLocked () || screenHistory != null;
+  }
+
   // called from ConsoleKeyPress.handle (KeyEvent e)
   // called from TSOCommand.execute()
   public void sendAID (byte aid, String name)
@@ -295,6 +334,8 @@ public class ConsolePane extends BorderPane
   {
     assert telnetState != null;
 
+    telnetState.getResponseTimes ().aidSent (command.getKeyName ());
+
     if (telnetState.does3270Extended ())
     {
       byte[] buffer = new byte[5];
@@ -322,6 +363,8 @@ public class ConsolePane extends BorderPane
     terminalServer =
         new TerminalServer (server.getURL (), server.getPort (), telnetListener);
     telnetState.setTerminalServer (terminalServer);
+    telnetState.getResponseTimes ().register (server.getName (), REPORT_MINUTES,
+                                              TimeUnit.MINUTES);
 
     terminalServerThread = new Thread (terminalServer);
     terminalServerThread.start ();
@@ -333,6 +376,8 @@ public class ConsolePane extends BorderPane
       terminalServer.close ();
 
     telnetState.close ();
+    telnetState.getResponseTimes ().unregister ();
+    typeahead.clear ();
 
     if (terminalServerThread != null)
     {
@@ -380,5 +425,9 @@ public class ConsolePane extends BorderPane
   {
     setStatusText (evt.keyboardLocked ? evt.keyName : "       ");
     insertMode.setText (evt.insertMode ? "Insert" : "      ");
+
+    // replay after the Write that unlocked the keyboard has finished
+    if (!evt.keyboardLocked && typeahead.size () > 0)
+      Platform.runLater (() -> typeahead.replay (this));
   }
 }
\ No newline at end of file
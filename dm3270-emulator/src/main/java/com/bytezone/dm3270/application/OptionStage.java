@@ -231,7 +231,7 @@ public class OptionStage extends Stage
       if (Files.exists (path) && Files.isDirectory (path))
         files = Files.list (path)
             .filter (p -> p.getFileName ().toString ()
-                .matches ("[sS][Pp][yY][0-9]{1,4}(\\.[tT][xX][tT])*"))
+                .matches ("[sS][Pp][yY][0-9]{1,4}(\\.([tT][xX][tT]|[cC][aA][pP]))*"))
             .collect (Collectors.toList ());
     }
     catch (IOException e)
@@ -4,6 +4,7 @@ import java.nio.file.Path;
 import java.util.prefs.Preferences;
 
 import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.session.ReplayIndex;
 import com.bytezone.dm3270.session.Session;
 import com.bytezone.dm3270.session.SessionRecord;
 import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
@@ -56,6 +57,7 @@ class ReplayStage extends Stage
 
     //    commandPane.setScreen (session.getScreen ());
     commandPane.setScreen (screen);
+    commandPane.setReplayIndex (new ReplayIndex (session.getDataRecords (), screen));
 
     setTitle ("Replay Commands - " + path.getFileName ());
 
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.prefs.Preferences;
 
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import com.bytezone.dm3270.utilities.PreferencesStage;
 import com.bytezone.dm3270.utilities.Site;
 
@@ -40,6 +41,7 @@ public class SiteListStage extends PreferencesStage
     fields.add (new PreferenceField ("Port", 50, Type.NUMBER));
     fields.add (new PreferenceField ("Ext", 50, Type.BOOLEAN));
     fields.add (new PreferenceField ("Model", 40, Type.NUMBER));
+    fields.add (new PreferenceField ("Code page", 60, Type.NUMBER));
     fields.add (new PreferenceField ("Plugins", 50, Type.BOOLEAN));
     fields.add (new PreferenceField ("Save folder", 80, Type.TEXT));
 
@@ -106,6 +108,8 @@ public class SiteListStage extends PreferencesStage
       int port = prefs.getInt (keyName + "Port", 23);
       boolean extended = prefs.getBoolean (keyName + "Extended", true);
       int model = prefs.getInt (keyName + "Model", 2);
+      int codePage =
+          prefs.getInt (keyName + "CodePage", EbcdicCodec.DEFAULT_CODE_PAGE);
       boolean plugins = prefs.getBoolean (keyName + "Plugins", false);
       String folder = prefs.get (keyName + "Folder", "");
 
@@ -113,13 +117,16 @@ public class SiteListStage extends PreferencesStage
         port = 23;
       if (model < 2 || model > 5)
         model = 2;
+      if (!EbcdicCodec.isSupported (codePage))
+        codePage = EbcdicCodec.DEFAULT_CODE_PAGE;
 
       Site site = null;
       if (name.isEmpty () || url.isEmpty ())
-        site = new Site ("", "", 23, false, 2, false, "");
+        site = new Site ("", "", 23, false, 2, EbcdicCodec.DEFAULT_CODE_PAGE, false, "");
       else
       {
-        site = new Site (name, url, port, extended, model, plugins, folder);
+        site =
+            new Site (name, url, port, extended, model, codePage, plugins, folder);
         siteNames.add (name);
       }
       sites.add (site);
@@ -147,6 +154,7 @@ public class SiteListStage extends PreferencesStage
       prefs.put (keyName + "Port", site.port.getText ());
       prefs.putBoolean (keyName + "Extended", extended);
       prefs.put (keyName + "Model", site.model.getText ());
+      prefs.put (keyName + "CodePage", site.codePage.getText ());
       prefs.putBoolean (keyName + "Plugins", plugins);
       prefs.put (keyName + "Folder", folder);
 
@@ -1,16 +1,23 @@
 package com.bytezone.dm3270.application;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.session.CaptureWriter;
 import com.bytezone.dm3270.session.Session;
 import com.bytezone.dm3270.session.SessionTable;
+import com.bytezone.dm3270.streams.SpyRecorder;
 import com.bytezone.dm3270.streams.SpyServer;
 import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
 import com.bytezone.dm3270.utilities.Site;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.SplitPane;
@@ -28,15 +35,19 @@ public class SpyPane extends BorderPane
   private Thread serverThread;
   private final TelnetState telnetState;
 
+  // the session is recorded in captureFolder as it happens, the table only shows
+  // the most recent records
   public SpyPane (Screen screen, Site serverSite, Site clientSite,
-      TelnetState telnetState)
+      TelnetState telnetState, Path captureFolder)
   {
     this.telnetState = telnetState;
 
     SessionTable sessionTable = new SessionTable ();
     Session session = new Session (telnetState);
+    SpyRecorder spyRecorder = new SpyRecorder (captureFolder);
 
-    spyServer = new SpyServer (serverSite, clientSite.getPort (), session, telnetState);
+    spyServer = new SpyServer (serverSite, clientSite.getPort (), session, telnetState,
+        spyRecorder);
     spyServer.setScreen (screen);
 
     final Label label = session.getHeaderLabel ();
@@ -48,6 +59,10 @@ public class SpyPane extends BorderPane
 
     Button btnSave = new Button ("Full Save");
     Button btnScramble = new Button ("Redacted");
+    Label droppedLabel = new Label ();
+
+    spyRecorder.setDropListener (total -> Platform
+        .runLater ( () -> droppedLabel.setText (String.format ("Dropped: %,d", total))));
 
     btnSave.setPrefWidth (BUTTON_WIDTH);
     btnScramble.setPrefWidth (BUTTON_WIDTH);
@@ -55,7 +70,8 @@ public class SpyPane extends BorderPane
     final HBox hbox = new HBox ();
     hbox.setSpacing (15);
     hbox.setPadding (new Insets (10, 10, 10, 10));          // trbl
-    hbox.getChildren ().addAll (btnSave, btnScramble);
+    hbox.setAlignment (Pos.CENTER_LEFT);
+    hbox.getChildren ().addAll (btnSave, btnScramble, droppedLabel);
 
     SplitPane splitPane = new SplitPane ();
     splitPane.setOrientation (Orientation.HORIZONTAL);
@@ -80,7 +96,7 @@ public class SpyPane extends BorderPane
       fileChooser.setTitle ("Save Session");
       File file = fileChooser.showSaveDialog (this.getScene ().getWindow ());
       if (file != null)
-        session.save (file);
+        save (spyRecorder, file.toPath (), false);
     });
 
     btnScramble.setOnAction ( (e) ->
@@ -91,11 +107,47 @@ public class SpyPane extends BorderPane
       if (file != null)
       {
         btnSave.setDisable (true);      // no going back
-        session.safeSave (file);
+        save (spyRecorder, file.toPath (), true);
       }
     });
   }
 
+  // a redacted save needs the commands to be parsed, so the recording is first
+  // joined into a temporary capture and then saved as a replay session
+  private void save (SpyRecorder spyRecorder, Path path, boolean redact)
+  {
+    try
+    {
+      if (!redact)
+        spyRecorder.save (path);
+      else
+      {
+        Path temp = Files.createTempFile ("spy", CaptureWriter.BINARY_EXTENSION);
+        try
+        {
+          spyRecorder.save (temp);
+          new Session (new TelnetState (), temp).safeSave (path.toFile ());
+        }
+        finally
+        {
+          Files.deleteIfExists (temp);
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      e.printStackTrace ();
+      return;
+    }
+
+    // a full save keeps the labels that mark each gap, a redacted one doesn't
+    long dropped = spyRecorder.getDropped ();
+    if (dropped > 0)
+      Dm3270Utility.showAlert (String.format ("%,d buffers were dropped while "
+          + "recording, so the saved capture has gaps.%s", dropped,
+                                              redact ? "" : " Each one is labelled."));
+  }
+
   protected VBox getVBox ()
   {
     VBox vbox = new VBox ();
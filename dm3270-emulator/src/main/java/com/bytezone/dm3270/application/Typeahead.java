@@ -0,0 +1,84 @@
+package com.bytezone.dm3270.application;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javafx.event.EventHandler;
+import javafx.scene.input.KeyEvent;
+
+// Keystrokes made while the keyboard is locked waiting for the host. They are kept in
+// order, and when a Write restores the keyboard they are passed back to the handler
+// that saw them - until one of them sends an AID and locks the keyboard again. When
+// the buffer is full the key is lost, as on a real terminal. Everything happens on
+// the EDT.
+
+class Typeahead
+{
+  static final int DEFAULT_DEPTH = 32;
+
+  private final Deque<Keystroke> keystrokes = new ArrayDeque<> ();
+  private final int depth;                      // 0 = no typeahead
+  private boolean replaying;
+
+  Typeahead (int depth)
+  {
+    this.depth = depth;
+  }
+
+  // Keys typed while keys are still waiting must go after them, even if the keyboard
+  // has just been unlocked.
+  boolean isWaiting (boolean keyboardLocked)
+  {
+    return depth > 0 && !replaying && (keyboardLocked || !keystrokes.isEmpty ());
+  }
+
+  // returns false if the buffer is full
+  boolean add (EventHandler<KeyEvent> handler, KeyEvent keyEvent)
+  {
+    if (keystrokes.size () >= depth)
+      return false;
+
+    keystrokes.add (new Keystroke (handler, keyEvent));
+    return true;
+  }
+
+  // called from ConsolePane.keyboardStatusChanged() once the Write has finished
+  void replay (ConsolePane consolePane)
+  {
+    replaying = true;
+    try
+    {
+      while (!keystrokes.isEmpty () && !consolePane.isKeyboardLocked ())
+      {
+        Keystroke keystroke = keystrokes.remove ();
+        keystroke.handler.handle (keystroke.keyEvent);
+      }
+    }
+    finally
+    {
+      replaying = false;
+    }
+  }
+
+  void clear ()
+  {
+    keystrokes.clear ();
+  }
+
+  int size ()
+  {
+    return keystrokes.size ();
+  }
+
+  private static class Keystroke
+  {
+    final EventHandler<KeyEvent> handler;
+    final KeyEvent keyEvent;
+
+    Keystroke (EventHandler<KeyEvent> handler, KeyEvent keyEvent)
+    {
+      this.handler = handler;
+      this.keyEvent = keyEvent;
+    }
+  }
+}
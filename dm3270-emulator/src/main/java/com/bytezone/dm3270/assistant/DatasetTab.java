@@ -1,18 +1,34 @@
 package com.bytezone.dm3270.assistant;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.bytezone.dm3270.database.CatalogReader;
+import com.bytezone.dm3270.database.DatabaseRequest;
+import com.bytezone.dm3270.database.DatabaseRequest.Command;
+import com.bytezone.dm3270.database.DatabaseRequest.Result;
+import com.bytezone.dm3270.database.Dataset;
+import com.bytezone.dm3270.database.DatasetRequest;
+import com.bytezone.dm3270.database.ImportRequest;
+import com.bytezone.dm3270.database.Initiator;
+import com.bytezone.dm3270.database.Member;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenWatcher;
+import com.bytezone.reporter.application.FileNode;
+import com.bytezone.reporter.file.ReportData;
+import com.bytezone.reporter.file.ReportScore;
+import com.bytezone.reporter.record.Record;
+import com.bytezone.reporter.text.TextMaker;
 
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.scene.control.TreeItem;
 
-public class DatasetTab extends AbstractTransferTab
+public class DatasetTab extends AbstractTransferTab implements Initiator
 {
   private static final Pattern jclPattern = Pattern.compile (".*\\.(CNTL|JCL)[.(].*\\)");
   private static final Pattern procPattern =
@@ -41,6 +57,10 @@ public class DatasetTab extends AbstractTransferTab
       property.addListener ( (obs, oldSelection, newSelection) -> select (newSelection));
       setContent (datasetTreeTable);
     }
+
+    // start with every dataset that the site database knows about
+    screen.getFieldManager ()
+        .sendDatabaseRequest (new DatasetRequest (this, Command.LIST, "*"));
   }
 
   private void select (TableDataset dataset)
@@ -87,6 +107,103 @@ public class DatasetTab extends AbstractTransferTab
     super.screenChanged (screenDetails);
   }
 
+  // called from TransfersStage - the file must already be a downloaded listing
+  void importCatalog (FileNode fileNode)
+  {
+    ReportData reportData = fileNode.getReportData ();
+    if (!reportData.hasData ())
+      return;
+    if (!reportData.hasScores ())
+      reportData.createScores ();
+
+    // the file can be large, so only the records are collected on the FX thread
+    ReportScore score = reportData.getSelectedReportScore ();
+    List<Record> records = new ArrayList<> (score.recordMaker.getRecords ());
+    TextMaker textMaker = score.textMaker;
+    String fileName = fileNode.toString ();
+
+    Thread thread = new Thread ( () -> importCatalog (records, textMaker, fileName),
+        "CatalogImport");
+    thread.setDaemon (true);
+    thread.start ();
+  }
+
+  private void importCatalog (List<Record> records, TextMaker textMaker, String fileName)
+  {
+    CatalogReader catalogReader = new CatalogReader ();
+    for (Record record : records)
+      catalogReader.read (textMaker.getText (record));
+
+    List<Dataset> datasets = catalogReader.getDatasets ();
+    List<Member> members = catalogReader.getMembers ();
+    System.out.printf ("Importing %,d datasets and %,d members from %s%n",
+                       datasets.size (), members.size (), fileName);
+
+    if (datasets.isEmpty () && members.isEmpty ())
+      return;
+
+    if (!screen.getFieldManager ()
+        .sendDatabaseRequest (new ImportRequest (this, datasets, members)))
+      System.out.println ("No site database");
+  }
+
+  // Called from the DatabaseThread. The rows are converted here, and the FX thread only
+  // has to add them to the table in one go. The tab shows datasets - their members are
+  // added when a member list is seen on the screen.
+  @Override
+  public void processResult (DatabaseRequest request)
+  {
+    if (request.result != Result.SUCCESS)
+    {
+      System.out.println (request);
+      return;
+    }
+
+    List<Dataset> datasets = null;
+    if (request instanceof ImportRequest)
+      datasets = ((ImportRequest) request).datasets;
+    else if (request instanceof DatasetRequest)
+      datasets = ((DatasetRequest) request).datasets;
+    if (datasets == null || datasets.isEmpty ())
+      return;
+
+    List<TableDataset> tableDatasets = new ArrayList<> (datasets.size ());
+    for (Dataset dataset : datasets)
+      tableDatasets.add (getTableDataset (dataset));
+
+    Platform.runLater ( () -> addDatasets (tableDatasets));
+  }
+
+  private void addDatasets (List<TableDataset> tableDatasets)
+  {
+    if (useTable)
+      datasetTable.addDatasets (tableDatasets);
+    else
+      datasetTreeTable.addDatasets (tableDatasets);
+  }
+
+  private TableDataset getTableDataset (Dataset dataset)
+  {
+    TableDataset tableDataset = new TableDataset (dataset.getName ());
+
+    tableDataset.setVolume (dataset.getVolume ());
+    tableDataset.setDevice (dataset.getDevice ());
+    tableDataset.setCatalog (dataset.getCatalog ());
+    tableDataset.setTracks (dataset.getTracks ());
+    tableDataset.setCylinders (dataset.getCylinders ());
+    tableDataset.setExtents (dataset.getExtents ());
+    tableDataset.setPercentUsed (dataset.getPercentUsed ());
+    tableDataset.setDsorg (dataset.getDsorg ());
+    tableDataset.setRecfm (dataset.getRecfm ());
+    tableDataset.setLrecl (dataset.getLrecl ());
+    tableDataset.setBlksize (dataset.getBlksize ());
+    tableDataset.setCreated (dataset.getCreated ());
+    tableDataset.setExpires (dataset.getExpires ());
+    tableDataset.setReferredDate (dataset.getReferred ());
+
+    return tableDataset;
+  }
+
   @Override
   protected void setText ()
   {
@@ -1,6 +1,9 @@
 package com.bytezone.dm3270.assistant;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.bytezone.dm3270.utilities.DefaultTable;
 
@@ -11,6 +14,7 @@ import javafx.scene.control.Label;
 public class DatasetTable extends DefaultTable<TableDataset>
 {
   private final ObservableList<TableDataset> datasets = FXCollections.observableArrayList ();
+  private final Map<String, TableDataset> datasetNames = new HashMap<> ();
 
   public DatasetTable ()
   {
@@ -36,31 +40,22 @@ public class DatasetTable extends DefaultTable<TableDataset>
 
   public void addDataset (TableDataset dataset)
   {
-    String datasetName = dataset.getDatasetName ();
-
-    Optional<TableDataset> dataset2 = datasets.stream ()
-        .filter (d -> d.getDatasetName ().equals (datasetName)).findAny ();
-    if (!dataset2.isPresent ())
+    if (datasetNames.putIfAbsent (dataset.getDatasetName (), dataset) == null)
       datasets.add (dataset);
-    //    else
-    //      dataset2.get ().merge (dataset);
   }
 
-  public void addMember (TableDataset member)
+  // a whole database list in one change, instead of one per dataset
+  public void addDatasets (List<TableDataset> newDatasets)
   {
-    TableDataset foundDataset = null;
-    String memberName = member.getDatasetName ();
-
-    for (TableDataset existingDataset : datasets)
-      if (existingDataset.getDatasetName ().equals (memberName))
-      {
-        foundDataset = existingDataset;
-        break;
-      }
+    List<TableDataset> added = new ArrayList<> ();
+    for (TableDataset dataset : newDatasets)
+      if (datasetNames.putIfAbsent (dataset.getDatasetName (), dataset) == null)
+        added.add (dataset);
+    datasets.addAll (added);
+  }
 
-    if (foundDataset == null)
-      datasets.add (member);
-    //    else
-    //      foundDataset.merge (member);
+  public void addMember (TableDataset member)
+  {
+    addDataset (member);
   }
-}
\ No newline at end of file
+}
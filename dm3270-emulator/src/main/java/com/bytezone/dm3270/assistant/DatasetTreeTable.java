@@ -38,6 +38,20 @@ public class DatasetTreeTable extends DefaultTreeTable<TableDataset>
   }
 
   public void addDataset (TableDataset dataset)
+  {
+    addDataset (dataset, root.getChildren ());
+  }
+
+  // a whole database list in one change to the root, instead of one per dataset
+  public void addDatasets (List<TableDataset> datasets)
+  {
+    List<TreeItem<TableDataset>> treeItems = new ArrayList<> ();
+    for (TableDataset dataset : datasets)
+      addDataset (dataset, treeItems);
+    root.getChildren ().addAll (treeItems);
+  }
+
+  private void addDataset (TableDataset dataset, List<TreeItem<TableDataset>> level1)
   {
     DatasetEntry datasetEntry = entries.get (dataset.getDatasetName ());
     if (datasetEntry == null)
@@ -51,7 +65,7 @@ public class DatasetTreeTable extends DefaultTreeTable<TableDataset>
         {
           parentEntry = new DatasetEntry (datasetEntry.parentName);
           entries.put (datasetEntry.parentName, parentEntry);
-          root.getChildren ().add (parentEntry.treeItem);                 // 1st level
+          level1.add (parentEntry.treeItem);                              // 1st level
         }
 
         parentEntry.add (dataset);
@@ -60,7 +74,7 @@ public class DatasetTreeTable extends DefaultTreeTable<TableDataset>
         // would be good to open the parent
       }
       else
-        root.getChildren ().add (datasetEntry.treeItem);                  // 1st level
+        level1.add (datasetEntry.treeItem);                               // 1st level
     }
   }
 
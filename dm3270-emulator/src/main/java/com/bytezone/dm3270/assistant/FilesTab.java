@@ -48,6 +48,11 @@ public class FilesTab extends AbstractTransferTab implements NodeSelectionListen
     return reporterNode;
   }
 
+  FileNode getSelectedFileNode ()
+  {
+    return currentFileNode;
+  }
+
   @Override
   protected void setText ()
   {
@@ -17,12 +17,15 @@ import com.bytezone.dm3270.filetransfer.TransferManager;
 import com.bytezone.dm3270.filetransfer.TransferManager.TransferStatus;
 import com.bytezone.dm3270.utilities.Site;
 import com.bytezone.dm3270.utilities.WindowSaver;
+import com.bytezone.reporter.application.FileNode;
 import com.bytezone.reporter.application.ReporterNode;
 
 import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.layout.AnchorPane;
@@ -95,6 +98,7 @@ public class TransfersStage extends Stage implements ScreenChangeListener,
     borderPane.setBottom (anchorPane);
 
     menuBar.setUseSystemMenuBar (SYSTEM_MENUBAR);
+    menuBar.getMenus ().add (getDatabaseMenu ());
 
     Scene scene = new Scene (borderPane, 800, 500);             // width/height
     setScene (scene);
@@ -108,6 +112,28 @@ public class TransfersStage extends Stage implements ScreenChangeListener,
     tabPane.getSelectionModel ().select (datasetTab);
   }
 
+  private Menu getDatabaseMenu ()
+  {
+    Menu menuDatabase = new Menu ("Database");
+
+    MenuItem menuItem = new MenuItem ("Import catalog listing");
+    menuItem.setOnAction (e -> importCatalog ());
+    menuDatabase.getItems ().add (menuItem);
+
+    return menuDatabase;
+  }
+
+  // a LISTCAT or DSLIST that has been downloaded and selected in the Local Files tab
+  private void importCatalog ()
+  {
+    FileNode fileNode = filesTab.getSelectedFileNode ();
+    if (fileNode == null)
+      return;
+
+    datasetTab.importCatalog (fileNode);
+    tabPane.getSelectionModel ().select (datasetTab);
+  }
+
   public void setTransferManager (TransferManager transferManager)
   {
     tsoCommand.setTransferManager (transferManager);
@@ -34,7 +34,6 @@ public abstract class Attribute
   }
 
   // called from ScreenPacker.packDataPosition()
-  // called from ScreenPosition.pack()
   public boolean matches (byte... types)
   {
     for (byte type : types)
@@ -44,7 +43,6 @@ public abstract class Attribute
   }
 
   // called from ScreenPacker.readBuffer()
-  // called from ScreenPosition.pack() x2
   // called from StartFieldExtendedOrder constructor x2
   public int pack (byte[] buffer, int offset)
   {
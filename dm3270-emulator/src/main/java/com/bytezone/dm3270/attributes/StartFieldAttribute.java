@@ -45,6 +45,17 @@ public class StartFieldAttribute extends Attribute
     isExtended = true;
   }
 
+  // an independent copy, including the user's modified flag
+  // called from ScreenBuffer.save()
+  // called from ScreenBuffer.restore()
+  public StartFieldAttribute copy ()
+  {
+    StartFieldAttribute copy = new StartFieldAttribute (attributeValue);
+    copy.isExtended = isExtended;
+    copy.userModified = userModified;
+    return copy;
+  }
+
   public static byte compile (boolean prot, boolean num, boolean bit4, boolean bit5,
       boolean mod)
   {
@@ -0,0 +1,156 @@
+package com.bytezone.dm3270.automation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+
+// Runs the same script against many concurrent sessions on one server. The sockets
+// are all multiplexed by the SelectorLoop pool, so the executor only needs a thread
+// for each script that is running at the same time, not for each connection.
+
+public class AutomationRunner
+{
+  private final String serverURL;
+  private final int serverPort;
+  private final boolean extended;
+  private final int model;
+  private final ExecutorService executor;
+  private int codePage = EbcdicCodec.DEFAULT_CODE_PAGE;
+  private double runSeconds;
+
+  public AutomationRunner (String serverURL, int serverPort, boolean extended, int model,
+      int threads)
+  {
+    this.serverURL = serverURL;
+    this.serverPort = serverPort;
+    this.extended = extended;
+    this.model = model;
+
+    AtomicInteger threadNo = new AtomicInteger ();
+    executor = Executors.newFixedThreadPool (threads, r ->
+    {
+      Thread thread = new Thread (r, "AutomationRunner-" + threadNo.incrementAndGet ());
+      thread.setDaemon (true);
+      return thread;
+    });
+  }
+
+  public void setCodePage (int codePage)
+  {
+    this.codePage = codePage;
+  }
+
+  // blocks until every session has finished
+  public List<SessionStatistics> run (int sessions, AutomationScript script)
+      throws InterruptedException
+  {
+    List<Callable<SessionStatistics>> tasks = new ArrayList<> (sessions);
+    for (int i = 0; i < sessions; i++)
+    {
+      int sessionNo = i + 1;
+      tasks.add ( () -> runSession (sessionNo, script));
+    }
+
+    long start = System.nanoTime ();
+    List<Future<SessionStatistics>> futures = executor.invokeAll (tasks);
+    runSeconds = (System.nanoTime () - start) / 1_000_000_000.0;
+
+    List<SessionStatistics> results = new ArrayList<> (sessions);
+    for (Future<SessionStatistics> future : futures)
+      try
+      {
+        results.add (future.get ());
+      }
+      catch (ExecutionException e)
+      {
+        e.printStackTrace ();
+      }
+
+    return results;
+  }
+
+  private SessionStatistics runSession (int sessionNo, AutomationScript script)
+  {
+    AutomationSession session =
+        new AutomationSession (serverURL, serverPort, extended, model, codePage,
+            sessionNo);
+    try
+    {
+      session.connect ();
+      script.run (session);
+    }
+    catch (InterruptedException e)
+    {
+      session.getStatistics ().setException (e);
+      Thread.currentThread ().interrupt ();
+    }
+    catch (Exception e)
+    {
+      session.getStatistics ().setException (e);
+    }
+    finally
+    {
+      session.close ();
+    }
+    return session.getStatistics ();
+  }
+
+  public void shutdown ()
+  {
+    executor.shutdownNow ();
+  }
+
+  // called after run()
+  public String getReport (List<SessionStatistics> results)
+  {
+    StringBuilder text = new StringBuilder ();
+
+    text.append (SessionStatistics.getHeading ());
+    text.append ("\n");
+
+    int aids = 0;
+    int failures = 0;
+    int totalResponses = 0;
+    for (SessionStatistics statistics : results)
+    {
+      text.append (statistics);
+      text.append ("\n");
+
+      aids += statistics.getAidsSent ();
+      totalResponses += statistics.getResponses ();
+      if (statistics.failed ())
+        ++failures;
+    }
+
+    // merge every session's response times for the overall percentiles
+    long[] all = new long[totalResponses];
+    int ptr = 0;
+    for (SessionStatistics statistics : results)
+    {
+      long[] responseTimes = statistics.getResponseTimes ();
+      System.arraycopy (responseTimes, 0, all, ptr, responseTimes.length);
+      ptr += responseTimes.length;
+    }
+    Arrays.sort (all);
+
+    text.append (String.format ("%nSessions : %,d  (%,d failed)%n", results.size (),
+                                failures));
+    text.append (String.format ("AIDs     : %,d in %.2f seconds = %.2f/s%n", aids,
+                                runSeconds, runSeconds == 0 ? 0 : aids / runSeconds));
+    text.append (String.format ("Response : p50 %.2f ms, p95 %.2f ms, p99 %.2f ms,"
+        + " max %.2f ms", SessionStatistics.percentile (all, 50),
+                                SessionStatistics.percentile (all, 95),
+                                SessionStatistics.percentile (all, 99),
+                                SessionStatistics.percentile (all, 100)));
+
+    return text.toString ();
+  }
+}
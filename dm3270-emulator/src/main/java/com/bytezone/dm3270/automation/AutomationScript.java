@@ -0,0 +1,10 @@
+package com.bytezone.dm3270.automation;
+
+// The steps performed against a single connected session, eg logon, run a TSO
+// command, logoff.
+
+@FunctionalInterface
+public interface AutomationScript
+{
+  void run (AutomationSession session) throws Exception;
+}
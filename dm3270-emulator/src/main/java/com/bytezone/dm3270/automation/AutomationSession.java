@@ -0,0 +1,320 @@
+package com.bytezone.dm3270.automation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import com.bytezone.dm3270.application.Console.Function;
+import com.bytezone.dm3270.application.KeyboardStatusChangedEvent;
+import com.bytezone.dm3270.application.KeyboardStatusListener;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.Field;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenChangeListener;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.display.ScreenWatcher;
+import com.bytezone.dm3270.extended.CommandHeader;
+import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
+import com.bytezone.dm3270.streams.TelnetListener;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.streams.TerminalServer;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+
+// A programmatic terminal session. It drives a headless Screen over a TerminalServer
+// connection, so it needs neither the JavaFX toolkit nor a thread of its own - the
+// socket is serviced by the shared SelectorLoop pool, and the script's thread only
+// blocks while it waits for the host.
+//
+// TelnetListener.listen() is synchronized, and every host record is processed while
+// holding the listener's monitor. All access to the screen from the script's thread
+// is made while holding the same monitor.
+
+public class AutomationSession implements KeyboardStatusListener, ScreenChangeListener
+{
+  private final String serverURL;
+  private final int serverPort;
+
+  private final TelnetState telnetState = new TelnetState ();
+  private final Screen screen;
+  private final TelnetListener telnetListener;
+  private final Object lock;
+  private TerminalServer terminalServer;
+
+  private final SessionStatistics statistics;
+  private int commandHeaderCount;
+  private long aidSentAt;               // nanoTime of the outstanding AID, or 0
+
+  public AutomationSession (String serverURL, int serverPort, boolean extended,
+      int model)
+  {
+    this (serverURL, serverPort, extended, model, EbcdicCodec.DEFAULT_CODE_PAGE, 0);
+  }
+
+  public AutomationSession (String serverURL, int serverPort, boolean extended,
+      int model, int codePage)
+  {
+    this (serverURL, serverPort, extended, model, codePage, 0);
+  }
+
+  // called from AutomationRunner.runSession()
+  AutomationSession (String serverURL, int serverPort, boolean extended, int model,
+      int codePage, int sessionNo)
+  {
+    this.serverURL = serverURL;
+    this.serverPort = serverPort;
+    statistics = new SessionStatistics (sessionNo);
+
+    telnetState.setCodec (EbcdicCodec.forCodePage (codePage));
+    telnetState.setDo3270Extended (extended);
+    telnetState.setDoTerminalType (true);
+
+    ScreenDimensions alternateScreenDimensions;
+    switch (model)
+    {
+      case 3:
+        alternateScreenDimensions = new ScreenDimensions (32, 80);
+        break;
+      case 4:
+        alternateScreenDimensions = new ScreenDimensions (43, 80);
+        break;
+      case 5:
+        alternateScreenDimensions = new ScreenDimensions (27, 132);
+        break;
+      default:
+        model = 2;
+        alternateScreenDimensions = new ScreenDimensions (24, 80);
+    }
+    telnetState.setDoDeviceType (model);
+
+    screen = new Screen (new ScreenDimensions (24, 80), alternateScreenDimensions,
+        Function.TERMINAL, null, telnetState);
+    screen.addKeyboardStatusChangeListener (this);
+    screen.getFieldManager ().addScreenChangeListener (this);
+
+    telnetListener = new TelnetListener (screen, telnetState);
+    lock = telnetListener;
+  }
+
+  // blocks until the connection is registered with a SelectorLoop
+  public void connect () throws IOException
+  {
+    statistics.start ();
+    terminalServer = new TerminalServer (serverURL, serverPort, telnetListener);
+    telnetState.setTerminalServer (terminalServer, false);
+    terminalServer.connect ();
+  }
+
+  public void close ()
+  {
+    if (terminalServer != null)
+      terminalServer.close ();
+    telnetState.close ();
+    statistics.finish (telnetState.getTotalBytesRead (),
+                       telnetState.getTotalBytesWritten ());
+  }
+
+  public SessionStatistics getStatistics ()
+  {
+    return statistics;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Waiting for the host
+  // ---------------------------------------------------------------------------------//
+
+  // Wait until the keyboard is unlocked and the text appears anywhere on the screen.
+  public boolean waitForText (String text, long timeoutMillis)
+      throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis () + timeoutMillis;
+
+    synchronized (lock)
+    {
+      while (screen.isKeyboardLocked () || !getScreenText ().contains (text))
+      {
+        long remaining = deadline - System.currentTimeMillis ();
+        if (remaining <= 0)
+          return false;
+        lock.wait (remaining);
+      }
+      return true;
+    }
+  }
+
+  public boolean waitForUnlock (long timeoutMillis) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis () + timeoutMillis;
+
+    synchronized (lock)
+    {
+      while (screen.isKeyboardLocked ())
+      {
+        long remaining = deadline - System.currentTimeMillis ();
+        if (remaining <= 0)
+          return false;
+        lock.wait (remaining);
+      }
+      return true;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Reading the screen
+  // ---------------------------------------------------------------------------------//
+
+  // one line per row, attribute bytes shown as spaces
+  public String readScreen ()
+  {
+    synchronized (lock)
+    {
+      return getScreenText ();
+    }
+  }
+
+  public String readField (int row, int column)
+  {
+    synchronized (lock)
+    {
+      Optional<Field> field = getField (row, column);
+      return field.isPresent () ? field.get ().getText () : "";
+    }
+  }
+
+  public boolean isKeyboardLocked ()
+  {
+    synchronized (lock)
+    {
+      return screen.isKeyboardLocked ();
+    }
+  }
+
+  public int getCursorLocation ()
+  {
+    synchronized (lock)
+    {
+      return screen.getScreenCursor ().getLocation ();
+    }
+  }
+
+  private String getScreenText ()
+  {
+    return screen.getPen ().getScreenText ().replace ('%', ' ');
+  }
+
+  private Optional<Field> getField (int row, int column)
+  {
+    int location = row * screen.getScreenDimensions ().columns + column;
+    return screen.getFieldManager ().getFieldAt (location);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Updating the screen
+  // ---------------------------------------------------------------------------------//
+
+  // fill the unprotected field that contains the given row and column
+  public void fillField (int row, int column, String text)
+  {
+    synchronized (lock)
+    {
+      Optional<Field> field = getField (row, column);
+      if (!field.isPresent () || field.get ().isProtected ())
+        throw new IllegalArgumentException (
+            String.format ("No input field at %d/%d", row, column));
+      screen.setFieldText (field.get (), text);
+    }
+  }
+
+  // fill the first unprotected field following a protected field that ends with
+  // the label, eg "Command ===>" or "Userid    ==="
+  public void fillField (String label, String text)
+  {
+    synchronized (lock)
+    {
+      Field labelField = null;
+      List<Field> fields = screen.getFieldManager ().getFields ();
+      for (Field field : fields)
+        if (field.isProtected ())
+        {
+          if (field.getText ().trim ().endsWith (label))
+            labelField = field;
+        }
+        else if (labelField != null)
+        {
+          screen.setFieldText (field, text);
+          return;
+        }
+
+      throw new IllegalArgumentException ("No input field after: " + label);
+    }
+  }
+
+  // equivalent to the user pressing an AID key - ENTR, PF1-PF24, PA1-PA3 or CLR
+  public void sendAID (String keyName)
+  {
+    byte aid = AIDCommand.getKey (keyName);
+    if (aid == -1)
+      throw new IllegalArgumentException ("Unknown AID key: " + keyName);
+    sendAID (aid, keyName);
+  }
+
+  public void sendAID (byte aid, String keyName)
+  {
+    synchronized (lock)
+    {
+      if (screen.isInsertMode ())
+        screen.toggleInsertMode ();
+
+      screen.lockKeyboard (keyName);
+      screen.setAID (aid);
+
+      AIDCommand command = screen.readModifiedFields ();
+      aidSentAt = System.nanoTime ();
+      statistics.aidSent ();
+
+      if (telnetState.does3270Extended ())
+      {
+        byte[] buffer = new byte[5];
+        Dm3270Utility.packUnsignedShort (commandHeaderCount++, buffer, 3);
+        CommandHeader header = new CommandHeader (buffer);
+        TN3270ExtendedCommand extendedCommand =
+            new TN3270ExtendedCommand (header, command);
+        telnetState.write (extendedCommand.getTelnetData ());
+      }
+      else
+        telnetState.write (command.getTelnetData ());
+    }
+  }
+
+  public void enter ()
+  {
+    sendAID (AIDCommand.AID_ENTER, "ENTR");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Listener events - always called while holding the lock
+  // ---------------------------------------------------------------------------------//
+
+  @Override
+  public void keyboardStatusChanged (KeyboardStatusChangedEvent evt)
+  {
+    synchronized (lock)
+    {
+      if (!evt.keyboardLocked && aidSentAt != 0)
+      {
+        statistics.addResponseTime (System.nanoTime () - aidSentAt);
+        aidSentAt = 0;
+      }
+      lock.notifyAll ();
+    }
+  }
+
+  @Override
+  public void screenChanged (ScreenWatcher screenWatcher)
+  {
+    synchronized (lock)
+    {
+      lock.notifyAll ();
+    }
+  }
+}
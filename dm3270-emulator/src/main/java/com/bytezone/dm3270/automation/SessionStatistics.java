@@ -0,0 +1,141 @@
+package com.bytezone.dm3270.automation;
+
+import java.util.Arrays;
+
+// Throughput and response times for a single AutomationSession. A response time is
+// measured from the AID being sent to the keyboard being unlocked by the host.
+
+public class SessionStatistics
+{
+  private final int sessionNo;
+  private long[] responseTimes = new long[32];      // nanoseconds
+  private int responses;
+  private int aidsSent;
+  private int bytesRead;
+  private int bytesWritten;
+  private long startTime;
+  private long endTime;
+  private Exception exception;
+
+  SessionStatistics (int sessionNo)
+  {
+    this.sessionNo = sessionNo;
+  }
+
+  // called from AutomationSession.connect()
+  void start ()
+  {
+    startTime = System.nanoTime ();
+  }
+
+  // called from AutomationSession.close()
+  void finish (int bytesRead, int bytesWritten)
+  {
+    endTime = System.nanoTime ();
+    this.bytesRead = bytesRead;
+    this.bytesWritten = bytesWritten;
+  }
+
+  // called from AutomationSession.sendAID()
+  void aidSent ()
+  {
+    ++aidsSent;
+  }
+
+  // called from AutomationSession.keyboardStatusChanged()
+  void addResponseTime (long nanos)
+  {
+    if (responses == responseTimes.length)
+      responseTimes = Arrays.copyOf (responseTimes, responses * 2);
+    responseTimes[responses++] = nanos;
+  }
+
+  // called from AutomationRunner when the script throws
+  void setException (Exception exception)
+  {
+    this.exception = exception;
+  }
+
+  public int getSessionNo ()
+  {
+    return sessionNo;
+  }
+
+  public int getAidsSent ()
+  {
+    return aidsSent;
+  }
+
+  public int getResponses ()
+  {
+    return responses;
+  }
+
+  public int getBytesRead ()
+  {
+    return bytesRead;
+  }
+
+  public int getBytesWritten ()
+  {
+    return bytesWritten;
+  }
+
+  public boolean failed ()
+  {
+    return exception != null;
+  }
+
+  public Exception getException ()
+  {
+    return exception;
+  }
+
+  public double getElapsedSeconds ()
+  {
+    long end = endTime == 0 ? System.nanoTime () : endTime;
+    return (end - startTime) / 1_000_000_000.0;
+  }
+
+  // AIDs per second over the life of the session
+  public double getThroughput ()
+  {
+    double elapsed = getElapsedSeconds ();
+    return elapsed == 0 ? 0 : aidsSent / elapsed;
+  }
+
+  // copy of the response times in nanoseconds, sorted
+  public long[] getResponseTimes ()
+  {
+    long[] sorted = Arrays.copyOf (responseTimes, responses);
+    Arrays.sort (sorted);
+    return sorted;
+  }
+
+  static double percentile (long[] sorted, double percent)
+  {
+    if (sorted.length == 0)
+      return 0;
+    int index = (int) Math.ceil (percent / 100 * sorted.length) - 1;
+    return sorted[Math.max (0, index)] / 1_000_000.0;      // milliseconds
+  }
+
+  static String getHeading ()
+  {
+    return String.format ("Session   AIDs   AID/s    p50 ms    p95 ms    max ms"
+        + "    bytes in   bytes out");
+  }
+
+  @Override
+  public String toString ()
+  {
+    long[] sorted = getResponseTimes ();
+    String text = String.format ("%,7d %,6d %7.2f %9.2f %9.2f %9.2f %,11d %,11d",
+                                 sessionNo, aidsSent, getThroughput (),
+                                 percentile (sorted, 50), percentile (sorted, 95),
+                                 percentile (sorted, 100), bytesRead, bytesWritten);
+    if (exception != null)
+      text += "  " + exception;
+    return text;
+  }
+}
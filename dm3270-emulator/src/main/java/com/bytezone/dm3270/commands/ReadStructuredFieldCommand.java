@@ -149,7 +149,7 @@ public class ReadStructuredFieldCommand extends Command
     List<QueryReplyField> replyFields = new ArrayList<> ();
 
     replyFields.add (new UsableArea (screenDimensions.rows, screenDimensions.columns));
-    replyFields.add (new CharacterSets ());
+    replyFields.add (new CharacterSets (telnetState.getCodec ().getCodePage ()));
     replyFields.add (color);
     replyFields.add (highlight);
     replyFields.add (new ReplyModes ());
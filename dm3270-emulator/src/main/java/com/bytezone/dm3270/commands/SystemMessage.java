@@ -10,7 +10,6 @@ import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenDimensions;
 import com.bytezone.dm3270.orders.Order;
 import com.bytezone.dm3270.orders.TextOrder;
-import com.bytezone.dm3270.utilities.Dm3270Utility;
 
 import javafx.application.Platform;
 import javafx.scene.control.MenuItem;
@@ -74,7 +73,7 @@ public class SystemMessage
   private static final Pattern twoDigits = Pattern.compile ("\\d\\d");
 
   private final Screen screen;
-  private final BatchJobListener batchJobListener;
+  private final BatchJobListener batchJobListener;       // null when headless
   private Profile profile;
 
   private boolean isConsole;
@@ -113,7 +112,26 @@ public class SystemMessage
     return consoleLog;
   }
 
-  void checkSystemMessage (boolean eraseWrite, List<Order> orders, int length)
+  // The orders are only built when the write could be one of the messages above.
+  // called from WriteCommand.process()
+  void checkSystemMessage (boolean eraseWrite, WriteCommand writeCommand,
+      int totalOrders, int length)
+  {
+    if (isConsole || totalOrders == 0 || isMessageSize (eraseWrite, totalOrders))
+      checkSystemMessage (eraseWrite, writeCommand.getOrdersList (), length);
+    else
+      lastOrdersSize = totalOrders;
+  }
+
+  private boolean isMessageSize (boolean eraseWrite, int totalOrders)
+  {
+    if (eraseWrite)
+      return totalOrders == 8 || totalOrders == 11 || totalOrders == 15
+          || totalOrders == 17;
+    return totalOrders == 3 || totalOrders == 6 || totalOrders == 9;
+  }
+
+  private void checkSystemMessage (boolean eraseWrite, List<Order> orders, int length)
   {
     if (orders.size () == 0)
     {
@@ -149,27 +167,27 @@ public class SystemMessage
       {
         case 8:
           if (checkOrders (systemMessage3, orders))
-            checkSystemMessage (Dm3270Utility.getString (orders.get (4).getBuffer ()));
+            checkSystemMessage (getText (orders.get (4)));
           return;
 
         case 11:
           if (checkOrders (systemMessage2, orders))
-            checkSystemMessage (Dm3270Utility.getString (orders.get (4).getBuffer ()));
+            checkSystemMessage (getText (orders.get (4)));
           return;
 
         case 15:
           if (checkOrders (systemMessage4, orders))
           {
-            checkSystemMessage (Dm3270Utility.getString (orders.get (4).getBuffer ()));
-            checkSystemMessage (Dm3270Utility.getString (orders.get (8).getBuffer ()));
+            checkSystemMessage (getText (orders.get (4)));
+            checkSystemMessage (getText (orders.get (8)));
           }
           return;
 
         case 17:
           if (checkOrders (profileMessage, orders))
-            checkProfileMessage (Dm3270Utility.getString (orders.get (4).getBuffer ())
-                + Dm3270Utility.getString (orders.get (6).getBuffer ()),
-                                 Dm3270Utility.getString (orders.get (10).getBuffer ()));
+            checkProfileMessage (getText (orders.get (4))
+                + getText (orders.get (6)),
+                                 getText (orders.get (10)));
           return;
       }
     }
@@ -178,18 +196,19 @@ public class SystemMessage
       switch (orders.size ())
       {
         case 3:                                      // will only happen the first time
-          if (lastOrdersSize == 2 && checkOrders (consoleMessage, orders))
+          if (lastOrdersSize == 2 && checkOrders (consoleMessage, orders)
+              && !screen.isHeadless ())
             checkConsoleOutput (orders);
           return;
 
         case 6:
           if (checkOrders (systemMessage1, orders))
-            checkSystemMessage (Dm3270Utility.getString (orders.get (2).getBuffer ()));
+            checkSystemMessage (getText (orders.get (2)));
           return;
 
         case 9:
           if (checkOrders (systemMessage5, orders))
-            checkSystemMessage (Dm3270Utility.getString (orders.get (2).getBuffer ()));
+            checkSystemMessage (getText (orders.get (2)));
           return;
       }
     }
@@ -223,7 +242,8 @@ public class SystemMessage
     {
       String jobName = matcher.group (1);
       int jobNumber = Integer.parseInt (matcher.group (2));
-      batchJobListener.batchJobSubmitted (jobNumber, jobName);
+      if (batchJobListener != null)
+        batchJobListener.batchJobSubmitted (jobNumber, jobName);
       return;
     }
 
@@ -234,7 +254,8 @@ public class SystemMessage
       String jobName = matcher.group (3);
       String time = matcher.group (1);
       int conditionCode = Integer.parseInt (matcher.group (4));
-      batchJobListener.batchJobEnded (jobNumber, jobName, time, conditionCode);
+      if (batchJobListener != null)
+        batchJobListener.batchJobEnded (jobNumber, jobName, time, conditionCode);
       return;
     }
 
@@ -244,7 +265,8 @@ public class SystemMessage
       int jobNumber = Integer.parseInt (matcher.group (2));
       String jobName = matcher.group (3);
       String time = matcher.group (1);
-      batchJobListener.batchJobFailed (jobNumber, jobName, time);
+      if (batchJobListener != null)
+        batchJobListener.batchJobFailed (jobNumber, jobName, time);
       return;
     }
 
@@ -276,7 +298,7 @@ public class SystemMessage
     int pos2 = profileMessageText1.indexOf ("LINE(");
     int pos3 = profileMessageText1.indexOf ("PREFIX(");
 
-    if (pos1 >= 0 && pos2 >= 0 && pos3 >= 0)
+    if (pos1 >= 0 && pos2 >= 0 && pos3 >= 0 && !screen.isHeadless ())
     {
       profile = new Profile (profileMessageText1, profileMessageText2);
       Platform.runLater ( () -> profile.showAndWait ());
@@ -285,7 +307,7 @@ public class SystemMessage
 
   private void checkConsoleOutput (List<Order> orders)
   {
-    String message = Dm3270Utility.getString (orders.get (2).getBuffer ());
+    String message = getText (orders.get (2));
     if (message.length () == 1600 && message.startsWith ("  IEA371I "))
     {
       int pos = message.indexOf (" SELECTED FOR IPL ");
@@ -306,9 +328,15 @@ public class SystemMessage
     }
   }
 
+  // host text is decoded with the session's code page
+  private String getText (Order order)
+  {
+    return screen.getCodec ().getString (order.getBuffer ());
+  }
+
   private void addConsoleMessage (List<Order> orders)
   {
-    addConsoleMessage (Dm3270Utility.getString (orders.get (2).getBuffer ()));
+    addConsoleMessage (getText (orders.get (2)));
   }
 
   private void addConsoleMessage (String message)
@@ -350,7 +378,7 @@ public class SystemMessage
     for (Order order : orders)
       if (order.isText ())
       {
-        String line = ((TextOrder) order).getTextString ();
+        String line = ((TextOrder) order).getTextString (screen.getCodec ());
         if (line.length () == 79 || line.length () == 75)
         {
           String prefix = line.substring (1, 3);
@@ -7,6 +7,10 @@ import com.bytezone.dm3270.display.Cursor;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.Screen.ScreenOption;
 import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.orders.OrderDecoder;
+import com.bytezone.dm3270.orders.OrderDecoder.FieldLocations;
+import com.bytezone.dm3270.orders.StartFieldExtendedOrder;
+import com.bytezone.dm3270.orders.StartFieldOrder;
 import com.bytezone.dm3270.orders.TextOrder;
 
 public class WriteCommand extends Command
@@ -14,7 +18,8 @@ public class WriteCommand extends Command
   private final boolean eraseWrite;
   private final boolean alternate;
   private final WriteControlCharacter writeControlCharacter;
-  private final List<Order> orders = new ArrayList<Order> ();
+  private List<Order> orders;                 // built when first asked for
+  private FieldLocations fieldLocations;      // recorded by process()
 
   private SystemMessage systemMessage;
 
@@ -33,28 +38,6 @@ public class WriteCommand extends Command
         || buffer[offset] == Command.ERASE_WRITE_ALTERNATE_7E;
     writeControlCharacter =
         length > 1 ? new WriteControlCharacter (buffer[offset + 1]) : null;
-
-    int ptr = offset + 2;
-    Order previousOrder = null;
-
-    int max = offset + length;
-    while (ptr < max)
-    {
-      Order order = Order.getOrder (buffer, ptr, max);
-
-      if (order.rejected ())
-        break;
-
-      if (order.matchesPreviousOrder (previousOrder))
-        previousOrder.incrementDuplicates ();           // and discard this Order
-      else
-      {
-        orders.add (order);
-        previousOrder = order;
-      }
-
-      ptr += order.size ();
-    }
   }
 
   // Used by MainframeStage.createCommand() when building a screen
@@ -64,7 +47,7 @@ public class WriteCommand extends Command
     this.writeControlCharacter = wcc;
     this.eraseWrite = erase;
     this.alternate = alternate;
-    this.orders.addAll (orders);
+    this.orders = new ArrayList<Order> (orders);
 
     // create new data buffer
     int length = 2;                 // command + WCC
@@ -99,14 +82,15 @@ public class WriteCommand extends Command
       screen.setCurrentScreen (alternate ? ScreenOption.ALTERNATE : ScreenOption.DEFAULT);
       screen.lockKeyboard ("Erase Write");
       screen.clearScreen ();            // resets pen
+      screenDrawRequired = true;
     }
     else
       screen.lockKeyboard ("Write");
 
-    if (orders.size () > 0)
+    int totalOrders = 0;
+    if (data.length > 2)
     {
-      for (Order order : orders)
-        order.process (screen);         // modifies pen
+      totalOrders = processOrders (screen);                 // modifies pen
 
       cursor.moveTo (cursorLocation);
       screen.buildFields (writeControlCharacter);
@@ -120,9 +104,10 @@ public class WriteCommand extends Command
         screen.checkRecording ();                   // make a copy of the screen
     }
 
-    if (!screen.isKeyboardLocked () && screen.getFieldManager ().size () > 0)
+    if (!screen.isKeyboardLocked () && screen.getFieldManager ().size () > 0
+        && screen.getPluginsStage () != null)
     {
-      if (orders.size () > 0 || !writeControlCharacter.isResetModified ())
+      if (totalOrders > 0 || !writeControlCharacter.isResetModified ())
         // should check for suppressDisplay
         setReply (screen.getPluginsStage ().processPluginAuto ());
     }
@@ -132,15 +117,81 @@ public class WriteCommand extends Command
 
     // check screen for jobs submitted or finished
     systemMessage = screen.getSystemMessage ();
-    systemMessage.checkSystemMessage (eraseWrite, orders, data.length);
+    systemMessage.checkSystemMessage (eraseWrite, this, totalOrders, data.length);
+  }
+
+  private synchronized int processOrders (Screen screen)
+  {
+    if (fieldLocations == null)
+      fieldLocations = new FieldLocations ();
+    int totalOrders = OrderDecoder.process (data, 2, data.length, screen, fieldLocations);
+
+    if (orders != null)
+      setFieldLocations (orders);
+
+    return totalOrders;
+  }
+
+  // process() decodes the orders without creating them, so the list is only built for
+  // Session.checkServerName(), SystemMessage, CaptureStatistics and toString()
+  public synchronized List<Order> getOrdersList ()
+  {
+    if (orders == null)
+    {
+      orders = buildOrders ();
+      if (fieldLocations != null)
+        setFieldLocations (orders);
+    }
+    return orders;
+  }
+
+  private void setFieldLocations (List<Order> orders)
+  {
+    int index = 0;
+    for (Order order : orders)
+    {
+      if (index == fieldLocations.size ())
+        break;
+      if (order instanceof StartFieldOrder)
+        ((StartFieldOrder) order).setLocation (fieldLocations.get (index++));
+      else if (order instanceof StartFieldExtendedOrder)
+        ((StartFieldExtendedOrder) order).setLocation (fieldLocations.get (index++));
+    }
   }
 
-  // Used by Session.checkServerName() when searching for the server's name
-  public List<Order> getOrdersList ()
+  private List<Order> buildOrders ()
   {
+    List<Order> orders = new ArrayList<Order> ();
+    Order previousOrder = null;
+
+    int ptr = 2;
+    while (ptr < data.length)
+    {
+      Order order = Order.getOrder (data, ptr, data.length);
+
+      if (order.rejected ())
+        break;
+
+      if (order.matchesPreviousOrder (previousOrder))
+        previousOrder.incrementDuplicates ();           // and discard this Order
+      else
+      {
+        orders.add (order);
+        previousOrder = order;
+      }
+
+      ptr += order.size ();
+    }
+
     return orders;
   }
 
+  // may be null
+  public WriteControlCharacter getWriteControlCharacter ()
+  {
+    return writeControlCharacter;
+  }
+
   @Override
   public String getName ()
   {
@@ -150,6 +201,7 @@ public class WriteCommand extends Command
   @Override
   public String toString ()
   {
+    List<Order> orders = getOrdersList ();
     StringBuilder text = new StringBuilder ();
     text.append (getName ());
     text.append ("\nWCC : " + writeControlCharacter);
@@ -31,6 +31,11 @@ public class WriteControlCharacter
     return resetModified;
   }
 
+  public boolean isRestoreKeyboard ()
+  {
+    return restoreKeyboard;
+  }
+
   void process (Screen screen)
   {
     screen.resetInsertMode ();
@@ -1,26 +1,47 @@
 package com.bytezone.dm3270.display;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.bytezone.dm3270.attributes.ColorAttribute;
 
 import javafx.scene.paint.Color;
 
+// ScreenContexts are interned in a single pool shared by every Screen, so that
+// contexts can be compared by identity. Each one is indexed by a key packed from its
+// foreground, background, highlight and intensity, and has an id that is its
+// position in the pool. A ScreenBuffer stores only the id.
+
 public class ContextManager
 {
-  private static final List<ScreenContext> contextPool = new ArrayList<> ();
+  private static final Map<Integer, ScreenContext> contextIndex =
+      new ConcurrentHashMap<> ();
+  private static final List<ScreenContext> contextPool = new CopyOnWriteArrayList<> ();
+  private static final Map<Color, Integer> colorIds = new ConcurrentHashMap<> ();
+  private static final AtomicInteger nextColorId = new AtomicInteger ();
+
+  private final ScreenContext defaultContext;
   private FontDetails fontDetails;
 
+  static
+  {
+    for (Color color : ColorAttribute.colors)
+      getColorId (color);
+  }
+
   public ContextManager ()
   {
-    addNewContext (ColorAttribute.colors[0], ColorAttribute.colors[8], (byte) 0, false);
+    defaultContext =
+        getScreenContext (ColorAttribute.colors[0], ColorAttribute.colors[8], (byte) 0,
+                          false);
   }
 
   public ScreenContext getDefaultScreenContext ()
   {
-    return contextPool.get (0);
+    return defaultContext;
   }
 
   void setFontDetails (FontDetails fontDetails)
@@ -35,75 +56,95 @@ public class ContextManager
     contextPool.forEach (System.out::println);
   }
 
+  // called from ScreenBuffer.getScreenContext()
+  static ScreenContext getScreenContext (short id)
+  {
+    return contextPool.get (id);
+  }
+
   public ScreenContext getScreenContext (Color foregroundColor, Color backgroundColor,
       byte highlight, boolean highIntensity)
   {
-    Optional<ScreenContext> opt = contextPool.stream ().filter (sc -> sc
-        .matches (foregroundColor, backgroundColor, highlight, highIntensity))
-        .findFirst ();
+    int key = getKey (foregroundColor, backgroundColor, highlight, highIntensity);
+    ScreenContext screenContext = contextIndex.get (key);
 
-    return opt.isPresent () ? opt.get ()
-        : addNewContext (foregroundColor, backgroundColor, highlight, highIntensity);
+    return screenContext != null ? screenContext
+        : addNewContext (key, foregroundColor, backgroundColor, highlight,
+                         highIntensity);
   }
 
   public ScreenContext setForeground (ScreenContext oldContext, Color foregroundColor)
   {
-    Optional<ScreenContext> opt = contextPool.stream ()
-        .filter (sc -> sc.matches (foregroundColor, oldContext.backgroundColor,
-                                   oldContext.highlight, oldContext.highIntensity))
-        .findFirst ();
-
-    return opt.isPresent () ? opt.get ()
-        : addNewContext (foregroundColor, oldContext.backgroundColor,
-                         oldContext.highlight, oldContext.highIntensity);
+    return getScreenContext (foregroundColor, oldContext.backgroundColor,
+                             oldContext.highlight, oldContext.highIntensity);
   }
 
   public ScreenContext setBackground (ScreenContext oldContext, Color backgroundColor)
   {
-    Optional<ScreenContext> opt = contextPool.stream ()
-        .filter (sc -> sc.matches (oldContext.foregroundColor, backgroundColor,
-                                   oldContext.highlight, oldContext.highIntensity))
-        .findFirst ();
-
-    return opt.isPresent () ? opt.get ()
-        : addNewContext (oldContext.foregroundColor, backgroundColor,
-                         oldContext.highlight, oldContext.highIntensity);
+    return getScreenContext (oldContext.foregroundColor, backgroundColor,
+                             oldContext.highlight, oldContext.highIntensity);
   }
 
   public ScreenContext setHighlight (ScreenContext oldContext, byte highlight)
   {
-    Optional<ScreenContext> opt =
-        contextPool.stream ()
-            .filter (sc -> sc.matches (oldContext.foregroundColor,
-                                       oldContext.backgroundColor, highlight,
-                                       oldContext.highIntensity))
-            .findFirst ();
-
-    return opt.isPresent () ? opt.get ()
-        : addNewContext (oldContext.foregroundColor, oldContext.backgroundColor,
-                         highlight, oldContext.highIntensity);
+    return getScreenContext (oldContext.foregroundColor, oldContext.backgroundColor,
+                             highlight, oldContext.highIntensity);
   }
 
   public ScreenContext setHighIntensity (ScreenContext oldContext, boolean highIntensity)
   {
-    Optional<ScreenContext> opt =
-        contextPool.stream ()
-            .filter (sc -> sc.matches (oldContext.foregroundColor,
-                                       oldContext.backgroundColor, oldContext.highlight,
-                                       highIntensity))
-            .findFirst ();
-
-    return opt.isPresent () ? opt.get ()
-        : addNewContext (oldContext.foregroundColor, oldContext.backgroundColor,
-                         oldContext.highlight, highIntensity);
+    return getScreenContext (oldContext.foregroundColor, oldContext.backgroundColor,
+                             oldContext.highlight, highIntensity);
   }
 
-  private ScreenContext addNewContext (Color foregroundColor, Color backgroundColor,
+  // 1 bit intensity, 8 bits highlight, 11 bits each for the two colours
+  private static int getKey (Color foregroundColor, Color backgroundColor,
       byte highlight, boolean highIntensity)
+  {
+    return getColorId (foregroundColor) << 20 | getColorId (backgroundColor) << 9
+        | (highlight & 0xFF) << 1 | (highIntensity ? 1 : 0);
+  }
+
+  private static int getColorId (Color color)
+  {
+    Integer id = colorIds.get (color);
+    if (id != null)
+      return id;
+
+    synchronized (colorIds)
+    {
+      id = colorIds.get (color);
+      if (id == null)
+      {
+        id = nextColorId.getAndIncrement ();
+        if (id >= 2048)
+          throw new IllegalStateException ("Too many colours");
+        colorIds.put (color, id);
+      }
+      return id;
+    }
+  }
+
+  private ScreenContext addNewContext (int key, Color foregroundColor,
+      Color backgroundColor, byte highlight, boolean highIntensity)
   {
     ScreenContext newContext = new ScreenContext (foregroundColor, backgroundColor,
         highlight, highIntensity, fontDetails);
-    contextPool.add (newContext);
+
+    // the id must match the position in the pool, so contexts are added one at a time
+    synchronized (contextPool)
+    {
+      ScreenContext existingContext = contextIndex.get (key);
+      if (existingContext != null)
+        return existingContext;         // another thread got there first
+
+      if (contextPool.size () > Short.MAX_VALUE)
+        throw new IllegalStateException ("Too many screen contexts");
+
+      newContext.id = (short) contextPool.size ();
+      contextPool.add (newContext);
+      contextIndex.put (key, newContext);
+    }
     return newContext;
   }
-}
\ No newline at end of file
+}
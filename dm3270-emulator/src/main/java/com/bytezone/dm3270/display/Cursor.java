@@ -51,11 +51,6 @@ public class Cursor
     this.screenDimensions = screenDimensions;
   }
 
-  public ScreenPosition getScreenPosition ()
-  {
-    return screen.getScreenPosition (currentPosition);
-  }
-
   public Field getCurrentField ()
   {
     if (currentField == null)
@@ -93,7 +88,7 @@ public class Cursor
         currentField.draw ();     // draws the field without the cursor
       }
 
-      screen.getScreenPosition (currentPosition).setChar (value);
+      screen.getScreenBuffer ().setChar (currentPosition, value);
       currentField.setModified (true);
 
       int newPosition = screen.validate (currentPosition + 1);
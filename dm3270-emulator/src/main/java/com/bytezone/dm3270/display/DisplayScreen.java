@@ -6,9 +6,7 @@ public interface DisplayScreen
 
   ScreenDimensions getScreenDimensions ();
 
-  ScreenPosition getScreenPosition (int position);
-
-  ScreenPosition[] getScreenPositions ();
+  ScreenBuffer getScreenBuffer ();
 
   int validate (int position);
 
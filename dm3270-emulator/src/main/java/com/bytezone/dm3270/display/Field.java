@@ -1,15 +1,10 @@
 package com.bytezone.dm3270.display;
 
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
 import com.bytezone.dm3270.plugins.PluginField;
 import com.bytezone.dm3270.plugins.ScreenLocation;
 
-public class Field implements Iterable<ScreenPosition>
+public class Field
 {
   private final Screen screen;
 
@@ -18,22 +13,33 @@ public class Field implements Iterable<ScreenPosition>
   private Field next, previous;           // unprotected fields
 
   private final StartFieldAttribute startFieldAttribute;
-  private final List<ScreenPosition> screenPositions;
+  private final ScreenBuffer screenBuffer;          // shared with the Screen
+  private final int size;                           // positions including the SFA
   private final ScreenDimensions screenDimensions;
 
-  public Field (Screen screen, List<ScreenPosition> positions)
+  // The field occupies the screen positions from startPosition to endPosition, which
+  // wraps around the end of the array for the last field on the screen.
+  public Field (Screen screen, ScreenBuffer screenBuffer, int startPosition,
+      int endPosition)
   {
     this.screen = screen;
     this.screenDimensions = screen.getScreenDimensions ();
+    this.screenBuffer = screenBuffer;
+    this.startPosition = startPosition;
+    this.endPosition = endPosition;
 
-    ScreenPosition firstScreenPosition = positions.get (0);
-    ScreenPosition lastScreenPosition = positions.get (positions.size () - 1);
-
-    screenPositions = new ArrayList<> (positions);
-    startFieldAttribute = firstScreenPosition.getStartFieldAttribute ();
+    size = endPosition >= startPosition ? endPosition - startPosition + 1
+        : screenBuffer.size () - startPosition + endPosition + 1;
+    startFieldAttribute = screenBuffer.getStartFieldAttribute (startPosition);
+  }
 
-    startPosition = firstScreenPosition.getPosition ();
-    endPosition = lastScreenPosition.getPosition ();
+  // screen position of an offset into the field - offset 0 is the start field attribute
+  private int getPosition (int offset)
+  {
+    int position = startPosition + offset;
+    if (position >= screenBuffer.size ())
+      position -= screenBuffer.size ();
+    return position;
   }
 
   // link two unprotected fields to each other
@@ -73,7 +79,7 @@ public class Field implements Iterable<ScreenPosition>
 
   public int getDisplayLength ()
   {
-    return screenPositions.size () - 1;
+    return size - 1;
   }
 
   // called from Cursor.tab()
@@ -182,8 +188,8 @@ public class Field implements Iterable<ScreenPosition>
   // called from this.setText()
   public void erase ()
   {
-    for (int i = 1; i < screenPositions.size (); i++)
-      screenPositions.get (i).setChar ((byte) 0);
+    for (int i = 1; i < size; i++)
+      screenBuffer.setChar (getPosition (i), (byte) 0);
     setModified (true);
   }
 
@@ -194,8 +200,8 @@ public class Field implements Iterable<ScreenPosition>
     if (alterModifiedFlag)                  // don't reset any already set flags
       setModified (true);
 
-    for (int i = 1; i < screenPositions.size (); i++)
-      screenPositions.get (i).setChar ((byte) 0);         // leave screenContext
+    for (int i = 1; i < size; i++)
+      screenBuffer.setChar (getPosition (i), (byte) 0);         // leave screenContext
   }
 
   // called from AIDCommand.process()
@@ -203,7 +209,7 @@ public class Field implements Iterable<ScreenPosition>
   public void clearData (int first, int last)
   {
     for (int i = first; i <= last; i++)
-      screenPositions.get (i).setChar ((byte) 0);
+      screenBuffer.setChar (getPosition (i), (byte) 0);
   }
 
   // overwrites each position with the position to its right (delete)
@@ -211,39 +217,38 @@ public class Field implements Iterable<ScreenPosition>
   // called from Cursor.delete()
   void pull (int first, int last)
   {
-    ScreenPosition spFirst = screenPositions.get (first);
-    ScreenPosition spLast = screenPositions.get (last);
+    int spFirst = getPosition (first);
+    int spLast = getPosition (last);
 
     while (first < last)
     {
-      ScreenPosition sp = screenPositions.get (++first);
-      spFirst.setChar (sp.getByte ());
-      spFirst.setScreenContext (sp.getScreenContext ());
+      int sp = getPosition (++first);
+      screenBuffer.copyChar (sp, spFirst);
       spFirst = sp;
     }
 
-    spLast.setChar ((byte) 0);
-    spLast.clearAttributes ();
+    screenBuffer.setChar (spLast, (byte) 0);
+    screenBuffer.clearAttributes (spLast);
   }
 
   // overwrites each position with the position to its left (insert)
   // called from Cursor.typeChar()
   void push (int first, int last)
   {
-    ScreenPosition spLast = screenPositions.get (last);
+    int spLast = getPosition (last);
     while (first < last)
     {
-      ScreenPosition sp = screenPositions.get (--last);
-      spLast.setChar (sp.getByte ());
-      spLast.setScreenContext (sp.getScreenContext ());
+      int sp = getPosition (--last);
+      screenBuffer.copyChar (sp, spLast);
       spLast = sp;
     }
   }
 
   // called from Cursor.typeChar()
-  byte getByteAt (int position)
+  // called from ScreenPacker.packField()
+  byte getByteAt (int offset)
   {
-    return screenPositions.get (position).getByte ();
+    return screenBuffer.getByte (getPosition (offset));
   }
 
   // called from FieldManager.*()
@@ -254,15 +259,9 @@ public class Field implements Iterable<ScreenPosition>
     if (startPosition == endPosition)
       return "";
 
-    char[] buffer = new char[getDisplayLength ()];
-    int ptr = 0;
-
-    for (ScreenPosition screenPosition : screenPositions)
-      if (!screenPosition.isStartField ())           // skip the start field attribute
-        if (ptr < buffer.length)
-          buffer[ptr++] = screenPosition.getChar ();
-        else
-          System.out.printf ("Too long: %d%n", ptr);
+    char[] buffer = new char[size - 1];
+    for (int i = 1; i < size; i++)                  // skip the start field attribute
+      buffer[i - 1] = screenBuffer.getChar (getPosition (i));
 
     return new String (buffer);
   }
@@ -270,16 +269,9 @@ public class Field implements Iterable<ScreenPosition>
   // called from TSOCommand.execute()
   public void setText (String text)
   {
-    try
-    {
-      erase ();                                     // sets the field to modified
-      setText (text.getBytes ("CP1047"));
-      draw ();
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
+    erase ();                                     // sets the field to modified
+    setText (screen.getCodec ().getBytes (text));
+    draw ();
   }
 
   // called from Screen.setFieldText()
@@ -289,8 +281,8 @@ public class Field implements Iterable<ScreenPosition>
   {
     int ptr = 1;
     for (byte b : buffer)
-      if (ptr < screenPositions.size ())
-        screenPositions.get (ptr++).setChar (b);
+      if (ptr < size)
+        screenBuffer.setChar (getPosition (ptr++), b);
       else
       {
         System.out.println ("Buffer overrun");
@@ -334,10 +326,4 @@ public class Field implements Iterable<ScreenPosition>
     return String.format ("%04d-%04d %s [%s]", startPosition, endPosition,
                           startFieldAttribute.getAcronym (), getText ());
   }
-
-  @Override
-  public Iterator<ScreenPosition> iterator ()
-  {
-    return screenPositions.iterator ();
-  }
-}
\ No newline at end of file
+}
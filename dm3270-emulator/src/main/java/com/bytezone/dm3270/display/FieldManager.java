@@ -3,12 +3,13 @@ package com.bytezone.dm3270.display;
 import static com.bytezone.dm3270.database.DatabaseRequest.Command.CLOSE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import com.bytezone.dm3270.attributes.Attribute;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
@@ -16,6 +17,7 @@ import com.bytezone.dm3270.database.DatabaseRequest;
 import com.bytezone.dm3270.database.DatabaseRequest.Command;
 import com.bytezone.dm3270.database.DatabaseThread;
 import com.bytezone.dm3270.database.Initiator;
+import com.bytezone.dm3270.metrics.DatabaseQueueMetrics;
 import com.bytezone.dm3270.plugins.PluginData;
 import com.bytezone.dm3270.plugins.PluginField;
 import com.bytezone.dm3270.plugins.ScreenLocation;
@@ -32,6 +34,10 @@ public class FieldManager implements Initiator
   private final List<Field> unprotectedFields = new ArrayList<> ();
   private final List<Field> emptyFields = new ArrayList<> ();
 
+  // index into fields for each screen position, or -1 when there are no fields
+  private int[] fieldIndex = new int[0];
+  private int[] fieldStarts = new int[0];       // SFA positions, filled by divide()
+
   private int dataPositions;
   private int inputPositions;
   private int hiddenProtectedFields;
@@ -39,6 +45,7 @@ public class FieldManager implements Initiator
 
   private BlockingQueue<DatabaseRequest> queue;
   private DatabaseThread databaseThread;
+  private DatabaseQueueMetrics databaseQueueMetrics;
 
   FieldManager (Screen screen, ContextManager contextManager,
       ScreenDimensions screenDimensions, Site serverSite)
@@ -49,9 +56,13 @@ public class FieldManager implements Initiator
 
     if (serverSite != null)
     {
-      queue = new ArrayBlockingQueue<> (64);
+      // unbounded, so that the EDT never waits for the database
+      queue = new LinkedBlockingQueue<> ();
       databaseThread = new DatabaseThread (serverSite.getName () + ".db", queue);
       databaseThread.start ();
+      databaseQueueMetrics = new DatabaseQueueMetrics (databaseThread);
+      databaseQueueMetrics.register (serverSite.getName (),
+                                     screen.getFunction ().name ());
       try
       {
         queue.put (new DatabaseRequest (this, Command.OPEN));
@@ -63,7 +74,8 @@ public class FieldManager implements Initiator
       }
     }
 
-    screenWatcher = new ScreenWatcher (this, screenDimensions, queue);
+    screenWatcher =
+        new ScreenWatcher (this, screenDimensions, queue, databaseQueueMetrics);
   }
 
   // ScreenWatcher is never deleted, but most (not all) of its fields are refreshed
@@ -75,7 +87,14 @@ public class FieldManager implements Initiator
   void setScreenDimensions (ScreenDimensions screenDimensions)
   {
     this.screenDimensions = screen.getScreenDimensions ();
-    screenWatcher = new ScreenWatcher (this, screenDimensions, queue);
+    screenWatcher =
+        new ScreenWatcher (this, screenDimensions, queue, databaseQueueMetrics);
+  }
+
+  // returns false if there is no site database
+  public boolean sendDatabaseRequest (DatabaseRequest request)
+  {
+    return queue != null && queue.offer (request);
   }
 
   // called by Screen.clearScreen()
@@ -84,11 +103,13 @@ public class FieldManager implements Initiator
     fields.clear ();
     unprotectedFields.clear ();
     emptyFields.clear ();
+    Arrays.fill (fieldIndex, -1);
   }
 
   void close ()
   {
     if (queue != null)
+    {
       try
       {
         queue.put (new DatabaseRequest (this, CLOSE));
@@ -97,11 +118,18 @@ public class FieldManager implements Initiator
       {
         e.printStackTrace ();
       }
+      databaseQueueMetrics.unregister ();
+    }
   }
 
   // this is called after the pen and screen positions have been modified
-  void buildFields (ScreenPosition[] screenPositions)
+  void buildFields (ScreenBuffer screenBuffer)
   {
+    if (fieldIndex.length != screenBuffer.size ())
+    {
+      fieldIndex = new int[screenBuffer.size ()];
+      fieldStarts = new int[screenBuffer.size ()];
+    }
     reset ();
 
     dataPositions = 0;
@@ -109,10 +137,24 @@ public class FieldManager implements Initiator
     hiddenProtectedFields = 0;
     hiddenUnprotectedFields = 0;
 
-    for (List<ScreenPosition> protoField : divide (screenPositions))
+    int totalFields = divide (screenBuffer, fieldStarts);
+    for (int fieldNo = 0; fieldNo < totalFields; fieldNo++)
     {
-      addField (new Field (screen, protoField));
-      setContexts (protoField);
+      int first = fieldStarts[fieldNo];
+      int last = getFieldEnd (screenBuffer, fieldStarts, totalFields, fieldNo);
+
+      addField (new Field (screen, screenBuffer, first, last));
+      setContexts (screenBuffer, first, last);
+
+      int ptr = first;
+      while (true)
+      {
+        fieldIndex[ptr] = fieldNo;
+        if (ptr == last)
+          break;
+        if (++ptr == screenBuffer.size ())
+          ptr = 0;
+      }
     }
 
     //    assert dataPositions + fields.size () == 1920 || fields.size () == 0;
@@ -176,9 +218,11 @@ public class FieldManager implements Initiator
         ++hiddenUnprotectedFields;
   }
 
-  public Optional<Field> getFieldAt (int position)        // should this be indexed?
+  public Optional<Field> getFieldAt (int position)
   {
-    return fields.parallelStream ().filter (f -> f.contains (position)).findAny ();
+    if (position < 0 || position >= fieldIndex.length || fieldIndex[position] < 0)
+      return Optional.empty ();
+    return Optional.of (fields.get (fieldIndex[position]));
   }
 
   public List<Field> getUnprotectedFields ()
@@ -222,17 +266,19 @@ public class FieldManager implements Initiator
     return getFieldsInRange (firstLocation, lastLocation);
   }
 
+  // fields with data that begins within the range, found by walking the index
   private List<Field> getFieldsInRange (int firstLocation, int lastLocation)
   {
     List<Field> rowFields = new ArrayList<> ();
-    for (Field field : fields)
+    lastLocation = Math.min (lastLocation, fieldIndex.length - 1);
+
+    for (int location = firstLocation; location <= lastLocation; location++)
     {
-      int location = field.getFirstLocation ();
-      if (location < firstLocation)
+      int fieldNo = fieldIndex[location];
+      if (fieldNo < 0)
         continue;
-      if (location > lastLocation)
-        break;
-      if (field.getDisplayLength () > 0)
+      Field field = fields.get (fieldNo);
+      if (field.getFirstLocation () == location && field.getDisplayLength () > 0)
         rowFields.add (field);
     }
     return rowFields;
@@ -329,90 +375,64 @@ public class FieldManager implements Initiator
   }
 
   // ---------------------------------------------------------------------------------//
-  // Divide the ScreenPositions into fields
+  // Divide the ScreenBuffer into fields
   // ---------------------------------------------------------------------------------//
 
-  static List<List<ScreenPosition>> divide (ScreenPosition[] screenPositions)
+  // Store the position of every start field attribute in fieldStarts, and return the
+  // number of fields. Each field runs up to the position before the next attribute.
+  static int divide (ScreenBuffer screenBuffer, int[] fieldStarts)
   {
-    List<List<ScreenPosition>> components = new ArrayList<> ();
-    List<ScreenPosition> positions = new ArrayList<ScreenPosition> ();
-
-    int start = -1;
-    int first = -1;
-    int ptr = 0;
-
-    while (ptr != first)                    // not wrapped around to the first field yet
-    {
-      ScreenPosition screenPosition = screenPositions[ptr];
-
-      if (screenPosition.isStartField ())   // check for the start of a new field
-      {
-        if (start >= 0)                     // if there is a field to add
-        {
-          components.add (new ArrayList<> (positions));
-          positions.clear ();
-        }
-        else
-          first = ptr;                      // this is the first field on the screen
-
-        start = ptr;                        // beginning of the current field
-      }
-
-      if (start >= 0)                       // if we are in a field...
-        positions.add (screenPosition);     // collect next field's positions
-
-      // increment ptr and wrap around
-      if (++ptr == screenPositions.length)  // faster than validate()
-      {
-        ptr = 0;
-        if (first == -1)
-          break;                            // wrapped around and still no fields
-      }
-    }
-
-    if (start >= 0 && positions.size () > 0)
-      components.add (new ArrayList<> (positions));
+    int totalFields = 0;
+    for (int ptr = 0; ptr < screenBuffer.size (); ptr++)
+      if (screenBuffer.isStartField (ptr))
+        fieldStarts[totalFields++] = ptr;
+    return totalFields;
+  }
 
-    return components;
+  // the last field wraps around to the position before the first field
+  static int getFieldEnd (ScreenBuffer screenBuffer, int[] fieldStarts,
+      int totalFields, int fieldNo)
+  {
+    int next = fieldNo + 1 < totalFields ? fieldStarts[fieldNo + 1] : fieldStarts[0];
+    return next == 0 ? screenBuffer.size () - 1 : next - 1;
   }
 
   // ---------------------------------------------------------------------------------//
-  // Process a field's ScreenPositions
+  // Process the screen positions of a field
   // ---------------------------------------------------------------------------------//
 
-  void setContexts (List<ScreenPosition> positions)
+  // called from buildFields()
+  // called from HistoryScreen.createScreen()
+  void setContexts (ScreenBuffer screenBuffer, int first, int last)
   {
-    StartFieldAttribute startFieldAttribute = positions.get (0).getStartFieldAttribute ();
+    StartFieldAttribute startFieldAttribute =
+        screenBuffer.getStartFieldAttribute (first);
     ScreenContext defaultContext =
         startFieldAttribute.process (contextManager, null, null);
-
-    if (startFieldAttribute.isExtended ())
-      setExtendedContext (defaultContext, positions);
-    else
-      positions.forEach (sp -> sp.setScreenContext (defaultContext));
-
-    if (startFieldAttribute.isHidden ())
-      positions.forEach (sp -> sp.setVisible (false));
-  }
-
-  private void setExtendedContext (ScreenContext defaultContext,
-      List<ScreenPosition> positions)
-  {
-    boolean first = true;
     ScreenContext currentContext = defaultContext;
+    boolean isExtended = startFieldAttribute.isExtended ();
+    boolean isHidden = startFieldAttribute.isHidden ();
 
-    for (ScreenPosition screenPosition : positions)
+    int ptr = first;
+    while (true)
     {
-      for (Attribute attribute : screenPosition.getAttributes ())
-        currentContext =
-            attribute.process (contextManager, defaultContext, currentContext);
-
-      if (first)
+      if (isExtended)
       {
-        first = false;
-        defaultContext = currentContext;
+        for (Attribute attribute : screenBuffer.getAttributes (ptr))
+          currentContext =
+              attribute.process (contextManager, defaultContext, currentContext);
+        if (ptr == first)
+          defaultContext = currentContext;
       }
-      screenPosition.setScreenContext (currentContext);
+
+      screenBuffer.setScreenContext (ptr, currentContext);
+      if (isHidden)
+        screenBuffer.setVisible (ptr, false);
+
+      if (ptr == last)
+        break;
+      if (++ptr == screenBuffer.size ())
+        ptr = 0;
     }
   }
 
@@ -1,8 +1,12 @@
 package com.bytezone.dm3270.display;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.sun.javafx.tk.FontMetrics;
 import com.sun.javafx.tk.Toolkit;
 
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 
 public class FontDetails
@@ -13,6 +17,11 @@ public class FontDetails
   public final int descent;
   public final Font font;
 
+  // true when each character advances exactly one cell, so that a run of characters
+  // can be drawn with a single fillText()
+  public final boolean exactAdvance;
+  private final Map<Color, GlyphAtlas> glyphAtlases = new HashMap<> ();
+
   public final String name;
   public final int size;
 
@@ -24,13 +33,27 @@ public class FontDetails
 
     FontMetrics fontMetrics =
         Toolkit.getToolkit ().getFontLoader ().getFontMetrics (font);
-    width = (int) (fontMetrics.computeStringWidth ("W") + 0.9);
+    double advance = fontMetrics.computeStringWidth ("W");
+    width = (int) (advance + 0.9);
+    exactAdvance = Math.abs (advance - width) < 0.01;
 
     ascent = (int) (fontMetrics.getAscent () + fontMetrics.getLeading () + 0.9);
     descent = (int) (fontMetrics.getDescent () + 0.9);
     height = ascent + descent;
   }
 
+  // called from ScreenCanvas.drawRun() on the EDT
+  GlyphAtlas getGlyphAtlas (Color color)
+  {
+    GlyphAtlas glyphAtlas = glyphAtlases.get (color);
+    if (glyphAtlas == null)
+    {
+      glyphAtlas = new GlyphAtlas (this, color);
+      glyphAtlases.put (color, glyphAtlas);
+    }
+    return glyphAtlas;
+  }
+
   @Override
   public String toString ()
   {
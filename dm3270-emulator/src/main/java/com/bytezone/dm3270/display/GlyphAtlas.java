@@ -0,0 +1,48 @@
+package com.bytezone.dm3270.display;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+// Every printable character of a FontDetails in one colour, pre-rasterised into a
+// single image of 16 x 16 cells. Drawing a character is then an image copy instead
+// of a text layout. Must be created on the EDT.
+
+class GlyphAtlas
+{
+  private static final int COLUMNS = 16;
+
+  private final Image image;
+  private final int width;
+  private final int height;
+
+  // created by FontDetails.getGlyphAtlas()
+  GlyphAtlas (FontDetails fontDetails, Color color)
+  {
+    width = fontDetails.width;
+    height = fontDetails.height;
+
+    Canvas canvas = new Canvas (width * COLUMNS, height * COLUMNS);
+    GraphicsContext gc = canvas.getGraphicsContext2D ();
+    gc.setFont (fontDetails.font);
+    gc.setFill (color);
+
+    for (int i = 33; i < 256; i++)
+      gc.fillText (ScreenBuffer.getIndexString (i), i % COLUMNS * width,
+                   i / COLUMNS * height + fontDetails.ascent);
+
+    SnapshotParameters parameters = new SnapshotParameters ();
+    parameters.setFill (Color.TRANSPARENT);
+    image = canvas.snapshot (parameters, null);
+  }
+
+  // called from ScreenCanvas.drawRun()
+  void draw (GraphicsContext gc, int index, double x, double y)
+  {
+    if (index > 32)
+      gc.drawImage (image, index % COLUMNS * width, index / COLUMNS * height, width,
+                    height, x, y, width, height);
+  }
+}
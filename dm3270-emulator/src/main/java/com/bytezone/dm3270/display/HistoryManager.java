@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 public class HistoryManager
 {
@@ -12,6 +13,7 @@ public class HistoryManager
   private final List<HistoryScreen> screens = new ArrayList<> (MAX_SCREENS);
   private final ContextManager contextManager;
   private final FieldManager fieldManager;
+  private final EbcdicCodec codec;
   private ScreenDimensions screenDimensions;
 
   private boolean keyboardLocked;       // save previous setting
@@ -19,11 +21,12 @@ public class HistoryManager
   private int currentScreen = -1;       // never been set
 
   public HistoryManager (ScreenDimensions screenDimensions, ContextManager contextManager,
-      FieldManager fieldManager)
+      FieldManager fieldManager, EbcdicCodec codec)
   {
     this.screenDimensions = screenDimensions;
     this.contextManager = contextManager;
     this.fieldManager = fieldManager;
+    this.codec = codec;
   }
 
   // called from Screen.checkRecording()
@@ -72,7 +75,7 @@ public class HistoryManager
         --currentScreen;
     }
     screens.add (new HistoryScreen (screenDimensions, command, contextManager,
-        fieldManager));
+        fieldManager, codec));
   }
 
   public int size ()
@@ -1,35 +1,29 @@
 package com.bytezone.dm3270.display;
 
-import java.util.List;
-
-import com.bytezone.dm3270.attributes.ColorAttribute;
 import com.bytezone.dm3270.commands.AIDCommand;
 import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-
-public class HistoryScreen extends Canvas implements DisplayScreen
+public class HistoryScreen extends ScreenCanvas implements DisplayScreen
 {
-  private ScreenPosition[] screenPositions;
+  private ScreenBuffer screenBuffer;
   private final ScreenDimensions screenDimensions;
 
   private final AIDCommand command;
   private final ContextManager contextManager;
   private final FieldManager fieldManager;
+  private final EbcdicCodec codec;
   private Pen pen;
-  private final GraphicsContext gc;
 
   // created by HistoryManager.add()
   HistoryScreen (ScreenDimensions screenDimensions, AIDCommand command,
-      ContextManager contextManager, FieldManager fieldManager)
+      ContextManager contextManager, FieldManager fieldManager, EbcdicCodec codec)
   {
     this.screenDimensions = screenDimensions;
     this.contextManager = contextManager;
     this.fieldManager = fieldManager;
     this.command = command;
-
-    gc = getGraphicsContext2D ();
+    this.codec = codec;
   }
 
   @Override
@@ -46,31 +40,31 @@ public class HistoryScreen extends Canvas implements DisplayScreen
   // called by ConsolePane.changeScreen()
   public void drawScreen (FontDetails fontDetails)
   {
-    if (screenPositions == null)
+    if (screenBuffer == null)
       createScreen (fontDetails);
 
-    for (ScreenPosition screenPosition : screenPositions)
-      screenPosition.draw (false);
+    for (int i = 0; i < screenBuffer.size (); i++)
+      drawPosition (screenBuffer, i, false);
   }
 
   private void createScreen (FontDetails fontDetails)
   {
-    setWidth (fontDetails.width * screenDimensions.columns
-        + screenDimensions.xOffset * 2);
-    setHeight (fontDetails.height * screenDimensions.rows + screenDimensions.yOffset * 2);
-
-    gc.setFont (fontDetails.font);
+    setFont (fontDetails, screenDimensions);
 
-    screenPositions = new ScreenPosition[screenDimensions.size];
-    pen = Pen.getInstance (screenPositions, gc, contextManager, screenDimensions);
+    screenBuffer =
+        new ScreenBuffer (screenDimensions, contextManager.getDefaultScreenContext (),
+            codec);
+    pen = Pen.getInstance (screenBuffer, screenDimensions);
 
     clearScreen ();
     for (Order order : command)
       order.process (this);
 
-    List<List<ScreenPosition>> protoFields = FieldManager.divide (screenPositions);
-    for (List<ScreenPosition> protoField : protoFields)
-      fieldManager.setContexts (protoField);
+    int[] fieldStarts = new int[screenBuffer.size ()];
+    int totalFields = FieldManager.divide (screenBuffer, fieldStarts);
+    for (int fieldNo = 0; fieldNo < totalFields; fieldNo++)
+      fieldManager.setContexts (screenBuffer, fieldStarts[fieldNo], FieldManager
+          .getFieldEnd (screenBuffer, fieldStarts, totalFields, fieldNo));
   }
 
   @Override
@@ -80,15 +74,9 @@ public class HistoryScreen extends Canvas implements DisplayScreen
   }
 
   @Override
-  public ScreenPosition getScreenPosition (int position)
-  {
-    return screenPositions[position];
-  }
-
-  @Override
-  public ScreenPosition[] getScreenPositions ()
+  public ScreenBuffer getScreenBuffer ()
   {
-    return screenPositions;
+    return screenBuffer;
   }
 
   @Override
@@ -100,8 +88,7 @@ public class HistoryScreen extends Canvas implements DisplayScreen
   @Override
   public void clearScreen ()
   {
-    gc.setFill (ColorAttribute.colors[8]);                // black
-    gc.fillRect (0, 0, getWidth (), getHeight ());
+    eraseScreen ();
     pen.clearScreen ();
   }
 
@@ -116,9 +103,9 @@ public class HistoryScreen extends Canvas implements DisplayScreen
     StringBuilder text = new StringBuilder ();
     text.append (String.format ("Rows %d, Columns %d%n", screenDimensions.rows,
                                 screenDimensions.columns));
-    for (ScreenPosition sp : screenPositions)
+    for (int i = 0; i < screenBuffer.size (); i++)
     {
-      text.append (sp);
+      text.append (screenBuffer.toString (i));
       text.append ("\n");
     }
     return text.toString ();
@@ -3,16 +3,15 @@ package com.bytezone.dm3270.display;
 import com.bytezone.dm3270.attributes.Attribute;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
 
-import javafx.scene.canvas.GraphicsContext;
-
-public interface Pen extends Iterable<ScreenPosition>
+public interface Pen
 {
-  static Pen getInstance (ScreenPosition[] screenPositions, GraphicsContext gc,
-      ContextManager contextManager, ScreenDimensions screenDimensions)
+  static Pen getInstance (ScreenBuffer screenBuffer, ScreenDimensions screenDimensions)
   {
-    return new PenType1 (screenPositions, gc, contextManager, screenDimensions);
+    return new PenType1 (screenBuffer, screenDimensions);
   }
 
+  ScreenBuffer getScreenBuffer ();
+
   void clearScreen ();
 
   void startField (StartFieldAttribute startFieldAttribute);
@@ -35,6 +34,12 @@ public interface Pen extends Iterable<ScreenPosition>
 
   String getScreenText ();
 
+  // whether any start field has been written since the screen was cleared
+  boolean isFormatted ();
+
+  // called from Screen.restore()
+  void setFormatted (boolean formatted);
+
   public int validate (int position);
 
   public void setScreenDimensions (ScreenDimensions screenDimensions);
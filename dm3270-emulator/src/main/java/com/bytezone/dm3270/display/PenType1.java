@@ -1,17 +1,14 @@
 package com.bytezone.dm3270.display;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import com.bytezone.dm3270.attributes.Attribute;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
 
-import javafx.scene.canvas.GraphicsContext;
-
 class PenType1 implements Pen
 {
-  private final ScreenPosition[] screenPositions;   // owned by Screen
+  private final ScreenBuffer screenBuffer;          // owned by Screen
 
   private int currentPosition;
   private boolean formattedScreen;
@@ -20,17 +17,17 @@ class PenType1 implements Pen
   private final List<Attribute> pendingAttributes = new ArrayList<> ();
 
   // created by Screen and HistoryScreen
-  PenType1 (ScreenPosition[] screenPositions, GraphicsContext gc,
-      ContextManager contextManager, ScreenDimensions screenDimensions)
+  PenType1 (ScreenBuffer screenBuffer, ScreenDimensions screenDimensions)
   {
-    this.screenPositions = screenPositions;
+    this.screenBuffer = screenBuffer;
     this.screenDimensions = screenDimensions;
     //    columns = screenDimensions.columns;
+  }
 
-    ScreenContext defaultContext = contextManager.getDefaultScreenContext ();
-
-    for (int i = 0; i < screenPositions.length; i++)
-      screenPositions[i] = new ScreenPosition (i, gc, screenDimensions, defaultContext);
+  @Override
+  public ScreenBuffer getScreenBuffer ()
+  {
+    return screenBuffer;
   }
 
   // called from Screen.clearScreen()
@@ -38,8 +35,8 @@ class PenType1 implements Pen
   @Override
   public void clearScreen ()
   {
-    for (ScreenPosition screenPosition : screenPositions)
-      screenPosition.reset ();
+    for (int i = 0; i < screenBuffer.size (); i++)
+      screenBuffer.reset (i);
 
     formattedScreen = false;
   }
@@ -50,11 +47,9 @@ class PenType1 implements Pen
   {
     formattedScreen = true;
 
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-
-    screenPosition.reset ();
-    screenPosition.setStartField (startFieldAttribute);
-    screenPosition.setVisible (false);
+    screenBuffer.reset (currentPosition);
+    screenBuffer.setStartField (currentPosition, startFieldAttribute);
+    screenBuffer.setVisible (currentPosition, false);
 
     // sometimes a reset attribute is overwritten by a new SFA
     if (pendingAttributes.size () > 0)
@@ -91,9 +86,8 @@ class PenType1 implements Pen
   @Override
   public void writeGraphics (byte b)
   {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-    screenPosition.reset ();
-    screenPosition.setGraphicsChar (b);
+    screenBuffer.reset (currentPosition);
+    screenBuffer.setGraphicsChar (currentPosition, b);
     moveRight ();
   }
 
@@ -103,16 +97,15 @@ class PenType1 implements Pen
   @Override
   public void write (byte b)
   {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-    screenPosition.reset ();
-    screenPosition.setChar (b);
+    screenBuffer.reset (currentPosition);
+    screenBuffer.setChar (currentPosition, b);
     moveRight ();
   }
 
-  private void applyAttributes (ScreenPosition screenPosition)
+  private void applyAttributes (int position)
   {
     for (Attribute attribute : pendingAttributes)
-      screenPosition.addAttribute (attribute);
+      screenBuffer.addAttribute (position, attribute);
     pendingAttributes.clear ();
   }
 
@@ -125,7 +118,7 @@ class PenType1 implements Pen
   public void moveRight ()
   {
     if (pendingAttributes.size () > 0)
-      applyAttributes (screenPositions[currentPosition]);
+      applyAttributes (currentPosition);
 
     currentPosition = validate (currentPosition + 1);
   }
@@ -142,10 +135,9 @@ class PenType1 implements Pen
 
     while (true)
     {
-      ScreenPosition screenPosition = screenPositions[currentPosition];
-      if (screenPosition.isStartField ())
+      if (screenBuffer.isStartField (currentPosition))
         break;
-      screenPosition.setChar ((byte) 0);
+      screenBuffer.setChar (currentPosition, (byte) 0);
       moveRight ();
     }
   }
@@ -154,9 +146,8 @@ class PenType1 implements Pen
   @Override
   public void tab ()
   {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-    if (screenPosition.isStartField ()
-        && !screenPosition.getStartFieldAttribute ().isProtected ())
+    if (screenBuffer.isStartField (currentPosition)
+        && !screenBuffer.getStartFieldAttribute (currentPosition).isProtected ())
     {
       currentPosition = validate (currentPosition + 1);
       return;
@@ -170,8 +161,7 @@ class PenType1 implements Pen
         currentPosition = 0;
         break;
       }
-      screenPosition = screenPositions[next];
-      if (!screenPosition.getStartFieldAttribute ().isProtected ())
+      if (!screenBuffer.getStartFieldAttribute (next).isProtected ())
       {
         currentPosition = validate (next + 1);
         break;
@@ -191,7 +181,7 @@ class PenType1 implements Pen
         for (Attribute attribute : pendingAttributes)
           System.out.println (attribute);
       }
-      applyAttributes (screenPositions[currentPosition]);
+      applyAttributes (currentPosition);
     }
     currentPosition = validate (position);
   }
@@ -202,9 +192,8 @@ class PenType1 implements Pen
     while (true)
     {
       pos = validate (pos + 1);
-      ScreenPosition screenPosition = screenPositions[pos];
 
-      if (screenPosition.isStartField ())
+      if (screenBuffer.isStartField (pos))
         return pos;
 
       if (pos == position)
@@ -219,10 +208,10 @@ class PenType1 implements Pen
   public int validate (int position)
   {
     while (position < 0)
-      position += screenPositions.length;
+      position += screenBuffer.size ();
 
-    while (position >= screenPositions.length)
-      position -= screenPositions.length;
+    while (position >= screenBuffer.size ())
+      position -= screenBuffer.size ();
 
     return position;
   }
@@ -231,8 +220,7 @@ class PenType1 implements Pen
   public void setScreenDimensions (ScreenDimensions screenDimensions)
   {
     this.screenDimensions = screenDimensions;
-    for (int i = 0; i < screenDimensions.size; i++)
-      screenPositions[i].setScreenDimensions (screenDimensions);
+    screenBuffer.setScreenDimensions (screenDimensions);
   }
 
   @Override
@@ -240,60 +228,44 @@ class PenType1 implements Pen
   {
     StringBuilder text = new StringBuilder ();
 
-    int pos = 0;
-    for (ScreenPosition sp : screenPositions)
+    for (int pos = 0; pos < screenBuffer.size (); pos++)
     {
-      if (sp.isStartField ())
+      if (screenBuffer.isStartField (pos))
         text.append ("%");
       else
-        text.append (sp.getCharString ());
-      if (++pos % screenDimensions.columns == 0)
+        text.append (screenBuffer.getCharString (pos));
+      if ((pos + 1) % screenDimensions.columns == 0)
         text.append ("\n");
     }
 
     return text.toString ();
   }
 
+  @Override
+  public boolean isFormatted ()
+  {
+    return formattedScreen;
+  }
+
+  @Override
+  public void setFormatted (boolean formatted)
+  {
+    formattedScreen = formatted;
+  }
+
   // ---------------------------------------------------------------------------------//
   // Debugging
   // ---------------------------------------------------------------------------------//
 
   private void dumpScreenPositions ()
   {
-    dumpScreenPositions (0, screenPositions.length);
+    dumpScreenPositions (0, screenBuffer.size ());
   }
 
   private void dumpScreenPositions (int from, int to)
   {
     while (from < to)
-      System.out.println (screenPositions[from++]);
-  }
-
-  @Override
-  public Iterator<ScreenPosition> iterator ()
-  {
-    return new Iterator<ScreenPosition> ()
-    {
-      private int pos = 0;
-
-      @Override
-      public boolean hasNext ()
-      {
-        return screenPositions.length > pos;
-      }
-
-      @Override
-      public ScreenPosition next ()
-      {
-        return screenPositions[pos++];
-      }
-
-      @Override
-      public void remove ()
-      {
-        throw new UnsupportedOperationException ("Cannot remove an element of an array.");
-      }
-    };
+      System.out.println (screenBuffer.toString (from++));
   }
 
   @Override
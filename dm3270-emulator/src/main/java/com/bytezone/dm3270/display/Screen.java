@@ -4,7 +4,6 @@ import static com.bytezone.dm3270.application.Console.Function.TERMINAL;
 import static com.bytezone.dm3270.commands.AIDCommand.NO_AID_SPECIFIED;
 
 import java.awt.Toolkit;
-import java.io.UnsupportedEncodingException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -17,7 +16,6 @@ import com.bytezone.dm3270.application.KeyboardStatusChangedEvent;
 import com.bytezone.dm3270.application.KeyboardStatusListener;
 import com.bytezone.dm3270.assistant.TransfersStage;
 import com.bytezone.dm3270.attributes.Attribute;
-import com.bytezone.dm3270.attributes.ColorAttribute;
 import com.bytezone.dm3270.commands.AIDCommand;
 import com.bytezone.dm3270.commands.Command;
 import com.bytezone.dm3270.commands.SystemMessage;
@@ -34,18 +32,14 @@ import com.bytezone.dm3270.plugins.PluginsStage;
 import com.bytezone.dm3270.streams.TelnetState;
 import com.bytezone.dm3270.streams.TelnetStateListener;
 import com.bytezone.dm3270.structuredfields.SetReplyModeSF;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import com.bytezone.dm3270.utilities.Site;
 
 import javafx.application.Platform;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.MenuItem;
-import javafx.stage.Stage;
 
-public class Screen extends Canvas
-    implements DisplayScreen, TransferListener, TelnetStateListener
+public class Screen implements DisplayScreen, TransferListener, TelnetStateListener
 {
-  private static final Toolkit defaultToolkit = Toolkit.getDefaultToolkit ();
   private static final boolean SHOW_CURSOR = true;
   private static final boolean HIDE_CURSOR = false;
   private static final byte[] saveScreenReplyTypes =
@@ -54,7 +48,7 @@ public class Screen extends Canvas
 
   private final Function function;
 
-  private final ScreenPosition[] screenPositions;
+  private final ScreenBuffer screenBuffer;
   private final FieldManager fieldManager;
   private final FontManager fontManager;
   private final ContextManager contextManager;
@@ -70,7 +64,8 @@ public class Screen extends Canvas
   private ConsolePane consolePane;
   private final TelnetState telnetState;
 
-  private final GraphicsContext gc;
+  private final ScreenCanvas canvas;                 // null when headless
+  private ScreenRenderer renderer;                   // null when headless
   private final ScreenDimensions defaultScreenDimensions;
   private ScreenDimensions alternateScreenDimensions;
 
@@ -97,57 +92,110 @@ public class Screen extends Canvas
     DEFAULT, ALTERNATE
   }
 
+  // a Screen displayed on a ScreenCanvas, with all of its menus and stages
   public Screen (ScreenDimensions defaultScreenDimensions,
       ScreenDimensions alternateScreenDimensions, Preferences prefs, Function function,
       PluginsStage pluginsStage, Site serverSite, TelnetState telnetState)
+  {
+    this (defaultScreenDimensions, alternateScreenDimensions, function, serverSite,
+        telnetState, new ScreenCanvas (), prefs, pluginsStage);
+  }
+
+  // a headless Screen - no renderer, menus, stages or screen history, so it can be
+  // driven without starting the JavaFX toolkit
+  public Screen (ScreenDimensions defaultScreenDimensions,
+      ScreenDimensions alternateScreenDimensions, Function function, Site serverSite,
+      TelnetState telnetState)
+  {
+    this (defaultScreenDimensions, alternateScreenDimensions, function, serverSite,
+        telnetState, null, null, null);
+  }
+
+  private Screen (ScreenDimensions defaultScreenDimensions,
+      ScreenDimensions alternateScreenDimensions, Function function, Site serverSite,
+      TelnetState telnetState, ScreenCanvas canvas, Preferences prefs,
+      PluginsStage pluginsStage)
   {
     this.defaultScreenDimensions = defaultScreenDimensions;
     this.alternateScreenDimensions = alternateScreenDimensions;
     this.function = function;
     this.telnetState = telnetState;
+    this.canvas = canvas;
+    this.renderer = canvas;
 
     ScreenDimensions screenDimensions = alternateScreenDimensions == null
         ? defaultScreenDimensions : alternateScreenDimensions;
 
     cursor = new Cursor (this, screenDimensions);
-    gc = getGraphicsContext2D ();
 
     contextManager = new ContextManager ();
-    fontManager = FontManager.getInstance (this, prefs);
     fieldManager = new FieldManager (this, contextManager, screenDimensions, serverSite);
-    historyManager = new HistoryManager (screenDimensions, contextManager, fieldManager);
-    transfersStage = new TransfersStage (this);
-
-    consoleLogStage = new ConsoleLogStage (this);
-    systemMessage = new SystemMessage (this, transfersStage, screenDimensions);
-
+    historyManager = new HistoryManager (screenDimensions, contextManager, fieldManager,
+        telnetState.getCodec ());
     transferManager = new TransferManager (this, serverSite);
-    transferMenu = new TransferMenu (serverSite, transferManager);
 
-    transfersStage.setTransferManager (transferManager);
+    if (canvas == null)
+    {
+      fontManager = null;
+      transfersStage = null;
+      consoleLogStage = null;
+      transferMenu = null;
+    }
+    else
+    {
+      canvas.setUseGlyphAtlas (prefs.getBoolean ("GlyphAtlas", false));
+      fontManager = FontManager.getInstance (this, prefs);
+      transfersStage = new TransfersStage (this);
+      consoleLogStage = new ConsoleLogStage (this);
+      transferMenu = new TransferMenu (serverSite, transferManager);
+      transfersStage.setTransferManager (transferManager);
+    }
+
+    systemMessage = new SystemMessage (this, transfersStage, screenDimensions);
 
-    screenPositions = new ScreenPosition[screenDimensions.size];
-    pen = Pen.getInstance (screenPositions, gc, contextManager, screenDimensions);
+    screenBuffer =
+        new ScreenBuffer (screenDimensions, contextManager.getDefaultScreenContext (),
+            telnetState.getCodec ());
+    pen = Pen.getInstance (screenBuffer, screenDimensions);
 
     screenPacker = new ScreenPacker (pen, fieldManager);
-
-    screenPacker.addTSOCommandListener (transfersStage);
     screenPacker.addTSOCommandListener (transferManager);
-
-    addKeyboardStatusChangeListener (transfersStage);
-
-    fieldManager.addScreenChangeListener (transfersStage);
     fieldManager.addScreenChangeListener (screenPacker);
-    fieldManager.addScreenChangeListener (transferMenu);
-
     transferManager.addTransferListener (this);
-    transferManager.addTransferListener (transfersStage);
+
+    if (canvas != null)
+    {
+      screenPacker.addTSOCommandListener (transfersStage);
+      addKeyboardStatusChangeListener (transfersStage);
+      fieldManager.addScreenChangeListener (transfersStage);
+      fieldManager.addScreenChangeListener (transferMenu);
+      transferManager.addTransferListener (transfersStage);
+    }
 
     telnetState.addTelnetStateListener (this);
     setCurrentScreen (ScreenOption.DEFAULT);
 
     this.pluginsStage = pluginsStage;
-    pluginsStage.setScreen (this);
+    if (pluginsStage != null)
+      pluginsStage.setScreen (this);
+  }
+
+  // the JavaFX view, or null when headless
+  public ScreenCanvas getCanvas ()
+  {
+    return canvas;
+  }
+
+  public boolean isHeadless ()
+  {
+    return renderer == null;
+  }
+
+  // replace (or remove) the view that draws this screen
+  public void setRenderer (ScreenRenderer renderer)
+  {
+    this.renderer = renderer;
+    invalidate ();
   }
 
   public ScreenWatcher getScreenWatcher ()
@@ -180,6 +228,11 @@ public class Screen extends Canvas
     return telnetState;
   }
 
+  public EbcdicCodec getCodec ()
+  {
+    return telnetState.getCodec ();
+  }
+
   // called from WriteCommand.process()
   public void setCurrentScreen (ScreenOption value)
   {
@@ -196,6 +249,10 @@ public class Screen extends Canvas
     systemMessage.setScreenDimensions (screenDimensions);
 
     BufferAddress.setScreenWidth (screenDimensions.columns);
+
+    // every cell has moved, so the next draw() must repaint the whole screen
+    eraseScreen ();
+    invalidate ();
   }
 
   @Override
@@ -207,8 +264,10 @@ public class Screen extends Canvas
 
   public void setIsConsole ()
   {
-    consolePane.setIsConsole (true);
-    consoleLogStage.setConsoleLog (systemMessage.getConsoleLog ());
+    if (consolePane != null)
+      consolePane.setIsConsole (true);
+    if (consoleLogStage != null)
+      consoleLogStage.setConsoleLog (systemMessage.getConsoleLog ());
   }
 
   // called from the ConsolePane constructor
@@ -225,7 +284,8 @@ public class Screen extends Canvas
 
   public void setStatusText (String text)
   {
-    consolePane.setStatusText (text);
+    if (consolePane != null)
+      consolePane.setStatusText (text);
   }
 
   public FieldManager getFieldManager ()
@@ -253,7 +313,7 @@ public class Screen extends Canvas
     return fontManager;
   }
 
-  // called by WriteCommand.process()
+  // called by WriteCommand.process() - null when headless
   public PluginsStage getPluginsStage ()
   {
     return pluginsStage;
@@ -271,7 +331,8 @@ public class Screen extends Canvas
 
   public void close ()
   {
-    transfersStage.closeWindow ();
+    if (transfersStage != null)
+      transfersStage.closeWindow ();
     fieldManager.close ();
   }
 
@@ -299,18 +360,10 @@ public class Screen extends Canvas
   // display a message on the screen - only used when logging off
   public void displayText (String text)
   {
-    gc.setFill (ColorAttribute.colors[8]);                // black
-    gc.fillRect (0, 0, getWidth (), getHeight ());
-    gc.setFill (ColorAttribute.colors[5]);                // turquoise
-
-    int x = 120;
-    int y = 100;
-    int height = 20;
-
-    for (String line : text.split ("\n"))
+    if (renderer != null)
     {
-      gc.fillText (line, x, y);
-      y += height;
+      renderer.displayText (text);
+      invalidate ();
     }
   }
 
@@ -361,12 +414,15 @@ public class Screen extends Canvas
 
   public void buildFields (WriteControlCharacter wcc)
   {
-    fieldManager.buildFields (screenPositions);        // what about resetModified?
+    fieldManager.buildFields (screenBuffer);           // what about resetModified?
   }
 
   // called from WriteCommand.process()
   public void checkRecording ()
   {
+    if (canvas == null)                   // history screens are only used for display
+      return;
+
     byte savedReplyMode = replyMode;
     byte[] savedReplyTypes = replyTypes;
 
@@ -379,11 +435,35 @@ public class Screen extends Canvas
   // called from this.eraseAllUnprotected()
   // called from this.resize()
   // called from Write.process()
+  // Only the cells that have changed since they were last drawn are repainted. Each
+  // run of changed cells on a row that share a ScreenContext is drawn in one call.
   public void draw ()
   {
-    int max = getScreenDimensions ().size;
-    for (int i = 0; i < max; i++)
-      screenPositions[i].draw (HIDE_CURSOR);
+    if (renderer != null)
+    {
+      ScreenDimensions screenDimensions = getScreenDimensions ();
+      int max = screenDimensions.size;
+      int columns = screenDimensions.columns;
+      int first = -1;
+
+      for (int i = 0; i < max; i++)
+      {
+        boolean dirty = screenBuffer.isDirty (i);
+
+        if (first >= 0
+            && (!dirty || i % columns == 0 || !screenBuffer.sameRun (first, i)))
+        {
+          drawRun (first, i - 1);
+          first = -1;
+        }
+
+        if (dirty && first < 0)
+          first = i;
+      }
+
+      if (first >= 0)
+        drawRun (first, max - 1);
+    }
 
     if (insertedCursorPosition >= 0)
     {
@@ -392,7 +472,21 @@ public class Screen extends Canvas
       cursor.setVisible (true);
     }
 
-    screenPositions[cursor.getLocation ()].draw (SHOW_CURSOR);
+    drawPosition (cursor.getLocation (), SHOW_CURSOR);
+  }
+
+  private void drawRun (int first, int last)
+  {
+    renderer.drawRun (screenBuffer, first, last);
+    for (int i = first; i <= last; i++)
+      screenBuffer.setDrawn (i);
+  }
+
+  // called when the renderer's contents no longer match the screen positions
+  private void invalidate ()
+  {
+    if (screenBuffer != null)
+      screenBuffer.clearDrawn ();
   }
 
   // called from Field.draw()
@@ -404,7 +498,11 @@ public class Screen extends Canvas
   // called from Cursor.moveTo()
   void drawPosition (int position, boolean hasCursor)
   {
-    screenPositions[position].draw (hasCursor);
+    if (renderer != null)
+    {
+      renderer.drawPosition (screenBuffer, position, hasCursor);
+      screenBuffer.setDrawn (position);
+    }
   }
 
   // called from FontManager() before we are fully initialised
@@ -416,26 +514,23 @@ public class Screen extends Canvas
     // always use the largest available screen
     ScreenDimensions screenDimensions = alternateScreenDimensions == null
         ? defaultScreenDimensions : alternateScreenDimensions;
-    setWidth (fontDetails.width * screenDimensions.columns
-        + screenDimensions.xOffset * 2);
-    setHeight (fontDetails.height * screenDimensions.rows + screenDimensions.yOffset * 2);
+    canvas.setFont (fontDetails, screenDimensions);
 
-    gc.setFont (fontDetails.font);
     if (consolePane != null)
       consolePane.setStatusFont ();
 
-    if (screenPositions != null)
+    if (screenBuffer != null)
     {
-      ((Stage) getScene ().getWindow ()).sizeToScene ();
       eraseScreen ();
+      invalidate ();
       draw ();
     }
   }
 
   void eraseScreen ()
   {
-    gc.setFill (ColorAttribute.colors[8]);             // black
-    gc.fillRect (0, 0, getWidth (), getHeight ());
+    if (renderer != null)
+      renderer.eraseScreen ();
   }
 
   // called from Cursor.home()
@@ -467,16 +562,9 @@ public class Screen extends Canvas
 
   public void setFieldText (Field field, String text)
   {
-    try
-    {
-      field.setText (text.getBytes ("CP1047"));
-      field.setModified (true);
-      field.draw ();                      // draws the field without a cursor
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
+    field.setText (getCodec ().getBytes (text));
+    field.setModified (true);
+    field.draw ();                        // draws the field without a cursor
   }
 
   public String getScreenText ()
@@ -544,7 +632,8 @@ public class Screen extends Canvas
 
   private void setText (String text)
   {
-    Platform.runLater ( () -> setStatusText (text));
+    if (consolePane != null)
+      Platform.runLater ( () -> setStatusText (text));
   }
 
   // ---------------------------------------------------------------------------------//
@@ -558,15 +647,9 @@ public class Screen extends Canvas
   }
 
   @Override
-  public ScreenPosition getScreenPosition (int position)
-  {
-    return screenPositions[position];
-  }
-
-  @Override
-  public ScreenPosition[] getScreenPositions ()
+  public ScreenBuffer getScreenBuffer ()
   {
-    return screenPositions;
+    return screenBuffer;
   }
 
   @Override
@@ -578,7 +661,7 @@ public class Screen extends Canvas
   @Override
   public void clearScreen ()
   {
-    eraseScreen ();
+    // the renderer isn't erased, draw() will repaint only the cells that change
     cursor.moveTo (0);
     pen.clearScreen ();
     fieldManager.reset ();
@@ -650,7 +733,8 @@ public class Screen extends Canvas
 
   public void soundAlarm ()
   {
-    defaultToolkit.beep ();
+    if (renderer != null)
+      Toolkit.getDefaultToolkit ().beep ();
   }
 
   public void restoreKeyboard ()
@@ -705,6 +789,57 @@ public class Screen extends Canvas
       keyboardChangeListeners.remove (listener);
   }
 
+  // ---------------------------------------------------------------------------------//
+  // Snapshots
+  // ---------------------------------------------------------------------------------//
+
+  // called from ReplayIndex
+  public ScreenSnapshot getSnapshot ()
+  {
+    ScreenSnapshot snapshot = new ScreenSnapshot ();
+
+    snapshot.currentScreen = currentScreen;
+    snapshot.currentAID = currentAID;
+    snapshot.replyMode = replyMode;
+    snapshot.replyTypes = replyTypes;
+    snapshot.keyboardLocked = keyboardLocked;
+    snapshot.insertMode = insertMode;
+
+    snapshot.cursorPosition = cursor.getLocation ();
+    snapshot.cursorVisible = cursor.isVisible ();
+    snapshot.penPosition = pen.getPosition ();
+    snapshot.formatted = pen.isFormatted ();
+
+    screenBuffer.save (snapshot);
+
+    return snapshot;
+  }
+
+  // put the screen back the way it was when the snapshot was taken
+  // called from ReplayIndex
+  public void restore (ScreenSnapshot snapshot)
+  {
+    setCurrentScreen (snapshot.currentScreen);
+
+    screenBuffer.restore (snapshot);
+    insertedCursorPosition = -1;
+    pen.moveTo (snapshot.penPosition);
+    pen.setFormatted (snapshot.formatted);
+    fieldManager.buildFields (screenBuffer);
+
+    currentAID = snapshot.currentAID;
+    replyMode = snapshot.replyMode;
+    replyTypes = snapshot.replyTypes;
+    keyboardLocked = snapshot.keyboardLocked;
+    insertMode = snapshot.insertMode;
+    fireKeyboardStatusChange ("");
+
+    cursor.moveTo (snapshot.cursorPosition);
+    cursor.setVisible (snapshot.cursorVisible);
+
+    draw ();
+  }
+
   // ---------------------------------------------------------------------------------//
   // Screen history
   // ---------------------------------------------------------------------------------//
@@ -0,0 +1,407 @@
+package com.bytezone.dm3270.display;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+
+// The contents of every position on a screen, held in parallel arrays indexed by
+// the screen position instead of as an object per position. The ScreenContext of
+// each position is stored as its id in the ContextManager pool.
+
+public final class ScreenBuffer
+{
+  // screen display characters
+  private static final String[] charString = new String[256];
+  private static final List<Attribute> NO_ATTRIBUTES = Collections.emptyList ();
+
+  // GraphicsEscape characters
+  public static final byte TOP_LEFT = (byte) 0xC5;
+  public static final byte TOP_RIGHT = (byte) 0xD5;
+  public static final byte BOTTOM_LEFT = (byte) 0xC4;
+  public static final byte BOTTOM_RIGHT = (byte) 0xD4;
+  public static final byte HORIZONTAL_LINE = (byte) 0xA2;
+  public static final byte VERTICAL_LINE = (byte) 0x85;
+
+  // flags
+  private static final byte GRAPHICS = 0x01;
+  private static final byte HIDDEN = 0x02;
+  private static final byte START_FIELD = 0x04;       // only kept in drawnFlags
+  private static final byte DRAWN = 0x08;
+
+  private ScreenDimensions screenDimensions;
+  private final EbcdicCodec codec;                    // the session's code page
+
+  private final byte[] values;
+  private final short[] contextIds;
+  private final byte[] flags;
+  private final StartFieldAttribute[] startFields;
+  private final List<Attribute>[] attributes;         // null until first needed
+
+  // what the renderer last drew at each position, so that Screen.draw() can skip
+  // unchanged cells
+  private final byte[] drawnValues;
+  private final short[] drawnContextIds;
+  private final byte[] drawnFlags;
+
+  static
+  {
+    // build strings to use in the screen-drawing routine
+    String space = " ";
+    for (int i = 0; i < 33; i++)
+      charString[i] = space;
+    for (int i = 33; i < 256; i++)
+      charString[i] = (char) i + "";
+  }
+
+  // created by Screen and HistoryScreen
+  @SuppressWarnings ({ "unchecked", "rawtypes" })
+  ScreenBuffer (ScreenDimensions screenDimensions, ScreenContext screenContext,
+      EbcdicCodec codec)
+  {
+    this.screenDimensions = screenDimensions;
+    this.codec = codec;
+    int size = screenDimensions.size;
+
+    values = new byte[size];
+    contextIds = new short[size];
+    flags = new byte[size];
+    startFields = new StartFieldAttribute[size];
+    attributes = new List[size];
+
+    drawnValues = new byte[size];
+    drawnContextIds = new short[size];
+    drawnFlags = new byte[size];
+
+    Arrays.fill (contextIds, screenContext.id);
+  }
+
+  int size ()
+  {
+    return values.length;
+  }
+
+  void setScreenDimensions (ScreenDimensions screenDimensions)
+  {
+    this.screenDimensions = screenDimensions;
+  }
+
+  ScreenDimensions getScreenDimensions ()
+  {
+    return screenDimensions;
+  }
+
+  // called from Pen.clearScreen()
+  // called from Pen.startField()
+  // called from Pen.write()
+  // called from Pen.writeGraphics()
+  void reset (int position)
+  {
+    values[position] = 0;
+    flags[position] = 0;
+    startFields[position] = null;
+    clearAttributes (position);
+  }
+
+  // called from Pen.write()
+  // called from Pen.eraseEOF()
+  // called from Cursor.typeChar()
+  // called from Field.erase()
+  // called from Field.clearData()
+  // called from Field.pull()
+  // called from Field.setText()
+  void setChar (int position, byte value)
+  {
+    values[position] = value;
+    flags[position] &= ~GRAPHICS;
+  }
+
+  // called from Pen.writeGraphics()
+  void setGraphicsChar (int position, byte value)
+  {
+    values[position] = value;
+    flags[position] |= GRAPHICS;
+  }
+
+  // the character and context of one position replaces those of another
+  // called from Field.pull()
+  // called from Field.push()
+  void copyChar (int from, int to)
+  {
+    setChar (to, values[from]);
+    contextIds[to] = contextIds[from];
+  }
+
+  StartFieldAttribute getStartFieldAttribute (int position)
+  {
+    return startFields[position];
+  }
+
+  void setStartField (int position, StartFieldAttribute startFieldAttribute)
+  {
+    if (startFieldAttribute == null)
+    {
+      flags[position] &= ~HIDDEN;
+      if (startFields[position] != null)
+        clearAttributes (position);
+    }
+    startFields[position] = startFieldAttribute;
+  }
+
+  void addAttribute (int position, Attribute attribute)
+  {
+    if (attributes[position] == null)
+      attributes[position] = new ArrayList<> (2);
+    attributes[position].add (attribute);
+  }
+
+  List<Attribute> getAttributes (int position)
+  {
+    List<Attribute> list = attributes[position];
+    return list == null ? NO_ATTRIBUTES : list;
+  }
+
+  // called by Field when deleting a character
+  void clearAttributes (int position)
+  {
+    if (attributes[position] != null)
+      attributes[position].clear ();
+  }
+
+  // Password fields etc
+  // called from PenType1.startField()
+  // called from FieldManager.setContexts()
+  void setVisible (int position, boolean visible)
+  {
+    if (visible)
+      flags[position] &= ~HIDDEN;
+    else
+      flags[position] |= HIDDEN;
+  }
+
+  boolean isVisible (int position)
+  {
+    return (flags[position] & HIDDEN) == 0;
+  }
+
+  // All the colour and highlight options
+  void setScreenContext (int position, ScreenContext screenContext)
+  {
+    if (screenContext == null)
+      throw new IllegalArgumentException ("ScreenContext cannot be null");
+    contextIds[position] = screenContext.id;
+  }
+
+  ScreenContext getScreenContext (int position)
+  {
+    return ContextManager.getScreenContext (contextIds[position]);
+  }
+
+  boolean isStartField (int position)
+  {
+    return startFields[position] != null;
+  }
+
+  boolean isGraphicsChar (int position)
+  {
+    return (flags[position] & GRAPHICS) != 0;
+  }
+
+  byte getByte (int position)
+  {
+    return values[position];
+  }
+
+  boolean isNull (int position)
+  {
+    return values[position] == 0;
+  }
+
+  // used by Field.getText()
+  char getChar (int position)
+  {
+    byte value = values[position];
+    if ((value & 0xC0) == 0)
+      return ' ';
+
+    if (isGraphicsChar (position))
+      switch (value)
+      {
+        case HORIZONTAL_LINE:
+          return '-';
+        case VERTICAL_LINE:
+          return '|';
+        default:
+          return '*';
+      }
+
+    return codec.toChar (value);
+  }
+
+  String getCharString (int position)
+  {
+    if (isStartField (position))
+      return " ";
+
+    byte value = values[position];
+    if (isGraphicsChar (position))
+      switch (value)
+      {
+        case HORIZONTAL_LINE:
+          return "-";
+        case VERTICAL_LINE:
+          return "|";
+        case TOP_LEFT:
+        case TOP_RIGHT:
+        case BOTTOM_LEFT:
+        case BOTTOM_RIGHT:
+          return "*";
+        default:
+          return ".";
+      }
+
+    return charString[codec.toChar (value)];
+  }
+
+  // the same character as getCharString() for a non-graphics position, as an index
+  // into a GlyphAtlas (anything unprintable is a space)
+  int getCharIndex (int position)
+  {
+    if (isStartField (position))
+      return ' ';
+
+    int index = codec.toChar (values[position]);
+    return index < 33 ? ' ' : index;
+  }
+
+  static String getIndexString (int index)
+  {
+    return charString[index];
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Drawing
+  // ---------------------------------------------------------------------------------//
+
+  // called from Screen.draw() - positions that can be drawn together
+  boolean sameRun (int first, int position)
+  {
+    return contextIds[first] == contextIds[position]
+        && (flags[first] & HIDDEN) == (flags[position] & HIDDEN);
+  }
+
+  private int getDrawFlags (int position)
+  {
+    return flags[position] | (startFields[position] == null ? 0 : START_FIELD);
+  }
+
+  // called from Screen.draw()
+  boolean isDirty (int position)
+  {
+    return drawnFlags[position] != (getDrawFlags (position) | DRAWN)
+        || values[position] != drawnValues[position]
+        || contextIds[position] != drawnContextIds[position];
+  }
+
+  // called from Screen.draw()
+  // called from Screen.drawPosition()
+  void setDrawn (int position)
+  {
+    drawnValues[position] = values[position];
+    drawnContextIds[position] = contextIds[position];
+    drawnFlags[position] = (byte) (getDrawFlags (position) | DRAWN);
+  }
+
+  // called from Screen.invalidate() when the renderer has lost the screen's contents
+  void clearDrawn ()
+  {
+    Arrays.fill (drawnFlags, (byte) 0);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Snapshots
+  // ---------------------------------------------------------------------------------//
+
+  // Copy the contents into the snapshot. Start fields and attribute lists are sparse,
+  // so only the positions that have them are kept. Start fields are mutable (the
+  // modified flag) and are copied.
+  // called from Screen.getSnapshot()
+  @SuppressWarnings ({ "unchecked", "rawtypes" })
+  void save (ScreenSnapshot snapshot)
+  {
+    int size = size ();
+    snapshot.values = values.clone ();
+    snapshot.contextIds = contextIds.clone ();
+    snapshot.flags = flags.clone ();
+
+    int totalStartFields = 0;
+    int totalAttributes = 0;
+    for (int i = 0; i < size; i++)
+    {
+      if (startFields[i] != null)
+        totalStartFields++;
+      if (attributes[i] != null && !attributes[i].isEmpty ())
+        totalAttributes++;
+    }
+
+    snapshot.startFieldPositions = new int[totalStartFields];
+    snapshot.startFields = new StartFieldAttribute[totalStartFields];
+    snapshot.attributePositions = new int[totalAttributes];
+    snapshot.attributes = new List[totalAttributes];
+
+    for (int i = 0, sf = 0, at = 0; i < size; i++)
+    {
+      if (startFields[i] != null)
+      {
+        snapshot.startFieldPositions[sf] = i;
+        snapshot.startFields[sf++] = startFields[i].copy ();
+      }
+      if (attributes[i] != null && !attributes[i].isEmpty ())
+      {
+        snapshot.attributePositions[at] = i;
+        snapshot.attributes[at++] = new ArrayList<> (attributes[i]);
+      }
+    }
+  }
+
+  // called from Screen.restore()
+  void restore (ScreenSnapshot snapshot)
+  {
+    System.arraycopy (snapshot.values, 0, values, 0, values.length);
+    System.arraycopy (snapshot.contextIds, 0, contextIds, 0, contextIds.length);
+    System.arraycopy (snapshot.flags, 0, flags, 0, flags.length);
+
+    Arrays.fill (startFields, null);
+    for (int i = 0; i < snapshot.startFields.length; i++)
+      startFields[snapshot.startFieldPositions[i]] = snapshot.startFields[i].copy ();
+
+    for (List<Attribute> list : attributes)
+      if (list != null)
+        list.clear ();
+    for (int i = 0; i < snapshot.attributes.length; i++)
+      for (Attribute attribute : snapshot.attributes[i])
+        addAttribute (snapshot.attributePositions[i], attribute);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Debugging
+  // ---------------------------------------------------------------------------------//
+
+  String toString (int position)
+  {
+    StringBuilder text = new StringBuilder ();
+    if (isStartField (position))
+      text.append (".." + startFields[position]);
+    else
+      for (Attribute attribute : getAttributes (position))
+        text.append ("--" + attribute);
+
+    text.append (", byte: " + getCharString (position));
+
+    return text.toString ();
+  }
+}
@@ -0,0 +1,270 @@
+package com.bytezone.dm3270.display;
+
+import com.bytezone.dm3270.attributes.ColorAttribute;
+
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+// The JavaFX view of a Screen (or of a HistoryScreen)
+
+public class ScreenCanvas extends Canvas implements ScreenRenderer
+{
+  private final GraphicsContext gc;
+  private boolean useGlyphAtlas;
+
+  public ScreenCanvas ()
+  {
+    gc = getGraphicsContext2D ();
+  }
+
+  // Draw characters by copying them from a pre-rasterised GlyphAtlas. Only used for
+  // fonts whose advance is not a whole number of pixels.
+  public void setUseGlyphAtlas (boolean useGlyphAtlas)
+  {
+    this.useGlyphAtlas = useGlyphAtlas;
+  }
+
+  // called from Screen.fontChanged()
+  // called from HistoryScreen.createScreen()
+  @Override
+  public void setFont (FontDetails fontDetails, ScreenDimensions screenDimensions)
+  {
+    setWidth (fontDetails.width * screenDimensions.columns
+        + screenDimensions.xOffset * 2);
+    setHeight (fontDetails.height * screenDimensions.rows + screenDimensions.yOffset * 2);
+
+    gc.setFont (fontDetails.font);
+
+    Scene scene = getScene ();
+    if (scene != null)
+    {
+      Window window = scene.getWindow ();
+      if (window instanceof Stage)
+        ((Stage) window).sizeToScene ();
+    }
+  }
+
+  @Override
+  public void eraseScreen ()
+  {
+    gc.setFill (ColorAttribute.colors[8]);                // black
+    gc.fillRect (0, 0, getWidth (), getHeight ());
+  }
+
+  // display a message on the screen - only used when logging off
+  @Override
+  public void displayText (String text)
+  {
+    eraseScreen ();
+    gc.setFill (ColorAttribute.colors[5]);                // turquoise
+
+    int x = 120;
+    int y = 100;
+    int height = 20;
+
+    for (String line : text.split ("\n"))
+    {
+      gc.fillText (line, x, y);
+      y += height;
+    }
+  }
+
+  // called by Screen.draw()
+  // called by Screen.drawPosition()
+  // called by HistoryScreen.drawScreen()
+  @Override
+  public void drawPosition (ScreenBuffer screenBuffer, int position, boolean hasCursor)
+  {
+    ScreenContext screenContext = screenBuffer.getScreenContext (position);
+    FontDetails fontDetails = screenContext.fontDetails;
+    int columns = screenBuffer.getScreenDimensions ().columns;
+    boolean isVisible = screenBuffer.isVisible (position);
+
+    double x = 4 + position % columns * fontDetails.width;
+    double y = 4 + position / columns * fontDetails.height;
+
+    // Draw background
+    if (isVisible)
+      gc.setFill (hasCursor ^ screenContext.reverseVideo ? screenContext.foregroundColor
+          : screenContext.backgroundColor);
+    else
+      gc.setFill (hasCursor ? screenContext.foregroundColor
+          : screenContext.backgroundColor);
+
+    gc.fillRect (x, y, fontDetails.width, fontDetails.height);
+
+    Color foreground = hasCursor ^ screenContext.reverseVideo
+        ? screenContext.backgroundColor : screenContext.foregroundColor;
+
+    // Draw foreground
+    if (isVisible)
+      if (screenBuffer.isGraphicsChar (position))
+      {
+        gc.setStroke (foreground);
+        doGraphics (screenBuffer.getByte (position), fontDetails, x, y);
+      }
+      else
+      {
+        gc.setFill (foreground);
+        gc.fillText (screenBuffer.getCharString (position), x,
+                     y + fontDetails.ascent);
+
+        if (screenContext.underscore)
+        {
+          gc.setStroke (foreground);
+          x += 0.5;     // stroke commands need to be offset for Windows
+          y += 0.5;
+          double y2 = y + fontDetails.height - 1;
+          gc.strokeLine (x, y2, x + fontDetails.width, y2);
+        }
+      }
+  }
+
+  // called by Screen.draw() - one background fill for the run, and a single
+  // fillText() for all of its characters when the font allows it
+  @Override
+  public void drawRun (ScreenBuffer screenBuffer, int first, int last)
+  {
+    ScreenContext screenContext = screenBuffer.getScreenContext (first);
+    FontDetails fontDetails = screenContext.fontDetails;
+    int columns = screenBuffer.getScreenDimensions ().columns;
+    boolean isVisible = screenBuffer.isVisible (first);
+    int length = last - first + 1;
+
+    double x = 4 + first % columns * fontDetails.width;
+    double y = 4 + first / columns * fontDetails.height;
+
+    // Draw background
+    gc.setFill (isVisible && screenContext.reverseVideo ? screenContext.foregroundColor
+        : screenContext.backgroundColor);
+    gc.fillRect (x, y, fontDetails.width * length, fontDetails.height);
+
+    if (!isVisible)
+      return;
+
+    // Draw foreground
+    Color foreground = screenContext.reverseVideo ? screenContext.backgroundColor
+        : screenContext.foregroundColor;
+    gc.setFill (foreground);
+    gc.setStroke (foreground);
+
+    if (fontDetails.exactAdvance)
+      drawText (screenBuffer, first, last, fontDetails, x, y);
+    else if (useGlyphAtlas)
+      drawGlyphs (screenBuffer, first, last, fontDetails.getGlyphAtlas (foreground),
+                  fontDetails, x, y);
+    else
+      drawChars (screenBuffer, first, last, fontDetails, x, y);
+
+    if (screenContext.underscore)
+    {
+      double y2 = y + 0.5 + fontDetails.height - 1;
+      gc.strokeLine (x + 0.5, y2, x + 0.5 + fontDetails.width * length, y2);
+    }
+  }
+
+  // the whole run as one string, with graphics characters drawn separately
+  private void drawText (ScreenBuffer screenBuffer, int first, int last,
+      FontDetails fontDetails, double x, double y)
+  {
+    StringBuilder text = new StringBuilder (last - first + 1);
+    boolean hasText = false;
+
+    for (int i = first; i <= last; i++)
+    {
+      if (screenBuffer.isGraphicsChar (i))
+      {
+        text.append (' ');
+        doGraphics (screenBuffer.getByte (i), fontDetails,
+                    x + (i - first) * fontDetails.width, y);
+      }
+      else
+      {
+        int index = screenBuffer.getCharIndex (i);
+        text.append ((char) index);
+        if (index > 32)
+          hasText = true;
+      }
+    }
+
+    if (hasText)
+      gc.fillText (text.toString (), x, y + fontDetails.ascent);
+  }
+
+  private void drawGlyphs (ScreenBuffer screenBuffer, int first, int last,
+      GlyphAtlas glyphAtlas, FontDetails fontDetails, double x, double y)
+  {
+    for (int i = first; i <= last; i++)
+    {
+      if (screenBuffer.isGraphicsChar (i))
+        doGraphics (screenBuffer.getByte (i), fontDetails, x, y);
+      else
+        glyphAtlas.draw (gc, screenBuffer.getCharIndex (i), x, y);
+      x += fontDetails.width;
+    }
+  }
+
+  private void drawChars (ScreenBuffer screenBuffer, int first, int last,
+      FontDetails fontDetails, double x, double y)
+  {
+    for (int i = first; i <= last; i++)
+    {
+      if (screenBuffer.isGraphicsChar (i))
+        doGraphics (screenBuffer.getByte (i), fontDetails, x, y);
+      else
+      {
+        int index = screenBuffer.getCharIndex (i);
+        if (index > 32)
+          gc.fillText (ScreenBuffer.getIndexString (index), x, y + fontDetails.ascent);
+      }
+      x += fontDetails.width;
+    }
+  }
+
+  private void doGraphics (byte value, FontDetails fontDetails, double x, double y)
+  {
+    x += 0.5;     // stroke commands need to be offset for Windows
+    y += 0.5;
+
+    int dx = fontDetails.width / 2;
+    int dy = fontDetails.height / 2;
+
+    switch (value)
+    {
+      case ScreenBuffer.HORIZONTAL_LINE:
+        gc.strokeLine (x, y + dy, x + fontDetails.width, y + dy);
+        break;
+
+      case ScreenBuffer.VERTICAL_LINE:
+        gc.strokeLine (x + dx, y, x + dx, y + fontDetails.height);
+        break;
+
+      case ScreenBuffer.TOP_LEFT:
+        gc.strokeLine (x + dx, y + dy, x + dx, y + fontDetails.height);   // vertical
+        gc.strokeLine (x + dx, y + dy, x + fontDetails.width, y + dy);    // horizontal
+        break;
+
+      case ScreenBuffer.TOP_RIGHT:
+        gc.strokeLine (x + dx, y + dy, x + dx, y + fontDetails.height);   // vertical
+        gc.strokeLine (x, y + dy, x + dx, y + dy);                        // horizontal
+        break;
+
+      case ScreenBuffer.BOTTOM_LEFT:
+        gc.strokeLine (x + dx, y, x + dx, y + dy);                        // vertical
+        gc.strokeLine (x + dx, y + dy, x + fontDetails.width, y + dy);    // horizontal
+        break;
+
+      case ScreenBuffer.BOTTOM_RIGHT:
+        gc.strokeLine (x + dx, y, x + dx, y + dy);                        // vertical
+        gc.strokeLine (x, y + dy, x + dx, y + dy);                        // horizontal
+        break;
+
+      default:
+        gc.fillText (".", x, y + fontDetails.ascent);
+    }
+  }
+}
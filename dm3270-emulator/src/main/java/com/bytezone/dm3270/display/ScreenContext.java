@@ -16,6 +16,7 @@ public class ScreenContext
   final public boolean blink;
 
   FontDetails fontDetails;
+  short id;                         // position in the ContextManager pool
 
   public ScreenContext (Color foregroundColor, Color backgroundColor, byte highlight,
       boolean highIntensity, FontDetails fontDetails)
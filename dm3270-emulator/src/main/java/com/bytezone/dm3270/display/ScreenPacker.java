@@ -81,15 +81,16 @@ class ScreenPacker implements ScreenChangeListener
   {
     assert field.isModified ();
 
-    for (ScreenPosition sp : field)
-      if (sp.isStartField ())
-      {
-        buffer[ptr++] = Order.SET_BUFFER_ADDRESS;
-        BufferAddress ba = new BufferAddress (field.getFirstLocation ());
-        ptr = ba.packAddress (buffer, ptr);
-      }
-      else if (!sp.isNull ())
-        buffer[ptr++] = sp.getByte ();                  // suppress nulls
+    buffer[ptr++] = Order.SET_BUFFER_ADDRESS;
+    BufferAddress ba = new BufferAddress (field.getFirstLocation ());
+    ptr = ba.packAddress (buffer, ptr);
+
+    for (int offset = 1; offset <= field.getDisplayLength (); offset++)
+    {
+      byte value = field.getByteAt (offset);
+      if (value != 0)
+        buffer[ptr++] = value;                          // suppress nulls
+    }
 
     return ptr;
   }
@@ -106,22 +107,24 @@ class ScreenPacker implements ScreenChangeListener
     ptr = ba.packAddress (buffer, ptr);
 
     // pack every screen location
-    for (ScreenPosition sp : pen)
-      if (sp.isStartField ())
-        ptr = packStartPosition (sp, buffer, ptr, replyMode);
+    ScreenBuffer screenBuffer = pen.getScreenBuffer ();
+    for (int position = 0; position < screenBuffer.size (); position++)
+      if (screenBuffer.isStartField (position))
+        ptr = packStartPosition (screenBuffer, position, buffer, ptr, replyMode);
       else
         // don't suppress nulls
-        ptr = packDataPosition (sp, buffer, ptr, replyMode, replyTypes);
+        ptr = packDataPosition (screenBuffer, position, buffer, ptr, replyMode,
+                                replyTypes);
 
     return new AIDCommand (buffer, 0, ptr);
   }
 
-  private int packStartPosition (ScreenPosition sp, byte[] buffer, int ptr,
-      byte replyMode)
+  private int packStartPosition (ScreenBuffer screenBuffer, int position, byte[] buffer,
+      int ptr, byte replyMode)
   {
-    assert sp.isStartField ();
+    assert screenBuffer.isStartField (position);
 
-    StartFieldAttribute sfa = sp.getStartFieldAttribute ();
+    StartFieldAttribute sfa = screenBuffer.getStartFieldAttribute (position);
 
     if (replyMode == SetReplyModeSF.RM_FIELD)
     {
@@ -132,7 +135,7 @@ class ScreenPacker implements ScreenChangeListener
     {
       buffer[ptr++] = Order.START_FIELD_EXTENDED;
 
-      List<Attribute> attributes = sp.getAttributes ();
+      List<Attribute> attributes = screenBuffer.getAttributes (position);
       buffer[ptr++] = (byte) (attributes.size () + 1);    // +1 for StartFieldAttribute
 
       ptr = sfa.pack (buffer, ptr);                       // pack the SFA first
@@ -143,11 +146,11 @@ class ScreenPacker implements ScreenChangeListener
     return ptr;
   }
 
-  private int packDataPosition (ScreenPosition sp, byte[] buffer, int ptr, byte replyMode,
-      byte[] replyTypes)
+  private int packDataPosition (ScreenBuffer screenBuffer, int position, byte[] buffer,
+      int ptr, byte replyMode, byte[] replyTypes)
   {
     if (replyMode == SetReplyModeSF.RM_CHARACTER)
-      for (Attribute attribute : sp.getAttributes ())
+      for (Attribute attribute : screenBuffer.getAttributes (position))
         if (attribute.getAttributeType () == AttributeType.RESET)
         {
           buffer[ptr++] = Order.SET_ATTRIBUTE;
@@ -162,10 +165,10 @@ class ScreenPacker implements ScreenChangeListener
               break;
             }
 
-    if (sp.isGraphicsChar () && replyMode != SetReplyModeSF.RM_FIELD)
+    if (screenBuffer.isGraphicsChar (position) && replyMode != SetReplyModeSF.RM_FIELD)
       buffer[ptr++] = Order.GRAPHICS_ESCAPE;
 
-    buffer[ptr++] = sp.getByte ();
+    buffer[ptr++] = screenBuffer.getByte (position);
 
     return ptr;
   }
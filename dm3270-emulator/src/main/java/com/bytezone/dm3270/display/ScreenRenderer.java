@@ -0,0 +1,24 @@
+package com.bytezone.dm3270.display;
+
+// A view of a Screen. The Screen only holds the terminal state (positions, fields,
+// cursor and keyboard), and passes every drawing request to its renderer. A Screen
+// without a renderer is headless and does not need the JavaFX toolkit.
+
+public interface ScreenRenderer
+{
+  void drawPosition (ScreenBuffer screenBuffer, int position, boolean hasCursor);
+
+  // Draw the positions from first to last (inclusive), none of which has the cursor.
+  // They are always on the same row, and share a ScreenContext and visibility.
+  default void drawRun (ScreenBuffer screenBuffer, int first, int last)
+  {
+    for (int i = first; i <= last; i++)
+      drawPosition (screenBuffer, i, false);
+  }
+
+  void eraseScreen ();
+
+  void displayText (String text);
+
+  void setFont (FontDetails fontDetails, ScreenDimensions screenDimensions);
+}
@@ -0,0 +1,42 @@
+package com.bytezone.dm3270.display;
+
+import java.util.List;
+
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.display.Screen.ScreenOption;
+
+// Everything that the host's commands can change on a Screen - the buffer, the
+// cursor, the reply mode and the keyboard state. Fields are not kept, they are
+// rebuilt from the buffer when the snapshot is restored.
+
+public final class ScreenSnapshot
+{
+  // Screen
+  ScreenOption currentScreen;
+  byte currentAID;
+  byte replyMode;
+  byte[] replyTypes;
+  boolean keyboardLocked;
+  boolean insertMode;
+
+  // Cursor and Pen
+  int cursorPosition;
+  boolean cursorVisible;
+  int penPosition;
+  boolean formatted;
+
+  // ScreenBuffer
+  byte[] values;
+  short[] contextIds;
+  byte[] flags;
+  int[] startFieldPositions;
+  StartFieldAttribute[] startFields;
+  int[] attributePositions;
+  List<Attribute>[] attributes;
+
+  // created by Screen.getSnapshot()
+  ScreenSnapshot ()
+  {
+  }
+}
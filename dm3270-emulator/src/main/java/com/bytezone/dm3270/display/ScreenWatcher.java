@@ -12,7 +12,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.bytezone.dm3270.assistant.TableDataset;
-import com.bytezone.dm3270.database.*;;
+import com.bytezone.dm3270.database.*;
+import com.bytezone.dm3270.metrics.DatabaseQueueMetrics;
 
 // created by FieldManager
 // used by ScreenChangeListener (ScreenPacker, TransfersStage, TransferMenu)
@@ -41,6 +42,7 @@ public class ScreenWatcher implements Initiator
   private final FieldManager fieldManager;
   private final ScreenDimensions screenDimensions;
   private final BlockingQueue<DatabaseRequest> queue;
+  private final DatabaseQueueMetrics databaseQueueMetrics;
 
   private final Map<String, TableDataset> siteDatasets = new TreeMap<> ();
   private final List<TableDataset> screenDatasets = new ArrayList<> ();
@@ -63,11 +65,12 @@ public class ScreenWatcher implements Initiator
   private String prefix = "";
 
   public ScreenWatcher (FieldManager fieldManager, ScreenDimensions screenDimensions,
-      BlockingQueue<DatabaseRequest> queue)
+      BlockingQueue<DatabaseRequest> queue, DatabaseQueueMetrics databaseQueueMetrics)
   {
     this.fieldManager = fieldManager;
     this.screenDimensions = screenDimensions;
     this.queue = queue;
+    this.databaseQueueMetrics = databaseQueueMetrics;
   }
 
   public Field getTSOCommandField ()
@@ -902,22 +905,23 @@ public class ScreenWatcher implements Initiator
     return text.toString ();
   }
 
+  // The queue is unbounded, so this never waits. DatabaseThread merges repeated
+  // updates of the same dataset or member.
   private void sendRequest (DatabaseRequest request)
   {
     if (queue != null)
-      try
-      {
-        queue.put (request);
-      }
-      catch (InterruptedException e)
-      {
-        e.printStackTrace ();
-      }
+    {
+      request.queuedAt = System.nanoTime ();
+      databaseQueueMetrics.requestQueued ();
+      queue.offer (request);
+    }
   }
 
+  // called from the DatabaseThread
   @Override
   public void processResult (DatabaseRequest request)
   {
+    databaseQueueMetrics.requestCompleted (request.queuedAt);
     //    System.out.println (request);
   }
 }
\ No newline at end of file
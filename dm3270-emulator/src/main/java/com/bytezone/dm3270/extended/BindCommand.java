@@ -2,6 +2,7 @@ package com.bytezone.dm3270.extended;
 
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 // http://publibfp.dhe.ibm.com/cgi-bin/bookmgr/BOOKS/d50a5007/6.3.20
 // z/OS V2R1.0 Communications Server: SNA Programming
@@ -58,7 +59,8 @@ public class BindCommand extends AbstractExtendedCommand
   private int userDataLength;
   private int extraBytes;
 
-  public BindCommand (CommandHeader commandHeader, byte[] buffer, int offset, int length)
+  public BindCommand (CommandHeader commandHeader, byte[] buffer, int offset, int length,
+      EbcdicCodec codec)
   {
     super (commandHeader, buffer, offset, length);
     assert data[0] == 0x31;                    // bind command
@@ -111,7 +113,8 @@ public class BindCommand extends AbstractExtendedCommand
       nsOffset = cryptographicControl == 0 ? 0 : 8;
 
       primaryLuNameLength = data[27 + nsOffset] & 0xFF;
-      primaryLuName = Dm3270Utility.getString (data, 28 + nsOffset, primaryLuNameLength);
+      primaryLuName = codec.getString (data, 28 + nsOffset,
+          Math.min (primaryLuNameLength, data.length - 28 - nsOffset));
 
       userDataOffset = 28 + nsOffset + primaryLuNameLength;
       userDataLength = data[userDataOffset] & 0xFF;
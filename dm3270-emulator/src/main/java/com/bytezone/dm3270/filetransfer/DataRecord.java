@@ -130,7 +130,7 @@ public class DataRecord extends TransferRecord
     int lastChar = buffer[buffer.length - 1] % 0xFF;
     if (lastChar == 32 || lastChar == 36)       // ascii space or dollar sign
       return new String (buffer);
-    return new String (Dm3270Utility.ebc2asc (buffer));
+    return Dm3270Utility.ebc2asc (buffer);
   }
 
   @Override
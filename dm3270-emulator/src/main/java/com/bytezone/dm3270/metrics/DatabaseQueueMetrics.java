@@ -0,0 +1,163 @@
+package com.bytezone.dm3270.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.bytezone.dm3270.database.DatabaseThread;
+
+// Requests passed from ScreenWatcher to the DatabaseThread. The depth is the number
+// that have been queued but not yet answered (including the ones waiting to be
+// written), and the latency is the time from queueing a request to its result. The
+// DatabaseThread's cache counters are passed through.
+//
+// Requests are queued on the EDT and answered on the database thread, so every method
+// is synchronized.
+
+public class DatabaseQueueMetrics implements DatabaseQueueMetricsMXBean
+{
+  private static final double[] PERCENTILES = { 50, 90, 99 };
+  private static final AtomicInteger instances = new AtomicInteger ();
+
+  private final DatabaseThread databaseThread;
+  private final LatencyHistogram latency = new LatencyHistogram ();
+  private long depth;
+  private long maxDepth;
+
+  private ObjectName objectName;
+
+  public DatabaseQueueMetrics (DatabaseThread databaseThread)
+  {
+    this.databaseThread = databaseThread;
+  }
+
+  // called from ScreenWatcher.sendRequest()
+  public synchronized void requestQueued ()
+  {
+    if (++depth > maxDepth)
+      maxDepth = depth;
+  }
+
+  // called from ScreenWatcher.processResult()
+  public synchronized void requestCompleted (long queuedAt)
+  {
+    --depth;
+    latency.recordNanos (System.nanoTime () - queuedAt);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // DatabaseQueueMetricsMXBean
+  // ---------------------------------------------------------------------------------//
+
+  @Override
+  public synchronized long getDepth ()
+  {
+    return depth;
+  }
+
+  @Override
+  public synchronized long getMaxDepth ()
+  {
+    return maxDepth;
+  }
+
+  @Override
+  public synchronized long getRequests ()
+  {
+    return latency.getCount ();
+  }
+
+  @Override
+  public synchronized double getLatencyMillis (double percentile)
+  {
+    return latency.getPercentileMillis (percentile);
+  }
+
+  @Override
+  public long getCacheHits ()
+  {
+    return databaseThread.getCacheHits ();
+  }
+
+  @Override
+  public long getCacheMisses ()
+  {
+    return databaseThread.getCacheMisses ();
+  }
+
+  @Override
+  public long getCacheEvictions ()
+  {
+    return databaseThread.getCacheEvictions ();
+  }
+
+  @Override
+  public synchronized String getReport ()
+  {
+    StringBuilder text = new StringBuilder ();
+
+    text.append (String.format ("Requests .......... %,d%n", latency.getCount ()));
+    text.append (String.format ("Depth ............. %,d%n", depth));
+    text.append (String.format ("Max depth ......... %,d%n", maxDepth));
+    text.append ("Latency ms ........ ");
+    for (double percent : PERCENTILES)
+      text.append (String.format ("p%.0f %.1f  ", percent,
+                                  latency.getPercentileMillis (percent)));
+    text.append (String.format ("max %.1f%n", latency.getMaxMillis ()));
+    text.append (String.format ("Cache hits/misses . %,d / %,d%n", getCacheHits (),
+                                getCacheMisses ()));
+    text.append (String.format ("Cache evictions ... %,d%n", getCacheEvictions ()));
+
+    return text.toString ();
+  }
+
+  // the depth is left alone, as those requests are still outstanding
+  @Override
+  public synchronized void reset ()
+  {
+    latency.reset ();
+    maxDepth = depth;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Publishing
+  // ---------------------------------------------------------------------------------//
+
+  // The same site can be open more than once (e.g. a terminal and a replay), so each
+  // bean has its own instance number and only ever unregisters itself.
+  // called from FieldManager()
+  public void register (String siteName, String mode)
+  {
+    try
+    {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer ();
+      objectName = new ObjectName ("com.bytezone.dm3270:type=DatabaseQueue,name="
+          + ObjectName.quote (siteName) + ",mode=" + mode + ",instance="
+          + instances.incrementAndGet ());
+      server.registerMBean (this, objectName);
+    }
+    catch (JMException e)
+    {
+      e.printStackTrace ();
+      objectName = null;
+    }
+  }
+
+  // called from FieldManager.close()
+  public void unregister ()
+  {
+    if (objectName != null)
+      try
+      {
+        ManagementFactory.getPlatformMBeanServer ().unregisterMBean (objectName);
+      }
+      catch (JMException e)
+      {
+        e.printStackTrace ();
+      }
+    objectName = null;
+  }
+}
@@ -0,0 +1,26 @@
+package com.bytezone.dm3270.metrics;
+
+// The JMX view of a session's DatabaseQueueMetrics. Times are in milliseconds.
+
+public interface DatabaseQueueMetricsMXBean
+{
+  // requests handed to the database thread that it hasn't finished with
+  long getDepth ();
+
+  long getMaxDepth ();
+
+  long getRequests ();
+
+  double getLatencyMillis (double percentile);
+
+  // the DatabaseThread's dataset and member cache
+  long getCacheHits ();
+
+  long getCacheMisses ();
+
+  long getCacheEvictions ();
+
+  String getReport ();
+
+  void reset ();
+}
@@ -0,0 +1,100 @@
+package com.bytezone.dm3270.metrics;
+
+import java.util.Arrays;
+
+// A latency histogram in the style of HdrHistogram. Values are kept in microseconds,
+// exactly up to 127, and above that in buckets of 64 per power of two - so any value
+// is reported to within 1.6% however large it is, and the whole range up to several
+// days fits in a fixed array of counts. Not thread-safe.
+
+public class LatencyHistogram
+{
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;        // 64
+  private static final int LINEAR = SUB_BUCKETS * 2;                  // 0-127 exact
+  private static final int MAX_SHIFT = 34;                            // ~ 2^41 us
+
+  private final long[] counts = new long[LINEAR + MAX_SHIFT * SUB_BUCKETS];
+  private long totalCount;
+  private long totalMicros;
+  private long maxMicros;
+
+  public void recordNanos (long nanos)
+  {
+    record (Math.max (0, nanos / 1000));
+  }
+
+  public void record (long micros)
+  {
+    counts[getIndex (micros)]++;
+    totalCount++;
+    totalMicros += micros;
+    if (micros > maxMicros)
+      maxMicros = micros;
+  }
+
+  public void reset ()
+  {
+    Arrays.fill (counts, 0);
+    totalCount = 0;
+    totalMicros = 0;
+    maxMicros = 0;
+  }
+
+  public long getCount ()
+  {
+    return totalCount;
+  }
+
+  public double getMeanMillis ()
+  {
+    return totalCount == 0 ? 0 : totalMicros / 1000.0 / totalCount;
+  }
+
+  public double getMaxMillis ()
+  {
+    return maxMicros / 1000.0;
+  }
+
+  // the highest value in the bucket that holds the given percentile
+  public double getPercentileMillis (double percent)
+  {
+    if (totalCount == 0)
+      return 0;
+    if (percent >= 100)
+      return getMaxMillis ();
+
+    long target = Math.max (1, (long) Math.ceil (percent / 100 * totalCount));
+    long count = 0;
+    for (int i = 0; i < counts.length; i++)
+    {
+      count += counts[i];
+      if (count >= target)
+        return Math.min (getHighestValue (i), maxMicros) / 1000.0;
+    }
+    return getMaxMillis ();
+  }
+
+  private static int getIndex (long micros)
+  {
+    if (micros < LINEAR)
+      return (int) micros;
+
+    int shift = 63 - Long.numberOfLeadingZeros (micros) - SUB_BUCKET_BITS;
+    if (shift > MAX_SHIFT)
+      return LINEAR + MAX_SHIFT * SUB_BUCKETS - 1;
+
+    int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;       // 0-63
+    return LINEAR + (shift - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long getHighestValue (int index)
+  {
+    if (index < LINEAR)
+      return index;
+
+    int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+    long subBucket = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
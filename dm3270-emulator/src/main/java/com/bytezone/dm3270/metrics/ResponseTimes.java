@@ -0,0 +1,215 @@
+package com.bytezone.dm3270.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Host response times for a terminal session, as the user feels them. For each AID
+// key two times are measured from the moment the AID is written to the host - until
+// the first Write command arrives, and until a Write's WCC unlocks the keyboard (after
+// the screen has been updated). Each goes into a LatencyHistogram.
+//
+// The AID is sent from the EDT, the first Write is seen by the socket thread, and the
+// keyboard is unlocked on the EDT, so every method is synchronized.
+
+public class ResponseTimes implements ResponseTimesMXBean
+{
+  private static final double[] PERCENTILES = { 50, 90, 99 };
+  private static final AtomicInteger instances = new AtomicInteger ();
+
+  private final Map<String, KeyTimes> keyTimes = new TreeMap<> ();
+  private long responses;
+
+  private String pendingKey;              // the AID waiting for a response, or null
+  private long aidSentAt;
+  private boolean writeSeen;
+
+  private ObjectName objectName;
+  private ScheduledExecutorService reporter;
+  private long reportedResponses;
+
+  // called from ConsolePane.sendAID()
+  public synchronized void aidSent (String keyName)
+  {
+    pendingKey = keyName;
+    aidSentAt = System.nanoTime ();
+    writeSeen = false;
+  }
+
+  // called from TelnetListener.processRecord() when a Write arrives
+  public synchronized void writeReceived ()
+  {
+    if (pendingKey == null || writeSeen)
+      return;
+
+    writeSeen = true;
+    getKeyTimes (pendingKey).firstWrite.recordNanos (System.nanoTime () - aidSentAt);
+  }
+
+  // called from TelnetListener.processMessage() after a Write that restores the
+  // keyboard has been processed
+  public synchronized void keyboardUnlocked ()
+  {
+    if (pendingKey == null)
+      return;
+
+    getKeyTimes (pendingKey).unlock.recordNanos (System.nanoTime () - aidSentAt);
+    pendingKey = null;
+    ++responses;
+  }
+
+  private KeyTimes getKeyTimes (String keyName)
+  {
+    return keyTimes.computeIfAbsent (keyName, k -> new KeyTimes ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // ResponseTimesMXBean
+  // ---------------------------------------------------------------------------------//
+
+  @Override
+  public synchronized long getResponses ()
+  {
+    return responses;
+  }
+
+  @Override
+  public synchronized String[] getKeys ()
+  {
+    return keyTimes.keySet ().toArray (new String[keyTimes.size ()]);
+  }
+
+  @Override
+  public synchronized double getFirstWriteMillis (String key, double percentile)
+  {
+    KeyTimes times = keyTimes.get (key);
+    return times == null ? 0 : times.firstWrite.getPercentileMillis (percentile);
+  }
+
+  @Override
+  public synchronized double getUnlockMillis (String key, double percentile)
+  {
+    KeyTimes times = keyTimes.get (key);
+    return times == null ? 0 : times.unlock.getPercentileMillis (percentile);
+  }
+
+  @Override
+  public synchronized String getReport ()
+  {
+    StringBuilder text = new StringBuilder ();
+    text.append (String.format ("%-5s %7s   %-30s   %-30s%n", "AID", "count",
+                                "first write p50/p90/p99/max ms",
+                                "unlock p50/p90/p99/max ms"));
+
+    for (Map.Entry<String, KeyTimes> entry : keyTimes.entrySet ())
+    {
+      KeyTimes times = entry.getValue ();
+      text.append (String.format ("%-5s %,7d   %-30s   %-30s%n", entry.getKey (),
+                                  times.unlock.getCount (), format (times.firstWrite),
+                                  format (times.unlock)));
+    }
+
+    return text.toString ();
+  }
+
+  private static String format (LatencyHistogram histogram)
+  {
+    StringBuilder text = new StringBuilder ();
+    for (double percent : PERCENTILES)
+      text.append (String.format ("%.1f/", histogram.getPercentileMillis (percent)));
+    text.append (String.format ("%.1f", histogram.getMaxMillis ()));
+    return text.toString ();
+  }
+
+  @Override
+  public synchronized void reset ()
+  {
+    keyTimes.clear ();
+    responses = 0;
+    reportedResponses = 0;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Publishing
+  // ---------------------------------------------------------------------------------//
+
+  // Register with the platform MBean server, and print the report every period if
+  // there have been any responses since the last one. A period of 0 disables the
+  // report. Two sessions may connect to the same site, so the name includes an
+  // instance number - a session never replaces, or unregisters, another one's bean.
+  // called from ConsolePane.connect()
+  public void register (String sessionName, long period, TimeUnit unit)
+  {
+    try
+    {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer ();
+      objectName = new ObjectName ("com.bytezone.dm3270:type=ResponseTimes,name="
+          + ObjectName.quote (sessionName) + ",instance=" + instances.incrementAndGet ());
+      server.registerMBean (this, objectName);
+    }
+    catch (JMException e)
+    {
+      e.printStackTrace ();
+      objectName = null;
+    }
+
+    if (period > 0)
+    {
+      reporter = Executors.newSingleThreadScheduledExecutor (r ->
+      {
+        Thread thread = new Thread (r, "ResponseTimes");
+        thread.setDaemon (true);
+        return thread;
+      });
+      reporter.scheduleAtFixedRate (this::report, period, period, unit);
+    }
+  }
+
+  private void report ()
+  {
+    String report;
+    synchronized (this)
+    {
+      if (responses == reportedResponses)
+        return;
+      reportedResponses = responses;
+      report = getReport ();
+    }
+    System.out.print (report);
+  }
+
+  // called from ConsolePane.disconnect()
+  public void unregister ()
+  {
+    if (reporter != null)
+    {
+      reporter.shutdownNow ();
+      reporter = null;
+    }
+
+    if (objectName != null)
+      try
+      {
+        ManagementFactory.getPlatformMBeanServer ().unregisterMBean (objectName);
+      }
+      catch (JMException e)
+      {
+        e.printStackTrace ();
+      }
+    objectName = null;
+  }
+
+  private static class KeyTimes
+  {
+    final LatencyHistogram firstWrite = new LatencyHistogram ();
+    final LatencyHistogram unlock = new LatencyHistogram ();
+  }
+}
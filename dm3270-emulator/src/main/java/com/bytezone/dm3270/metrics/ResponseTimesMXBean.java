@@ -0,0 +1,19 @@
+package com.bytezone.dm3270.metrics;
+
+// The JMX view of a terminal session's ResponseTimes. Times are in milliseconds.
+
+public interface ResponseTimesMXBean
+{
+  long getResponses ();
+
+  // the AID keys that have been measured, eg ENTR or PF3
+  String[] getKeys ();
+
+  double getFirstWriteMillis (String key, double percentile);
+
+  double getUnlockMillis (String key, double percentile);
+
+  String getReport ();
+
+  void reset ();
+}
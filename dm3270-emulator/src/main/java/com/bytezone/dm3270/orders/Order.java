@@ -34,6 +34,14 @@ public abstract class Order
         FCO_FORM_FEED, FCO_CARRIAGE_RETURN, FCO_NEWLINE, FCO_END_OF_MEDIUM,
         FCO_EIGHT_ONES };
 
+  private static final boolean[] isOrder = new boolean[256];
+
+  static
+  {
+    for (byte value : orderValues)
+      isOrder[value & 0xFF] = true;
+  }
+
   protected boolean rejected;
 
   protected byte[] buffer;
@@ -89,6 +97,12 @@ public abstract class Order
     }
   }
 
+  // whether this byte starts an order rather than being part of a TextOrder
+  public static boolean isOrder (byte value)
+  {
+    return isOrder[value & 0xFF];
+  }
+
   public boolean rejected ()
   {
     return rejected;
@@ -99,6 +113,12 @@ public abstract class Order
     duplicates++;
   }
 
+  // repeats of this order that were merged into it
+  public int getDuplicates ()
+  {
+    return duplicates;
+  }
+
   public byte getType ()
   {
     return buffer[0];
@@ -0,0 +1,204 @@
+package com.bytezone.dm3270.orders;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.display.DisplayScreen;
+import com.bytezone.dm3270.display.Pen;
+
+// Processes the orders of a Write command straight from its buffer, doing exactly
+// what each Order's process() would do but without creating the Order objects. Only
+// the attributes that the screen keeps are created. WriteCommand builds the Order
+// list when something wants to look at it, and gives each SF and SFE order the
+// location that was recorded for it here.
+
+public final class OrderDecoder
+{
+  private OrderDecoder ()
+  {
+  }
+
+  // Returns the number of orders, counted the way WriteCommand builds its list (with
+  // repeated graphics escapes and format controls merged).
+  // called from WriteCommand.process()
+  public static int process (byte[] buffer, int offset, int max, DisplayScreen screen,
+      FieldLocations fieldLocations)
+  {
+    Pen pen = screen.getPen ();
+    fieldLocations.clear ();
+    int ptr = offset;
+    int totalOrders = 0;
+    int previousType = -1;                    // none, or the previous order's type
+    byte previousCode = 0;
+    boolean previousText = false;
+
+    while (ptr < max)
+    {
+      byte type = buffer[ptr];
+
+      if (!Order.isOrder (type))                              // TextOrder
+      {
+        pen.write (type);
+        while (++ptr < max && !Order.isOrder (buffer[ptr]))
+          pen.write (buffer[ptr]);
+        ++totalOrders;
+        previousText = true;
+        previousType = -1;
+        continue;
+      }
+
+      boolean merged = false;
+
+      switch (type)
+      {
+        case Order.SET_BUFFER_ADDRESS:
+          pen.moveTo (BufferAddress.getLocation (buffer[ptr + 1], buffer[ptr + 2]));
+          ptr += 3;
+          break;
+
+        case Order.START_FIELD:
+          fieldLocations.add (pen.getPosition ());
+          pen.startField (new StartFieldAttribute (buffer[ptr + 1]));
+          pen.moveRight ();
+          ptr += 2;
+          break;
+
+        case Order.START_FIELD_EXTENDED:
+          fieldLocations.add (pen.getPosition ());
+          ptr = startFieldExtended (buffer, ptr, pen);
+          break;
+
+        case Order.SET_ATTRIBUTE:
+          Optional<Attribute> attribute =
+              Attribute.getAttribute (buffer[ptr + 1], buffer[ptr + 2]);
+          if (attribute.isPresent ())
+            pen.addAttribute (attribute.get ());
+          ptr += 3;
+          break;
+
+        case Order.INSERT_CURSOR:
+          screen.insertCursor (pen.getPosition ());
+          ptr += 1;
+          break;
+
+        case Order.PROGRAM_TAB:
+          // if the previous data was text then erase the remainder of the field
+          if (previousText)
+            pen.eraseEOF ();
+          pen.tab ();
+          ptr += 1;
+          break;
+
+        case Order.REPEAT_TO_ADDRESS:
+          int stopLocation = BufferAddress.getLocation (buffer[ptr + 1], buffer[ptr + 2]);
+          byte rptChar;
+          if (buffer[ptr + 3] == Order.GRAPHICS_ESCAPE)
+          {
+            rptChar = buffer[ptr + 4];
+            ptr += 6;
+          }
+          else
+          {
+            rptChar = buffer[ptr + 3];
+            ptr += 4;
+          }
+
+          if (pen.getPosition () == stopLocation)
+            screen.clearScreen ();
+          else
+            while (pen.getPosition () != stopLocation)
+              pen.write (rptChar);
+          break;
+
+        case Order.ERASE_UNPROTECTED:                         // not finished
+          ptr += 3;
+          break;
+
+        case Order.MODIFY_FIELD:
+          ptr += (buffer[ptr + 1] & 0xFF) * 2 + 2;
+          break;
+
+        case Order.GRAPHICS_ESCAPE:
+          byte code = buffer[ptr + 1];
+          merged = previousType == (type & 0xFF) && previousCode == code;
+          previousCode = code;
+          pen.writeGraphics (code);
+          ptr += 2;
+          break;
+
+        default:                                              // format control
+          merged = previousType == (type & 0xFF);
+          pen.write ((byte) 0x40);
+          ptr += 1;
+          break;
+      }
+
+      if (!merged)
+        ++totalOrders;
+      previousText = false;
+      previousType = type & 0xFF;
+    }
+
+    return totalOrders;
+  }
+
+  // There has to be a StartFieldAttribute, but it could be anywhere in the list, and
+  // the field must be started before the other attributes are added.
+  private static int startFieldExtended (byte[] buffer, int ptr, Pen pen)
+  {
+    int totalAttributePairs = buffer[ptr + 1] & 0xFF;
+    int first = ptr + 2;
+    int max = first + totalAttributePairs * 2;
+
+    for (int i = first; i < max; i += 2)
+      if (buffer[i] == Attribute.XA_START_FIELD)
+      {
+        StartFieldAttribute startFieldAttribute = new StartFieldAttribute (buffer[i + 1]);
+        startFieldAttribute.setExtended ();
+        pen.startField (startFieldAttribute);
+        break;
+      }
+
+    for (int i = first; i < max; i += 2)
+      if (buffer[i] != Attribute.XA_START_FIELD)
+      {
+        Optional<Attribute> attribute = Attribute.getAttribute (buffer[i], buffer[i + 1]);
+        if (attribute.isPresent ())
+          pen.addAttribute (attribute.get ());
+      }
+
+    pen.moveRight ();
+    return max;
+  }
+
+  // The pen position of each SF and SFE order, in the order they were decoded.
+  public static final class FieldLocations
+  {
+    private int[] locations = new int[8];
+    private int size;
+
+    void clear ()
+    {
+      size = 0;
+    }
+
+    void add (int location)
+    {
+      if (size == locations.length)
+        locations = Arrays.copyOf (locations, size * 2);
+      locations[size++] = location;
+    }
+
+    public int size ()
+    {
+      return size;
+    }
+
+    public int get (int index)
+    {
+      return locations[index];
+    }
+  }
+}
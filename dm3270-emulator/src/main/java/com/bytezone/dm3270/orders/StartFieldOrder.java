@@ -38,6 +38,12 @@ public class StartFieldOrder extends Order
     pen.moveRight ();
   }
 
+  // called from WriteCommand, which doesn't call process()
+  public void setLocation (int location)
+  {
+    this.location = location;
+  }
+
   @Override
   public String toString ()
   {
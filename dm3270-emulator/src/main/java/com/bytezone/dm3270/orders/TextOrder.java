@@ -1,10 +1,9 @@
 package com.bytezone.dm3270.orders;
 
-import java.io.UnsupportedEncodingException;
-
 import com.bytezone.dm3270.display.DisplayScreen;
 import com.bytezone.dm3270.display.Pen;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 public class TextOrder extends Order
 {
@@ -23,28 +22,15 @@ public class TextOrder extends Order
 
   public TextOrder (String text)
   {
-    try
-    {
-      buffer = text.getBytes ("CP1047");
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
+    buffer = EbcdicCodec.getDefault ().getBytes (text);
   }
 
   private int getDataLength (byte[] buffer, int offset, int max)
   {
     int ptr = offset + 1;
     int length = 1;
-    outer_loop: while (ptr < max)
-    {
-      byte value = buffer[ptr++];
-      for (int i = 0; i < orderValues.length; i++)
-        if (value == orderValues[i])
-          break outer_loop;
+    while (ptr < max && !isOrder (buffer[ptr++]))
       length++;
-    }
 
     return length;
   }
@@ -55,9 +41,9 @@ public class TextOrder extends Order
       originalBuffer[bufferOffset + ptr] = 0x7B;
   }
 
-  public String getTextString ()
+  public String getTextString (EbcdicCodec codec)
   {
-    return Dm3270Utility.getString (buffer);
+    return codec.getString (buffer);
   }
 
   @Override
@@ -74,6 +60,7 @@ public class TextOrder extends Order
       pen.write (b);
   }
 
+  // for debugging - the session's code page isn't known here
   @Override
   public String toString ()
   {
@@ -1,6 +1,5 @@
 package com.bytezone.dm3270.plugins;
 
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -339,16 +338,9 @@ public class PluginsStage extends PreferencesStage
         }
         else
         {
-          try
-          {
-            // should this type the characters instead?
-            field.setText (screenField.newData.getBytes ("CP1047"));
-            field.setModified (true);
-          }
-          catch (UnsupportedEncodingException e)
-          {
-            e.printStackTrace ();
-          }
+          // should this type the characters instead?
+          field.setText (screen.getCodec ().getBytes (screenField.newData));
+          field.setModified (true);
         }
         field.draw ();      // draws the field without a cursor
       }
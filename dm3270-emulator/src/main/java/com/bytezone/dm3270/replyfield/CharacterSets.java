@@ -15,13 +15,18 @@ public class CharacterSets extends QueryReplyField
   int descriptorLength;
   List<Descriptor> descriptors = new ArrayList<> ();
 
-  public CharacterSets ()
+  public CharacterSets (int codePage)
   {
     super (CHARACTER_SETS_REPLY);
 
     int[] rest = { 0x82, 0x00, 0x07, 0x0C, 0x00, 0x00, 0x00, 0x00, //
                    0x07, 0x00, 0x00, 0x00, 0x02, 0xB9, 0x04, 0x17,  //
                    0x01, 0x00, 0xF1, 0x03, 0xC3, 0x01, 0x36 };
+
+    // the base set's CGCSGID is character set 697 (02B9) in the session's code page
+    rest[14] = (codePage >> 8) & 0xFF;
+    rest[15] = codePage & 0xFF;
+
     int ptr = createReply (rest.length);
     for (int b : rest)
       reply[ptr++] = (byte) b;
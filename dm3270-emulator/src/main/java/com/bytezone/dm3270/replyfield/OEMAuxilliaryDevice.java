@@ -1,8 +1,7 @@
 package com.bytezone.dm3270.replyfield;
 
-import java.io.UnsupportedEncodingException;
-
 import com.bytezone.dm3270.structuredfields.StructuredField;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 public class OEMAuxilliaryDevice extends QueryReplyField
 {
@@ -23,15 +22,10 @@ public class OEMAuxilliaryDevice extends QueryReplyField
                    0x6F, 0x74, 0x20, 0x79, 0x65, 0x74, 0x20, 0x6C,  //
                    0x6F, 0x67, 0x67, 0x65, 0x64, 0x20, 0x69, 0x6E,  //
                    0x21, 0x29, 0x00 };
-    try
-    {
-      System.arraycopy ("TCP3270 ".getBytes ("CP1047"), 0, rest, 2, 8);
-      System.arraycopy ("dm3270  ".getBytes ("CP1047"), 0, rest, 10, 8);
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
+    EbcdicCodec codec = EbcdicCodec.getDefault ();
+    codec.encode ("TCP3270 ", rest, 2);
+    codec.encode ("dm3270  ", rest, 10);
+
     int ptr = createReply (rest.length);
     for (byte b : rest)
       reply[ptr++] = b;
@@ -46,17 +40,11 @@ public class OEMAuxilliaryDevice extends QueryReplyField
     assert data[0] == StructuredField.QUERY_REPLY;
     assert data[1] == QueryReplyField.OEM_AUXILLIARY_DEVICE_REPLY;
 
-    try
-    {
-      flags = data[2];
-      refID = data[3];
-      deviceType = new String (data, 4, 8, "CP1047").trim ();
-      userName = new String (data, 12, 8, "CP1047").trim ();
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
+    EbcdicCodec codec = EbcdicCodec.getDefault ();
+    flags = data[2];
+    refID = data[3];
+    deviceType = codec.getString (data, 4, 8).trim ();
+    userName = codec.getString (data, 12, 8).trim ();
   }
 
   public String getUserName ()
@@ -0,0 +1,134 @@
+package com.bytezone.dm3270.session;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// Streams the records of a binary capture - see BinaryCaptureWriter for the format.
+// Only one buffer's worth of the file is held in memory at a time.
+
+public class BinaryCaptureReader implements CaptureReader
+{
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private ByteBuffer byteBuffer = ByteBuffer.allocate (BUFFER_SIZE);
+
+  public BinaryCaptureReader (Path path) throws IOException
+  {
+    channel = FileChannel.open (path);
+    byteBuffer.flip ();                   // empty
+
+    if (!fill (BinaryCaptureWriter.MAGIC.length) || !readMagic (byteBuffer))
+    {
+      channel.close ();
+      throw new IOException (path + " is not a binary capture");
+    }
+  }
+
+  static boolean isBinaryCapture (Path path) throws IOException
+  {
+    try (FileChannel fileChannel = FileChannel.open (path))
+    {
+      ByteBuffer header = ByteBuffer.allocate (BinaryCaptureWriter.MAGIC.length);
+      while (header.hasRemaining ())
+        if (fileChannel.read (header) < 0)
+          return false;
+      header.flip ();
+      return readMagic (header);
+    }
+  }
+
+  private static boolean readMagic (ByteBuffer buffer)
+  {
+    byte[] magic = new byte[BinaryCaptureWriter.MAGIC.length];
+    buffer.get (magic);
+    return Arrays.equals (magic, BinaryCaptureWriter.MAGIC);
+  }
+
+  @Override
+  public CaptureRecord next () throws IOException
+  {
+    boolean available = fill (4);
+    long offset = channel.position () - byteBuffer.remaining ();    // record start
+
+    if (!available)
+    {
+      if (byteBuffer.hasRemaining ())
+        throw new EOFException ("Truncated record length at offset " + offset);
+      return null;
+    }
+
+    int recordLength = byteBuffer.getInt ();
+    if (recordLength < BinaryCaptureWriter.RECORD_HEADER_SIZE)
+      throw new IOException (
+          "Invalid record length " + recordLength + " at offset " + offset);
+
+    // check the file size before fill() allocates a buffer for a corrupt length
+    if (recordLength > channel.size () - offset - 4 || !fill (recordLength))
+      throw new EOFException ("Truncated record at offset " + offset);
+
+    Source source = byteBuffer.get () == 0 ? Source.CLIENT : Source.SERVER;
+    byte flags = byteBuffer.get ();
+    long nanos = byteBuffer.getLong ();
+    int labelLength = byteBuffer.getShort () & 0xFFFF;
+
+    int dataLength = recordLength - BinaryCaptureWriter.RECORD_HEADER_SIZE - labelLength;
+    if (dataLength < 0)
+      throw new IOException ("Invalid label length " + labelLength + " in record length "
+          + recordLength + " at offset " + offset);
+
+    String label = null;
+    if (labelLength > 0)
+    {
+      byte[] labelBytes = new byte[labelLength];
+      byteBuffer.get (labelBytes);
+      label = new String (labelBytes, StandardCharsets.UTF_8);
+    }
+
+    byte[] buffer = new byte[dataLength];
+    byteBuffer.get (buffer);
+
+    boolean genuine = (flags & BinaryCaptureWriter.GENUINE) != 0;
+    LocalDateTime dateTime = (flags & BinaryCaptureWriter.TIMESTAMP) != 0
+        ? BinaryCaptureWriter.fromNanos (nanos) : null;
+
+    return new CaptureRecord (source, genuine, dateTime, label, buffer);
+  }
+
+  // make sure that at least size bytes are available, unless the file ends first
+  private boolean fill (int size) throws IOException
+  {
+    if (byteBuffer.remaining () >= size)
+      return true;
+
+    if (byteBuffer.capacity () < size)
+    {
+      ByteBuffer larger = ByteBuffer.allocate (size);
+      larger.put (byteBuffer);
+      byteBuffer = larger;
+    }
+    else
+      byteBuffer.compact ();
+
+    while (byteBuffer.position () < size)
+      if (channel.read (byteBuffer) < 0)
+        break;
+
+    byteBuffer.flip ();
+    return byteBuffer.remaining () >= size;
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    channel.close ();
+  }
+}
@@ -0,0 +1,137 @@
+package com.bytezone.dm3270.session;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// Binary session capture format (all values big-endian)
+//
+//   file header   8 bytes   "DM3270C" followed by the version (1)
+//   each record   4 bytes   length of the rest of the record
+//                 1 byte    source - 0 client, 1 server
+//                 1 byte    flags - 0x01 genuine, 0x02 timestamp present
+//                 8 bytes   timestamp - nanoseconds since 1970-01-01T00:00
+//                 2 bytes   label length, followed by the label in UTF-8
+//                 n bytes   the buffer, exactly as it was sent
+
+public class BinaryCaptureWriter implements CaptureWriter
+{
+  static final byte[] MAGIC = { 'D', 'M', '3', '2', '7', '0', 'C', 1 };
+  static final int RECORD_HEADER_SIZE = 1 + 1 + 8 + 2;
+  static final byte GENUINE = 0x01;
+  static final byte TIMESTAMP = 0x02;
+
+  private static final byte[] NO_LABEL = new byte[0];
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final WritableByteChannel channel;
+  private ByteBuffer byteBuffer = ByteBuffer.allocate (BUFFER_SIZE);
+  private long bytesWritten;
+
+  public BinaryCaptureWriter (Path path) throws IOException
+  {
+    this (FileChannel.open (path, CREATE, WRITE, TRUNCATE_EXISTING));
+  }
+
+  private BinaryCaptureWriter (WritableByteChannel channel)
+  {
+    this.channel = channel;
+    byteBuffer.put (MAGIC);
+  }
+
+  @Override
+  public void write (Source source, boolean genuine, LocalDateTime dateTime,
+      String label, byte[] buffer, int offset, int length) throws IOException
+  {
+    byte[] labelBytes =
+        label == null ? NO_LABEL : label.getBytes (StandardCharsets.UTF_8);
+    if (labelBytes.length > 0xFFFF)
+      throw new IllegalArgumentException ("Label too long");
+
+    int recordLength = RECORD_HEADER_SIZE + labelBytes.length + length;
+    ensureSpace (4 + recordLength);
+
+    byte flags = genuine ? GENUINE : 0;
+    if (dateTime != null)
+      flags |= TIMESTAMP;
+
+    byteBuffer.putInt (recordLength);
+    byteBuffer.put (source == Source.CLIENT ? (byte) 0 : (byte) 1);
+    byteBuffer.put (flags);
+    byteBuffer.putLong (dateTime == null ? 0 : toNanos (dateTime));
+    byteBuffer.putShort ((short) labelBytes.length);
+    byteBuffer.put (labelBytes);
+    byteBuffer.put (buffer, offset, length);
+  }
+
+  private void ensureSpace (int size) throws IOException
+  {
+    if (byteBuffer.remaining () >= size)
+      return;
+
+    flush ();
+    if (byteBuffer.capacity () < size)
+      byteBuffer = ByteBuffer.allocate (size);
+  }
+
+  // write everything buffered so far to the file
+  public void flush () throws IOException
+  {
+    byteBuffer.flip ();
+    bytesWritten += byteBuffer.remaining ();
+    while (byteBuffer.hasRemaining ())
+      channel.write (byteBuffer);
+    byteBuffer.clear ();
+  }
+
+  // flush, and make sure that it has reached the disk
+  public void force () throws IOException
+  {
+    flush ();
+    if (channel instanceof FileChannel)
+      ((FileChannel) channel).force (false);
+  }
+
+  // the size of the capture so far, including anything not yet flushed
+  public long size ()
+  {
+    return bytesWritten + byteBuffer.position ();
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    try
+    {
+      flush ();
+    }
+    finally
+    {
+      channel.close ();
+    }
+  }
+
+  static long toNanos (LocalDateTime dateTime)
+  {
+    return dateTime.toEpochSecond (ZoneOffset.UTC) * 1_000_000_000L
+        + dateTime.getNano ();
+  }
+
+  static LocalDateTime fromNanos (long nanos)
+  {
+    return LocalDateTime.ofEpochSecond (Math.floorDiv (nanos, 1_000_000_000L),
+                                        (int) Math.floorMod (nanos, 1_000_000_000L),
+                                        ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,270 @@
+package com.bytezone.dm3270.session;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Analyses every session capture in a folder without opening them in a ReplayStage.
+// The captures are parsed in parallel on a ForkJoinPool, and the statistics for each
+// session are written as CSV (one row per session) or as JSON.
+//
+//   java com.bytezone.dm3270.session.CaptureAnalyser ~/spy csv > sessions.csv
+
+public class CaptureAnalyser
+{
+  private static final double[] PERCENTILES = { 50, 90, 95, 99, 100 };
+
+  public static void main (String[] args) throws Exception
+  {
+    if (args.length < 1 || args.length > 3)
+    {
+      System.out.println ("Usage: CaptureAnalyser <folder> [csv|json] [output]");
+      return;
+    }
+
+    boolean json = args.length > 1 && args[1].equalsIgnoreCase ("json");
+    List<CaptureStatistics> results = analyseFolder (Paths.get (args[0]));
+
+    try (PrintStream out =
+        args.length > 2 ? new PrintStream (args[2], "UTF-8") : System.out)
+    {
+      if (json)
+        writeJson (results, out);
+      else
+        writeCsv (results, out);
+    }
+  }
+
+  // every file in the folder that can be read as a capture, in name order
+  public static List<CaptureStatistics> analyseFolder (Path folder) throws IOException
+  {
+    List<Path> files = new ArrayList<> ();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream (folder))
+    {
+      for (Path path : stream)
+        if (Files.isRegularFile (path))
+          files.add (path);
+    }
+    Collections.sort (files);
+
+    return ForkJoinPool.commonPool ().invoke (new AnalyseTask (files, 0, files.size ()));
+  }
+
+  // called from AnalyseTask.compute()
+  static CaptureStatistics analyse (Path path)
+  {
+    CaptureStatistics statistics = new CaptureStatistics (path);
+    try (CaptureReader reader = CaptureReader.getInstance (path))
+    {
+      CaptureRecord record;
+      while ((record = reader.next ()) != null)
+        statistics.add (record);
+    }
+    catch (Exception e)
+    {
+      statistics.setException (e);
+    }
+    return statistics;
+  }
+
+  // splits the list of files in half until there is a single file to parse
+  private static class AnalyseTask extends RecursiveTask<List<CaptureStatistics>>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Path> files;
+    private final int from;
+    private final int to;
+
+    AnalyseTask (List<Path> files, int from, int to)
+    {
+      this.files = files;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<CaptureStatistics> compute ()
+    {
+      if (to - from <= 1)
+      {
+        List<CaptureStatistics> results = new ArrayList<> (1);
+        if (to > from)
+          results.add (analyse (files.get (from)));
+        return results;
+      }
+
+      int mid = (from + to) >>> 1;
+      AnalyseTask left = new AnalyseTask (files, from, mid);
+      left.fork ();
+      List<CaptureStatistics> right = new AnalyseTask (files, mid, to).compute ();
+
+      List<CaptureStatistics> results = left.join ();
+      results.addAll (right);
+      return results;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // CSV
+  // ---------------------------------------------------------------------------------//
+
+  // The command, order and AID columns are the union of those found in every session,
+  // so that all the rows line up.
+  static void writeCsv (List<CaptureStatistics> results, PrintStream out)
+  {
+    Set<String> commands = new TreeSet<> ();
+    Set<String> orders = new TreeSet<> ();
+    Set<String> aids = new TreeSet<> ();
+    for (CaptureStatistics statistics : results)
+    {
+      commands.addAll (statistics.getCommands ().keySet ());
+      orders.addAll (statistics.getOrders ().keySet ());
+      aids.addAll (statistics.getAidCounts ().keySet ());
+    }
+
+    List<String> heading = new ArrayList<> ();
+    heading.add ("file");
+    heading.add ("records");
+    heading.add ("client bytes");
+    heading.add ("server bytes");
+    heading.add ("responses");
+    for (double percent : PERCENTILES)
+      heading.add (percent == 100 ? "max ms" : String.format ("p%.0f ms", percent));
+    for (String command : commands)
+      heading.add ("command:" + command);
+    for (String order : orders)
+      heading.add ("order:" + order);
+    for (String aid : aids)
+    {
+      heading.add ("aid:" + aid);
+      heading.add ("aid bytes:" + aid);
+    }
+    heading.add ("error");
+    writeCsvLine (heading, out);
+
+    for (CaptureStatistics statistics : results)
+    {
+      List<String> line = new ArrayList<> (heading.size ());
+      line.add (statistics.getPath ().getFileName ().toString ());
+      line.add (String.valueOf (statistics.getRecords ()));
+      line.add (String.valueOf (statistics.getClientBytes ()));
+      line.add (String.valueOf (statistics.getServerBytes ()));
+      line.add (String.valueOf (statistics.getResponses ()));
+
+      for (double percent : PERCENTILES)
+        line.add (String.format ("%.3f", statistics.getResponseMillis (percent)));
+
+      for (String command : commands)
+        line.add (getValue (statistics.getCommands (), command));
+      for (String order : orders)
+        line.add (getValue (statistics.getOrders (), order));
+      for (String aid : aids)
+      {
+        line.add (getValue (statistics.getAidCounts (), aid));
+        line.add (getValue (statistics.getAidBytes (), aid));
+      }
+      line.add (statistics.failed () ? statistics.getException ().toString () : "");
+
+      writeCsvLine (line, out);
+    }
+  }
+
+  private static String getValue (Map<String, ? extends Number> map, String key)
+  {
+    Number value = map.get (key);
+    return value == null ? "0" : value.toString ();
+  }
+
+  private static void writeCsvLine (List<String> values, PrintStream out)
+  {
+    StringBuilder text = new StringBuilder ();
+    for (String value : values)
+    {
+      if (text.length () > 0)
+        text.append (',');
+      if (value.indexOf (',') >= 0 || value.indexOf ('"') >= 0
+          || value.indexOf ('\n') >= 0)
+        text.append ('"').append (value.replace ("\"", "\"\"")).append ('"');
+      else
+        text.append (value);
+    }
+    out.println (text);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // JSON
+  // ---------------------------------------------------------------------------------//
+
+  static void writeJson (List<CaptureStatistics> results, PrintStream out)
+  {
+    out.println ("[");
+    for (int i = 0; i < results.size (); i++)
+    {
+      CaptureStatistics statistics = results.get (i);
+
+      out.println ("  {");
+      out.printf ("    \"file\": %s,%n",
+                  quote (statistics.getPath ().getFileName ().toString ()));
+      out.printf ("    \"records\": %d,%n", statistics.getRecords ());
+      out.printf ("    \"clientBytes\": %d,%n", statistics.getClientBytes ());
+      out.printf ("    \"serverBytes\": %d,%n", statistics.getServerBytes ());
+
+      StringBuilder text = new StringBuilder ();
+      text.append (String.format ("\"count\": %d", statistics.getResponses ()));
+      for (double percent : PERCENTILES)
+        text.append (String.format (", \"%s\": %.3f",
+                                    percent == 100 ? "max" : "p" + (int) percent,
+                                    statistics.getResponseMillis (percent)));
+      out.printf ("    \"responseMillis\": { %s },%n", text);
+
+      out.printf ("    \"commands\": %s,%n", toJson (statistics.getCommands ()));
+      out.printf ("    \"orders\": %s,%n", toJson (statistics.getOrders ()));
+      out.printf ("    \"aids\": %s,%n", toJson (statistics.getAidCounts ()));
+      out.printf ("    \"aidBytes\": %s", toJson (statistics.getAidBytes ()));
+      if (statistics.failed ())
+        out.printf (",%n    \"error\": %s",
+                    quote (statistics.getException ().toString ()));
+      out.println ();
+      out.println (i < results.size () - 1 ? "  }," : "  }");
+    }
+    out.println ("]");
+  }
+
+  private static String toJson (Map<String, ? extends Number> map)
+  {
+    StringBuilder text = new StringBuilder ("{");
+    for (Map.Entry<String, ? extends Number> entry : map.entrySet ())
+    {
+      if (text.length () > 1)
+        text.append (',');
+      text.append (' ').append (quote (entry.getKey ())).append (": ")
+          .append (entry.getValue ());
+    }
+    return text.append (map.isEmpty () ? "}" : " }").toString ();
+  }
+
+  private static String quote (String value)
+  {
+    StringBuilder text = new StringBuilder ("\"");
+    for (char c : value.toCharArray ())
+      if (c == '"' || c == '\\')
+        text.append ('\\').append (c);
+      else if (c < 0x20)
+        text.append (String.format ("\\u%04x", (int) c));
+      else
+        text.append (c);
+    return text.append ('"').toString ();
+  }
+}
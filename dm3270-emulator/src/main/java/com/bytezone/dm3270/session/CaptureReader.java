@@ -0,0 +1,24 @@
+package com.bytezone.dm3270.session;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Reads the records of a session capture in the order they were recorded. Captures
+// are either the original hex text format, or the binary format written by
+// BinaryCaptureWriter.
+
+public interface CaptureReader extends AutoCloseable
+{
+  static CaptureReader getInstance (Path path) throws IOException
+  {
+    if (BinaryCaptureReader.isBinaryCapture (path))
+      return new BinaryCaptureReader (path);
+    return new TextCaptureReader (path);
+  }
+
+  // returns null at the end of the capture
+  CaptureRecord next () throws IOException;
+
+  @Override
+  void close () throws IOException;
+}
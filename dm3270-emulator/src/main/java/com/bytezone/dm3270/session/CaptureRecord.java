@@ -0,0 +1,34 @@
+package com.bytezone.dm3270.session;
+
+import java.time.LocalDateTime;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// A single buffer from a session capture, as it was sent by the client or the server
+// (including the telnet IAC/EOR bytes).
+
+public class CaptureRecord
+{
+  public final Source source;
+  public final boolean genuine;
+  public final LocalDateTime dateTime;        // may be null
+  public final String label;                  // may be null
+  public final byte[] buffer;
+
+  public CaptureRecord (Source source, boolean genuine, LocalDateTime dateTime,
+      String label, byte[] buffer)
+  {
+    this.source = source;
+    this.genuine = genuine;
+    this.dateTime = dateTime;
+    this.label = label;
+    this.buffer = buffer;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return String.format ("%-6s %s %s %,7d %s", source, genuine ? " " : "*", dateTime,
+                          buffer.length, label == null ? "" : label);
+  }
+}
@@ -0,0 +1,252 @@
+package com.bytezone.dm3270.session;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.bytezone.dm3270.buffers.ReplyBuffer;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.commands.WriteControlCharacter;
+import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
+import com.bytezone.dm3270.metrics.LatencyHistogram;
+import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.streams.TelnetListener;
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.telnet.TN3270ExtendedSubcommand;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetCommandProcessor;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import com.bytezone.dm3270.telnet.TelnetSubcommand;
+import com.bytezone.dm3270.telnet.TerminalTypeSubcommand;
+
+// The statistics for a single session capture. The capture is parsed the same way
+// as a replayed session, but without a Session or a Screen - each message is counted
+// and then discarded.
+//
+// A host response time is measured from an AID to the first write from the host
+// that restores the keyboard, using the timestamps in the capture.
+
+public class CaptureStatistics
+{
+  private final Path path;
+  private final TelnetState telnetState = new TelnetState ();
+  private final RecordCounter clientCounter = new RecordCounter (Source.CLIENT);
+  private final RecordCounter serverCounter = new RecordCounter (Source.SERVER);
+
+  private final Map<String, Integer> commands = new TreeMap<> ();
+  private final Map<String, Integer> orders = new TreeMap<> ();
+  private final Map<String, Integer> aidCounts = new TreeMap<> ();
+  private final Map<String, Long> aidBytes = new TreeMap<> ();
+
+  private int records;
+  private long clientBytes;
+  private long serverBytes;
+  private final LatencyHistogram responseTimes = new LatencyHistogram ();
+  private Exception exception;
+
+  private LocalDateTime currentDateTime;
+  private LocalDateTime aidDateTime;              // the outstanding AID, or null
+
+  CaptureStatistics (Path path)
+  {
+    this.path = path;
+  }
+
+  // called from CaptureAnalyser.analyse()
+  void add (CaptureRecord record)
+  {
+    records++;
+    currentDateTime = record.dateTime;
+
+    if (record.source == Source.CLIENT)
+    {
+      clientBytes += record.buffer.length;
+      clientCounter.telnetProcessor.listen (record.buffer);
+    }
+    else
+    {
+      serverBytes += record.buffer.length;
+      serverCounter.telnetProcessor.listen (record.buffer);
+    }
+  }
+
+  // called from CaptureAnalyser.analyse() when the capture could not be read
+  void setException (Exception exception)
+  {
+    this.exception = exception;
+  }
+
+  private void count (ReplyBuffer message, Source source, int length)
+  {
+    String name = MessageNames.getName (message);
+    if (name != null)
+      increment (commands, name, 1);
+
+    if (message instanceof TN3270ExtendedCommand)
+      message = ((TN3270ExtendedCommand) message).getCommand ();
+
+    if (message instanceof WriteCommand)
+    {
+      WriteCommand writeCommand = (WriteCommand) message;
+      for (Order order : writeCommand.getOrdersList ())
+        increment (orders, getOrderName (order), 1 + order.getDuplicates ());
+
+      WriteControlCharacter wcc = writeCommand.getWriteControlCharacter ();
+      if (wcc != null && wcc.isRestoreKeyboard ())
+        keyboardRestored ();
+    }
+    else if (message instanceof AIDCommand && source == Source.CLIENT)
+    {
+      String keyName = ((AIDCommand) message).getKeyName ();
+      increment (aidCounts, keyName, 1);
+      aidBytes.merge (keyName, (long) length, Long::sum);
+      aidDateTime = currentDateTime;
+    }
+  }
+
+  private void keyboardRestored ()
+  {
+    if (aidDateTime == null || currentDateTime == null)
+      return;
+
+    long nanos = Duration.between (aidDateTime, currentDateTime).toNanos ();
+    aidDateTime = null;
+    responseTimes.recordNanos (nanos);
+  }
+
+  private static void increment (Map<String, Integer> map, String key, int value)
+  {
+    map.merge (key, value, Integer::sum);
+  }
+
+  private static String getOrderName (Order order)
+  {
+    String name = order.getClass ().getSimpleName ();
+    return name.endsWith ("Order") ? name.substring (0, name.length () - 5) : name;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Results
+  // ---------------------------------------------------------------------------------//
+
+  public Path getPath ()
+  {
+    return path;
+  }
+
+  public int getRecords ()
+  {
+    return records;
+  }
+
+  public long getClientBytes ()
+  {
+    return clientBytes;
+  }
+
+  public long getServerBytes ()
+  {
+    return serverBytes;
+  }
+
+  public Map<String, Integer> getCommands ()
+  {
+    return commands;
+  }
+
+  public Map<String, Integer> getOrders ()
+  {
+    return orders;
+  }
+
+  public Map<String, Integer> getAidCounts ()
+  {
+    return aidCounts;
+  }
+
+  public Map<String, Long> getAidBytes ()
+  {
+    return aidBytes;
+  }
+
+  public long getResponses ()
+  {
+    return responseTimes.getCount ();
+  }
+
+  // in milliseconds - 100 is the longest response
+  public double getResponseMillis (double percent)
+  {
+    return responseTimes.getPercentileMillis (percent);
+  }
+
+  public boolean failed ()
+  {
+    return exception != null;
+  }
+
+  public Exception getException ()
+  {
+    return exception;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Parsing
+  // ---------------------------------------------------------------------------------//
+
+  // Each side of the conversation needs its own TelnetProcessor, as a buffer can end
+  // part way through a record. Both share the TelnetState, as in a replay.
+  private class RecordCounter implements TelnetCommandProcessor
+  {
+    private final Source source;
+    private final TelnetProcessor telnetProcessor = new TelnetProcessor (this);
+
+    RecordCounter (Source source)
+    {
+      this.source = source;
+    }
+
+    @Override
+    public void processData (byte[] buffer, int length)
+    {
+      increment (commands, "Unknown data", 1);
+    }
+
+    @Override
+    public void processRecord (byte[] buffer, int dataPtr)
+    {
+      ReplyBuffer message = TelnetListener.getMessage (source, buffer, dataPtr,
+          telnetState.does3270Extended (), telnetState.getCodec ());
+      if (message != null)
+        count (message, source, dataPtr - 2);
+    }
+
+    @Override
+    public void processTelnetCommand (byte[] buffer, int dataPtr)
+    {
+      TelnetCommand telnetCommand = new TelnetCommand (telnetState, buffer, dataPtr);
+      telnetCommand.process (null);           // updates TelnetState
+      count (telnetCommand, source, dataPtr);
+    }
+
+    @Override
+    public void processTelnetSubcommand (byte[] buffer, int dataPtr)
+    {
+      TelnetSubcommand subcommand;
+      if (buffer[2] == TelnetSubcommand.TERMINAL_TYPE)
+        subcommand = new TerminalTypeSubcommand (buffer, 0, dataPtr, telnetState);
+      else if (buffer[2] == TelnetSubcommand.TN3270E)
+        subcommand = new TN3270ExtendedSubcommand (buffer, 0, dataPtr, telnetState);
+      else
+      {
+        increment (commands, "Unknown subcommand", 1);
+        return;
+      }
+      count (subcommand, source, dataPtr);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.bytezone.dm3270.session;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// Writes a session capture. Files with the binary extension are written in the
+// binary format, anything else as hex text.
+
+public interface CaptureWriter extends AutoCloseable
+{
+  static final String BINARY_EXTENSION = ".cap";
+
+  static CaptureWriter getInstance (Path path) throws IOException
+  {
+    if (isBinaryName (path))
+      return new BinaryCaptureWriter (path);
+    return new TextCaptureWriter (path);
+  }
+
+  static boolean isBinaryName (Path path)
+  {
+    return path.getFileName ().toString ().toLowerCase ().endsWith (BINARY_EXTENSION);
+  }
+
+  void write (Source source, boolean genuine, LocalDateTime dateTime, String label,
+      byte[] buffer, int offset, int length) throws IOException;
+
+  default void write (CaptureRecord record) throws IOException
+  {
+    write (record.source, record.genuine, record.dateTime, record.label, record.buffer,
+           0, record.buffer.length);
+  }
+
+  @Override
+  void close () throws IOException;
+}
@@ -0,0 +1,159 @@
+package com.bytezone.dm3270.session;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// A whole capture held in a single ByteBuffer in the binary format. Binary captures
+// are memory-mapped, so opening one costs nothing until the records are read, and
+// the pages are only resident while they are in use. Text captures are converted
+// to a temporary binary capture, which is mapped in the same way and deleted once it
+// is no longer in use.
+//
+// Records are visited with next(), and getData() returns a view of the record's
+// buffer within the capture rather than a copy.
+
+public class MappedCapture
+{
+  private final ByteBuffer capture;
+
+  private Source source;
+  private boolean genuine;
+  private LocalDateTime dateTime;
+  private String label;
+  private int dataStart;
+  private int dataEnd;
+
+  private MappedCapture (ByteBuffer capture) throws IOException
+  {
+    byte[] magic = new byte[BinaryCaptureWriter.MAGIC.length];
+    if (capture.remaining () < magic.length)
+      throw new IOException ("Capture is too short");
+
+    capture.get (magic);
+    if (!Arrays.equals (magic, BinaryCaptureWriter.MAGIC))
+      throw new IOException ("Not a binary capture");
+
+    this.capture = capture;
+  }
+
+  public static MappedCapture open (Path path) throws IOException
+  {
+    if (BinaryCaptureReader.isBinaryCapture (path))
+      try (FileChannel channel = FileChannel.open (path))
+      {
+        return map (path, channel);
+      }
+
+    Path temp = Files.createTempFile ("dm3270-", ".cap");
+    try
+    {
+      try (CaptureReader reader = new TextCaptureReader (path);
+          CaptureWriter writer = new BinaryCaptureWriter (temp))
+      {
+        CaptureRecord record;
+        while ((record = reader.next ()) != null)
+          writer.write (record);
+      }
+
+      // the mapping remains valid after the file is deleted
+      try (FileChannel channel = FileChannel.open (temp, READ, DELETE_ON_CLOSE))
+      {
+        return map (path, channel);
+      }
+    }
+    catch (IOException | RuntimeException e)
+    {
+      Files.deleteIfExists (temp);
+      throw e;
+    }
+  }
+
+  private static MappedCapture map (Path path, FileChannel channel) throws IOException
+  {
+    if (channel.size () > Integer.MAX_VALUE)
+      throw new IOException (path + " is too large to map");
+    return new MappedCapture (channel.map (MapMode.READ_ONLY, 0, channel.size ()));
+  }
+
+  // move to the next record, returns false at the end of the capture
+  public boolean next () throws IOException
+  {
+    if (!capture.hasRemaining ())
+      return false;
+
+    if (capture.remaining () < 4)
+      throw new IOException ("Truncated record length");
+    int recordLength = capture.getInt ();
+    if (recordLength < BinaryCaptureWriter.RECORD_HEADER_SIZE
+        || recordLength > capture.remaining ())
+      throw new IOException ("Invalid record length: " + recordLength);
+
+    int recordEnd = capture.position () + recordLength;
+
+    source = capture.get () == 0 ? Source.CLIENT : Source.SERVER;
+    byte flags = capture.get ();
+    long nanos = capture.getLong ();
+    int labelLength = capture.getShort () & 0xFFFF;
+
+    genuine = (flags & BinaryCaptureWriter.GENUINE) != 0;
+    dateTime = (flags & BinaryCaptureWriter.TIMESTAMP) != 0
+        ? BinaryCaptureWriter.fromNanos (nanos) : null;
+
+    if (labelLength > 0)
+    {
+      byte[] labelBytes = new byte[labelLength];
+      capture.get (labelBytes);
+      label = new String (labelBytes, StandardCharsets.UTF_8);
+    }
+    else
+      label = null;
+
+    dataStart = capture.position ();
+    dataEnd = recordEnd;
+    capture.position (recordEnd);
+
+    return true;
+  }
+
+  public Source getSource ()
+  {
+    return source;
+  }
+
+  public boolean isGenuine ()
+  {
+    return genuine;
+  }
+
+  public LocalDateTime getDateTime ()
+  {
+    return dateTime;
+  }
+
+  public String getLabel ()
+  {
+    return label;
+  }
+
+  // a read-only view of the current record's buffer, positioned at its offset within
+  // the capture
+  public ByteBuffer getData ()
+  {
+    ByteBuffer data = capture.asReadOnlyBuffer ();
+    data.limit (dataEnd);
+    data.position (dataStart);
+    return data;
+  }
+}
@@ -0,0 +1,36 @@
+package com.bytezone.dm3270.session;
+
+import com.bytezone.dm3270.buffers.ReplyBuffer;
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.extended.AbstractExtendedCommand;
+import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetSubcommand;
+
+// The name of a message as shown in the session table. Kept apart from SessionRecord
+// so that it can be used without JavaFX.
+
+final class MessageNames
+{
+  private MessageNames ()
+  {
+  }
+
+  // create Interface (Identifiable?) with getName()
+  // called from SessionRecord.commandNameProperty()
+  // called from CaptureStatistics.count()
+  static String getName (ReplyBuffer message)
+  {
+    if (message instanceof TelnetCommand)
+      return ((TelnetCommand) message).getName ();
+    if (message instanceof TelnetSubcommand)
+      return ((TelnetSubcommand) message).getName ();
+    if (message instanceof Command)
+      return ((Command) message).getName ();
+    if (message instanceof TN3270ExtendedCommand)
+      return ((TN3270ExtendedCommand) message).getName ();
+    if (message instanceof AbstractExtendedCommand)
+      return ((AbstractExtendedCommand) message).getName ();
+    return null;
+  }
+}
@@ -0,0 +1,84 @@
+package com.bytezone.dm3270.session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bytezone.dm3270.buffers.ReplyBuffer;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenSnapshot;
+
+// Puts a replay Screen into the state it was in when any record of a session was
+// processed. A Write that doesn't erase only changes part of the screen, so
+// processing the selected record on its own would paint over whatever screen was
+// shown last. Instead the screen is restored from the nearest checkpoint before the
+// record, and only the records in between are processed.
+//
+// Checkpoints are taken every CHECKPOINT_INTERVAL records, the first time the
+// replay moves past them, so opening a session doesn't have to process all of it.
+
+public class ReplayIndex
+{
+  private static final int CHECKPOINT_INTERVAL = 32;
+
+  private final List<SessionRecord> records;
+  private final Screen screen;
+  private final int interval;
+
+  // checkpoint n is the screen after the first n * interval records were processed
+  private final List<ScreenSnapshot> checkpoints = new ArrayList<> ();
+  private int current;                  // records processed so far
+
+  public ReplayIndex (List<SessionRecord> records, Screen screen)
+  {
+    this (records, screen, CHECKPOINT_INTERVAL);
+  }
+
+  ReplayIndex (List<SessionRecord> records, Screen screen, int interval)
+  {
+    this.records = records;
+    this.screen = screen;
+    this.interval = interval;
+
+    checkpoints.add (screen.getSnapshot ());      // the screen before any records
+  }
+
+  // called from CommandPane.replay()
+  public ReplyBuffer replay (SessionRecord sessionRecord)
+  {
+    return replay (sessionRecord.getIndex ());
+  }
+
+  // Process the record after restoring the screen to its state immediately before
+  // it. Returns the record's message, which has now been processed.
+  public ReplyBuffer replay (int index)
+  {
+    int checkpoint = Math.min (index / interval, checkpoints.size () - 1);
+    int checkpointStart = checkpoint * interval;
+
+    if (current > index || checkpointStart > current)
+    {
+      screen.restore (checkpoints.get (checkpoint));
+      current = checkpointStart;
+    }
+
+    while (current < index)
+      process (records.get (current), false);
+
+    return process (records.get (index), true);
+  }
+
+  private ReplyBuffer process (SessionRecord sessionRecord, boolean selected)
+  {
+    ReplyBuffer message = sessionRecord.getMessage ();
+
+    // telnet negotiation doesn't change the screen, it is only processed when it is
+    // the selected record
+    if (selected || !sessionRecord.isTelnet ())
+      message.process (screen);
+
+    if (++current % interval == 0 && current / interval == checkpoints.size ())
+      checkpoints.add (screen.getSnapshot ());
+
+    return message;
+  }
+}
@@ -1,9 +1,8 @@
 package com.bytezone.dm3270.session;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -24,7 +23,6 @@ import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
 import com.bytezone.dm3270.streams.TelnetListener;
 import com.bytezone.dm3270.streams.TelnetSocket.Source;
 import com.bytezone.dm3270.streams.TelnetState;
-import com.bytezone.dm3270.utilities.Dm3270Utility;
 
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -45,6 +43,13 @@ public class Session implements Iterable<SessionRecord>
   private final Label headerLabel = new Label ();
   private ScreenDimensions screenDimensions;
 
+  private static final int MAX_SPY_RECORDS = 5000;
+
+  // replayed commands are decoded to identify the client and server, so only look
+  // at the start of the session
+  private static final int MAX_REPLAY_CHECKS = 100;
+  private int commandsChecked;
+
   // called by SpyPane constructor
   public Session (TelnetState telnetState)
   {
@@ -58,10 +63,7 @@ public class Session implements Iterable<SessionRecord>
     function = Function.TEST;
     this.telnetState = telnetState;
 
-    SessionReader server = new SessionReader (Source.SERVER, lines);
-    SessionReader client = new SessionReader (Source.CLIENT, lines);
-
-    init (client, server);
+    init (new TextCaptureReader (lines));
   }
 
   // called by Console.startSelectedFunction()
@@ -70,34 +72,61 @@ public class Session implements Iterable<SessionRecord>
     function = Function.REPLAY;
     this.telnetState = telnetState;
 
-    SessionReader server = new SessionReader (Source.SERVER, path);
-    SessionReader client = new SessionReader (Source.CLIENT, path);
+    index (MappedCapture.open (path));
+  }
+
+  // Only the positions of the 3270 records are noted, they are not decoded until they
+  // are displayed or replayed. See TelnetListener.listen(ByteBuffer).
+  private void index (MappedCapture capture) throws IOException
+  {
+    TelnetListener clientTelnetListener =
+        new TelnetListener (Source.CLIENT, this, function, null, telnetState);
+    TelnetListener serverTelnetListener =
+        new TelnetListener (Source.SERVER, this, function, null, telnetState);
 
-    init (client, server);
+    while (capture.next ())
+    {
+      ByteBuffer data = capture.getData ();
+      if (capture.getSource () == Source.CLIENT)
+        clientTelnetListener.listen (Source.CLIENT, data, capture.getDateTime (),
+                                     capture.isGenuine ());
+      else
+      {
+        int length = data.remaining ();
+        boolean endOfRecord = length >= 2 && data.get (data.limit () - 2) == (byte) 0xFF
+            && data.get (data.limit () - 1) == (byte) 0xEF;
+
+        serverTelnetListener.listen (Source.SERVER, data, capture.getDateTime (),
+                                     capture.isGenuine ());
+        if (endOfRecord)
+          labels.add (capture.getLabel ());
+      }
+    }
   }
 
-  private void init (SessionReader client, SessionReader server) throws Exception
+  private void init (CaptureReader reader) throws Exception
   {
     TelnetListener clientTelnetListener =
         new TelnetListener (Source.CLIENT, this, function, null, telnetState);
     TelnetListener serverTelnetListener =
         new TelnetListener (Source.SERVER, this, function, null, telnetState);
 
-    while (client.nextLineNo () != server.nextLineNo ())
-      if (client.nextLineNo () < server.nextLineNo ())
-        while (client.nextLineNo () < server.nextLineNo ())
-          clientTelnetListener.listen (Source.CLIENT, client.nextBuffer (),
-                                       client.getDateTime (), client.isGenuine ());
+    CaptureRecord record;
+    while ((record = reader.next ()) != null)
+    {
+      byte[] buffer = record.buffer;
+      if (record.source == Source.CLIENT)
+        clientTelnetListener.listen (Source.CLIENT, buffer, record.dateTime,
+                                     record.genuine);
       else
-        while (client.nextLineNo () > server.nextLineNo ())
-        {
-          byte[] buffer = server.nextBuffer ();
-          serverTelnetListener.listen (Source.SERVER, buffer, server.getDateTime (),
-                                       server.isGenuine ());
-          if (buffer[buffer.length - 2] == (byte) 0xFF
-              && buffer[buffer.length - 1] == (byte) 0xEF)
-            labels.add (server.getLabel ());
-        }
+      {
+        serverTelnetListener.listen (Source.SERVER, buffer, record.dateTime,
+                                     record.genuine);
+        if (buffer[buffer.length - 2] == (byte) 0xFF
+            && buffer[buffer.length - 1] == (byte) 0xEF)
+          labels.add (record.label);
+      }
+    }
   }
 
   public List<String> getLabels ()
@@ -137,10 +166,27 @@ public class Session implements Iterable<SessionRecord>
     if (sessionRecord == null)
       throw new IllegalArgumentException ("DataRecord is null");
 
-    sessionRecords.add (sessionRecord);       // should this be concurrent?
+    if (function == Function.SPY)
+    {
+      // the SpyRecorder has the whole session on disk, so only the most recent
+      // records are kept for display
+      Platform.runLater ( () ->
+      {
+        sessionRecords.add (sessionRecord);
+        int excess = sessionRecords.size () - MAX_SPY_RECORDS;
+        if (excess > 0)
+          sessionRecords.remove (0, excess);
+      });
+    }
+    else
+    {
+      sessionRecord.setIndex (sessionRecords.size ());
+      sessionRecords.add (sessionRecord);
+    }
 
     // this code checks to see whether it can identify the client and/or server
-    if (function != Function.TERMINAL && sessionRecord.isCommand ())
+    if (function != Function.TERMINAL && sessionRecord.isCommand ()
+        && (function != Function.REPLAY || ++commandsChecked <= MAX_REPLAY_CHECKS))
     {
       switch (sessionRecord.getSource ())
       {
@@ -187,7 +233,7 @@ public class Session implements Iterable<SessionRecord>
     for (Order order : ((WriteCommand) command).getOrdersList ())
       if (order instanceof TextOrder)
       {
-        String text = ((TextOrder) order).getTextString ();
+        String text = ((TextOrder) order).getTextString (telnetState.getCodec ());
         if (text.contains ("Welcome to Fan DeZhi Mainframe System!"))
         {
           serverName = "FanDeZhi";
@@ -241,35 +287,35 @@ public class Session implements Iterable<SessionRecord>
     return null;
   }
 
+  // the format is chosen by the file's extension - see CaptureWriter
   public void save (File file)
   {
-    try
+    try (CaptureWriter writer = CaptureWriter.getInstance (file.toPath ()))
     {
-      PrintWriter writer = new PrintWriter (file, "UTF-8");
       for (SessionRecord dataRecord : sessionRecords)
       {
-        writer.printf ("%s %s %s%n",
-                       dataRecord.getSource () == Source.CLIENT ? "Client" : "Server",
-                       dataRecord.isGenuine () ? " " : "*", dataRecord.getDateTime ());
+        // a lazily decoded message must only be decoded once here
+        ReplyBuffer message = dataRecord.getMessage ();
 
         // scramble user input
         if (safeFlag)
         {
-          ReplyBuffer message = dataRecord.getMessage ();
+          ReplyBuffer command = message;
 
-          if (message instanceof TN3270ExtendedCommand)
-            message = ((TN3270ExtendedCommand) message).getCommand ();
+          if (command instanceof TN3270ExtendedCommand)
+            command = ((TN3270ExtendedCommand) command).getCommand ();
 
-          if (message instanceof AIDCommand)
-            ((AIDCommand) message).scramble ();
+          if (command instanceof AIDCommand)
+            ((AIDCommand) command).scramble ();
         }
 
         // write the data buffer after adding back the double-FF bytes
-        writer.println (Dm3270Utility.toHex (dataRecord.getMessage ().getTelnetData ()));
+        byte[] buffer = message.getTelnetData ();
+        writer.write (dataRecord.getSource (), dataRecord.isGenuine (),
+                      dataRecord.getDateTime (), null, buffer, 0, buffer.length);
       }
-      writer.close ();
     }
-    catch (FileNotFoundException | UnsupportedEncodingException e)
+    catch (IOException e)
     {
       e.printStackTrace ();
     }
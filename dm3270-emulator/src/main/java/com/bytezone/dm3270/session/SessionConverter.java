@@ -0,0 +1,42 @@
+package com.bytezone.dm3270.session;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Converts a session capture between the text and binary formats. The input format
+// is detected from the file's contents, the output format is chosen by its extension.
+//
+//   java com.bytezone.dm3270.session.SessionConverter spy01.txt spy01.cap
+
+public class SessionConverter
+{
+  public static void main (String[] args) throws Exception
+  {
+    if (args.length != 2)
+    {
+      System.out.println ("Usage: SessionConverter <input> <output>");
+      return;
+    }
+
+    Path input = Paths.get (args[0]);
+    Path output = Paths.get (args[1]);
+
+    int records = 0;
+    long bytes = 0;
+
+    try (CaptureReader reader = CaptureReader.getInstance (input);
+        CaptureWriter writer = CaptureWriter.getInstance (output))
+    {
+      CaptureRecord record;
+      while ((record = reader.next ()) != null)
+      {
+        writer.write (record);
+        records++;
+        bytes += record.buffer.length;
+      }
+    }
+
+    System.out.printf ("%,d records (%,d bytes) written to %s%n", records, bytes,
+                       output);
+  }
+}
@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.bytezone.dm3270.streams.TelnetSocket.Source;
@@ -27,7 +28,7 @@ public class SessionReader
   private String label;
   private String returnLabel;
 
-  public byte[] buffer = new byte[16500];       // see also TelnetProcessor
+  public byte[] buffer = new byte[16500];       // grows, see also TelnetProcessor
 
   public SessionReader (Source source, List<String> lines)
   {
@@ -70,7 +71,7 @@ public class SessionReader
     return data;
   }
 
-  public int next () throws Exception
+  public int next ()
   {
     if (nextLine >= lines.size ())
       return 0;
@@ -82,13 +83,15 @@ public class SessionReader
 
     for (String line : getBufferLines ())
     {
-      while (!line.isEmpty ())
+      // each hex value is two digits followed by a space
+      for (int i = 0; i + 1 < line.length (); i += 3)
       {
-        String b = line.substring (0, 2).trim ();     // get hex value
-        if (b.isEmpty ())
+        if (line.charAt (i) == ' ')
           break;
-        buffer[bytesWritten++] = (byte) Integer.parseInt (b, 16);
-        line = line.substring (3);                    // remove it from the line
+        if (bytesWritten == buffer.length)
+          buffer = Arrays.copyOf (buffer, buffer.length * 2);
+        buffer[bytesWritten++] = (byte) (Character.digit (line.charAt (i), 16) << 4
+            | Character.digit (line.charAt (i + 1), 16));
       }
     }
     return bytesWritten;
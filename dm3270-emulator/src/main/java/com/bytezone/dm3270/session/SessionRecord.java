@@ -1,15 +1,14 @@
 package com.bytezone.dm3270.session;
 
+import java.lang.ref.SoftReference;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
 
 import com.bytezone.dm3270.buffers.ReplyBuffer;
 import com.bytezone.dm3270.commands.Command;
-import com.bytezone.dm3270.extended.AbstractExtendedCommand;
 import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
 import com.bytezone.dm3270.streams.TelnetSocket.Source;
-import com.bytezone.dm3270.telnet.TelnetCommand;
-import com.bytezone.dm3270.telnet.TelnetSubcommand;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -22,12 +21,16 @@ public class SessionRecord
       DateTimeFormatter.ofPattern ("dd MMM uuuu HH:mm:ss.S");
   private static final DateTimeFormatter timeFormatter =
       DateTimeFormatter.ofPattern ("mm:ss");
-  private final ReplyBuffer message;
+  private final ReplyBuffer message;                     // null when decoded lazily
+  private final Supplier<ReplyBuffer> decoder;
+  private SoftReference<ReplyBuffer> decodedMessage;
+  private final int size;
 
   private final Source source;
   private final boolean genuine;
   private final SessionRecordType sessionRecordType;
   private final LocalDateTime dateTime;
+  private int index = -1;                 // position in the Session
 
   private StringProperty sourceName;
   private StringProperty commandType;
@@ -42,46 +45,31 @@ public class SessionRecord
 
   public SessionRecord (SessionRecordType sessionRecordType, ReplyBuffer message,
       Source source, LocalDateTime dateTime, boolean genuine)
+  {
+    this (sessionRecordType, message, null, message.size (), source, dateTime, genuine);
+  }
+
+  // REPLAY - the message is only decoded from the capture when it is needed, either
+  // to display the record's row in a table or to replay it. Decoded messages are
+  // softly held, so a large capture never has all of its messages in memory.
+  public SessionRecord (SessionRecordType sessionRecordType,
+      Supplier<ReplyBuffer> decoder, int size, Source source, LocalDateTime dateTime,
+      boolean genuine)
+  {
+    this (sessionRecordType, null, decoder, size, source, dateTime, genuine);
+  }
+
+  private SessionRecord (SessionRecordType sessionRecordType, ReplyBuffer message,
+      Supplier<ReplyBuffer> decoder, int size, Source source, LocalDateTime dateTime,
+      boolean genuine)
   {
     this.sessionRecordType = sessionRecordType;
     this.message = message;
+    this.decoder = decoder;
+    this.size = size;
     this.source = source;
     this.dateTime = dateTime;
     this.genuine = genuine;
-
-    if (genuine)
-      setSourceName (source == Source.CLIENT ? "Client" : "Server");
-    else
-      setSourceName ("MITM-" + (source == Source.CLIENT ? "C" : "S"));
-
-    switch (sessionRecordType)
-    {
-      case TELNET:
-        setCommandType ("Telnet");
-        break;
-      case TN3270:
-        setCommandType ("TN3270");
-        break;
-      case TN3270E:
-        setCommandType ("Extended");
-        break;
-    }
-
-    // create Interface (Identifiable?) with getName()
-    if (message instanceof TelnetCommand)
-      setCommandName (((TelnetCommand) message).getName ());
-    else if (message instanceof TelnetSubcommand)
-      setCommandName (((TelnetSubcommand) message).getName ());
-    else if (message instanceof Command)
-      setCommandName (((Command) message).getName ());
-    else if (message instanceof TN3270ExtendedCommand)
-      setCommandName (((TN3270ExtendedCommand) message).getName ());
-    else if (message instanceof AbstractExtendedCommand)
-      setCommandName (((AbstractExtendedCommand) message).getName ());
-
-    setBufferSize (message.size ());
-    if (dateTime != null)
-      setTime (timeFormatter.format (dateTime));
   }
 
   public boolean isTelnet ()
@@ -101,11 +89,14 @@ public class SessionRecord
 
   public boolean isCommand ()
   {
+    if (message == null)                      // only 3270 data records are commands
+      return sessionRecordType == SessionRecordType.TN3270;
     return message instanceof Command || message instanceof TN3270ExtendedCommand;
   }
 
   public Command getCommand ()
   {
+    ReplyBuffer message = getMessage ();
     if (message instanceof Command)
       return (Command) message;
     if (message instanceof TN3270ExtendedCommand)
@@ -115,17 +106,37 @@ public class SessionRecord
 
   public ReplyBuffer getMessage ()
   {
-    return message;
+    if (message != null)
+      return message;
+
+    ReplyBuffer decoded = decodedMessage == null ? null : decodedMessage.get ();
+    if (decoded == null)
+    {
+      decoded = decoder.get ();
+      decodedMessage = new SoftReference<> (decoded);
+    }
+    return decoded;
   }
 
   public byte[] getBuffer ()
   {
-    return message.getData ();
+    return getMessage ().getData ();
   }
 
   public int size ()
   {
-    return message.size ();
+    return size;
+  }
+
+  // called from Session.add()
+  void setIndex (int index)
+  {
+    this.index = index;
+  }
+
+  public int getIndex ()
+  {
+    return index;
   }
 
   public SessionRecordType getDataRecordType ()
@@ -165,7 +176,8 @@ public class SessionRecord
   public StringProperty timeProperty ()
   {
     if (time == null)
-      time = new SimpleStringProperty ();
+      time = new SimpleStringProperty (
+          dateTime == null ? null : timeFormatter.format (dateTime));
     return time;
   }
 
@@ -186,7 +198,12 @@ public class SessionRecord
   public StringProperty sourceNameProperty ()
   {
     if (sourceName == null)
-      sourceName = new SimpleStringProperty ();
+      if (genuine)
+        sourceName =
+            new SimpleStringProperty (source == Source.CLIENT ? "Client" : "Server");
+      else
+        sourceName =
+            new SimpleStringProperty ("MITM-" + (source == Source.CLIENT ? "C" : "S"));
     return sourceName;
   }
 
@@ -207,7 +224,18 @@ public class SessionRecord
   public StringProperty commandTypeProperty ()
   {
     if (commandType == null)
-      commandType = new SimpleStringProperty ();
+      switch (sessionRecordType)
+      {
+        case TELNET:
+          commandType = new SimpleStringProperty ("Telnet");
+          break;
+        case TN3270:
+          commandType = new SimpleStringProperty ("TN3270");
+          break;
+        case TN3270E:
+          commandType = new SimpleStringProperty ("Extended");
+          break;
+      }
     return commandType;
   }
 
@@ -225,10 +253,11 @@ public class SessionRecord
     return commandNameProperty ().get ();
   }
 
+  // decodes the message when the row is first displayed
   public StringProperty commandNameProperty ()
   {
     if (commandName == null)
-      commandName = new SimpleStringProperty ();
+      commandName = new SimpleStringProperty (MessageNames.getName (getMessage ()));
     return commandName;
   }
 
@@ -249,7 +278,7 @@ public class SessionRecord
   public IntegerProperty bufferSizeProperty ()
   {
     if (bufferSize == null)
-      bufferSize = new SimpleIntegerProperty ();
+      bufferSize = new SimpleIntegerProperty (size);
     return bufferSize;
   }
 
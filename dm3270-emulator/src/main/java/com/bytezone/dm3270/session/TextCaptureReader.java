@@ -0,0 +1,112 @@
+package com.bytezone.dm3270.session;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+
+// Reads a capture in the original hex text format, in a single pass. Each record is
+// a Client or Server line, followed by the buffer as a hex dump. A ## line sets the
+// label for every record that follows it, until the next ## line.
+
+public class TextCaptureReader implements CaptureReader
+{
+  private final BufferedReader reader;
+  private String nextLine;                      // read but not yet used, or null
+
+  private String label;
+  private byte[] buffer = new byte[16500];      // grows, see also TelnetProcessor
+
+  public TextCaptureReader (Path path) throws IOException
+  {
+    this (Files.newBufferedReader (path));
+  }
+
+  public TextCaptureReader (List<String> lines)
+  {
+    this (new BufferedReader (new StringReader (String.join ("\n", lines))));
+  }
+
+  public TextCaptureReader (BufferedReader reader)
+  {
+    this.reader = reader;
+  }
+
+  @Override
+  public CaptureRecord next () throws IOException
+  {
+    // skip to the next Client or Server line
+    String header;
+    while (true)
+    {
+      header = readLine ();
+      if (header == null)
+        return null;
+
+      if (header.startsWith ("##"))
+        label = header.substring (3);
+      else if (header.startsWith ("C") || header.startsWith ("S"))
+        break;
+    }
+
+    Source source = header.startsWith ("C") ? Source.CLIENT : Source.SERVER;
+    boolean genuine = header.length () <= 7 || header.charAt (7) != '*';
+    LocalDateTime dateTime =
+        header.length () > 9 ? LocalDateTime.parse (header.substring (9).trim ()) : null;
+
+    // skip any comments before the first buffer line
+    String line;
+    while ((line = readLine ()) != null && !line.startsWith ("0"))
+      if (line.startsWith ("##") || line.startsWith ("C") || line.startsWith ("S"))
+        break;
+
+    int bytesWritten = 0;
+    int firstHexDigit = 0;
+    while (line != null && !line.isEmpty () && line.charAt (0) >= '0'
+        && line.charAt (0) <= '9')
+    {
+      if (firstHexDigit == 0)
+        firstHexDigit = line.charAt (7) == ' ' ? 8 : 6;
+
+      // each hex value is two digits followed by a space - 16 values to a line
+      int end = Math.min (line.length (), firstHexDigit + 48);
+      for (int i = firstHexDigit; i + 1 < end; i += 3)
+      {
+        if (line.charAt (i) == ' ')
+          break;
+        if (bytesWritten == buffer.length)
+          buffer = Arrays.copyOf (buffer, buffer.length * 2);
+        buffer[bytesWritten++] = (byte) (Character.digit (line.charAt (i), 16) << 4
+            | Character.digit (line.charAt (i + 1), 16));
+      }
+
+      line = readLine ();
+    }
+    nextLine = line;                            // the start of the next record
+
+    return new CaptureRecord (source, genuine, dateTime, label,
+        Arrays.copyOf (buffer, bytesWritten));
+  }
+
+  private String readLine () throws IOException
+  {
+    if (nextLine == null)
+      return reader.readLine ();
+
+    String line = nextLine;
+    nextLine = null;
+    return line;
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    reader.close ();
+  }
+}
@@ -0,0 +1,52 @@
+package com.bytezone.dm3270.session;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+
+// Writes a capture in the original hex text format, which TextCaptureReader reads.
+
+public class TextCaptureWriter implements CaptureWriter
+{
+  private final PrintWriter writer;
+  private String lastLabel;
+
+  public TextCaptureWriter (Path path) throws IOException
+  {
+    writer = new PrintWriter (Files.newBufferedWriter (path, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void write (Source source, boolean genuine, LocalDateTime dateTime,
+      String label, byte[] buffer, int offset, int length) throws IOException
+  {
+    if (label != null && !label.equals (lastLabel))
+    {
+      writer.printf ("## %s%n", label);
+      lastLabel = label;
+    }
+
+    String name = source == Source.CLIENT ? "Client" : "Server";
+    if (dateTime == null)
+      writer.printf ("%s %s%n", name, genuine ? " " : "*");
+    else
+      writer.printf ("%s %s %s%n", name, genuine ? " " : "*", dateTime);
+
+    writer.println (Dm3270Utility.toHex (buffer, offset, length));
+
+    if (writer.checkError ())
+      throw new IOException ("Error writing capture");
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    writer.close ();
+  }
+}
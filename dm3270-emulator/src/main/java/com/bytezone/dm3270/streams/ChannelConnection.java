@@ -0,0 +1,134 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+// Base class for a non-blocking socket that is serviced by a SelectorLoop. Reads
+// are delivered to received() on the loop thread. Writes may come from any thread;
+// whatever the socket cannot take immediately is queued and flushed by the loop.
+
+abstract class ChannelConnection
+{
+  private SocketChannel channel;
+  private SelectorLoop loop;
+  private SelectionKey key;
+  private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<> ();
+
+  // the channel must already be connected
+  void register (SocketChannel channel) throws IOException
+  {
+    channel.configureBlocking (false);
+    this.channel = channel;
+    loop = SelectorLoop.next ();
+    loop.register (this);
+  }
+
+  SocketChannel getChannel ()
+  {
+    return channel;
+  }
+
+  // called on the loop thread once the channel is registered
+  synchronized void setKey (SelectionKey key)
+  {
+    this.key = key;
+    if (!pendingWrites.isEmpty ())
+      key.interestOps (SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+  }
+
+  boolean isOpen ()
+  {
+    return channel != null && channel.isOpen ();
+  }
+
+  // called on the loop thread
+  void read (ByteBuffer buffer) throws IOException
+  {
+    buffer.clear ();
+    int bytesRead = channel.read (buffer);
+    if (bytesRead < 0)
+    {
+      endOfStream ();
+      return;
+    }
+    if (bytesRead == 0)
+      return;
+
+    buffer.flip ();
+    byte[] message = new byte[bytesRead];
+    buffer.get (message);
+    received (message);
+  }
+
+  // called from any thread
+  synchronized void send (byte[] buffer) throws IOException
+  {
+    ByteBuffer byteBuffer = ByteBuffer.wrap (buffer);
+
+    if (pendingWrites.isEmpty ())
+    {
+      channel.write (byteBuffer);
+      if (!byteBuffer.hasRemaining ())
+        return;
+    }
+
+    pendingWrites.add (byteBuffer);
+    if (pendingWrites.size () == 1)
+      loop.execute ( () -> setInterest (SelectionKey.OP_READ | SelectionKey.OP_WRITE));
+  }
+
+  // called on the loop thread when the socket can take more data
+  synchronized void flush () throws IOException
+  {
+    while (!pendingWrites.isEmpty ())
+    {
+      ByteBuffer byteBuffer = pendingWrites.peek ();
+      channel.write (byteBuffer);
+      if (byteBuffer.hasRemaining ())
+        return;
+      pendingWrites.remove ();
+    }
+    key.interestOps (SelectionKey.OP_READ);
+  }
+
+  private synchronized void setInterest (int ops)
+  {
+    if (key != null && key.isValid () && !pendingWrites.isEmpty ())
+      key.interestOps (ops);
+  }
+
+  void close ()
+  {
+    if (channel != null)
+      try
+      {
+        channel.close ();         // also cancels the key
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace ();
+      }
+
+    synchronized (this)
+    {
+      pendingWrites.clear ();
+    }
+  }
+
+  abstract void received (byte[] message);
+
+  void endOfStream ()
+  {
+    close ();
+  }
+
+  void failed (Exception e)
+  {
+    e.printStackTrace ();
+    close ();
+  }
+}
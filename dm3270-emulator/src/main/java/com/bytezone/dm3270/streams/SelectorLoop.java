@@ -0,0 +1,149 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A single Selector running on its own daemon thread. All terminal and spy
+// connections in the JVM are spread across a small pool of these loops instead of
+// each socket owning a blocking thread.
+
+public class SelectorLoop implements Runnable
+{
+  private static final int BUFFER_SIZE = 32768;
+  private static final int POOL_SIZE =
+      Math.max (1, Math.min (4, Runtime.getRuntime ().availableProcessors ()));
+
+  private static SelectorLoop[] pool;
+  private static final AtomicInteger nextLoop = new AtomicInteger ();
+
+  private final Selector selector;
+  private final Thread thread;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<> ();
+
+  // only ever touched on the loop thread, so one direct buffer serves every channel
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect (BUFFER_SIZE);
+
+  private SelectorLoop (int id) throws IOException
+  {
+    selector = Selector.open ();
+    thread = new Thread (this, "SelectorLoop-" + id);
+    thread.setDaemon (true);
+    thread.start ();
+  }
+
+  // round-robin over the shared pool, creating it on first use
+  public static synchronized SelectorLoop next () throws IOException
+  {
+    if (pool == null)
+    {
+      SelectorLoop[] loops = new SelectorLoop[POOL_SIZE];
+      for (int i = 0; i < loops.length; i++)
+        loops[i] = new SelectorLoop (i);
+      pool = loops;
+    }
+    return pool[Math.abs (nextLoop.getAndIncrement () % pool.length)];
+  }
+
+  // called from any thread
+  void register (ChannelConnection connection)
+  {
+    execute ( () ->
+    {
+      try
+      {
+        SocketChannel channel = connection.getChannel ();
+        connection.setKey (channel.register (selector, SelectionKey.OP_READ, connection));
+      }
+      catch (IOException e)
+      {
+        connection.failed (e);
+      }
+    });
+  }
+
+  // run a task on the loop thread (interest changes must not race a select)
+  void execute (Runnable task)
+  {
+    tasks.add (task);
+    if (Thread.currentThread () != thread)
+      selector.wakeup ();
+  }
+
+  boolean inLoop ()
+  {
+    return Thread.currentThread () == thread;
+  }
+
+  @Override
+  public void run ()
+  {
+    while (true)
+    {
+      try
+      {
+        runTasks ();
+        selector.select ();
+        runTasks ();
+
+        Iterator<SelectionKey> it = selector.selectedKeys ().iterator ();
+        while (it.hasNext ())
+        {
+          SelectionKey key = it.next ();
+          it.remove ();
+          dispatch (key);
+        }
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace ();
+      }
+    }
+  }
+
+  private void runTasks ()
+  {
+    Runnable task;
+    while ((task = tasks.poll ()) != null)
+      try
+      {
+        task.run ();
+      }
+      catch (RuntimeException e)
+      {
+        e.printStackTrace ();            // the other tasks and connections carry on
+      }
+  }
+
+  private void dispatch (SelectionKey key)
+  {
+    ChannelConnection connection = (ChannelConnection) key.attachment ();
+    try
+    {
+      if (key.isValid () && key.isWritable ())
+        connection.flush ();
+      if (key.isValid () && key.isReadable ())
+        connection.read (readBuffer);
+    }
+    catch (CancelledKeyException e)
+    {
+      // channel was closed by another thread, nothing to do
+    }
+    catch (IOException e)
+    {
+      connection.failed (e);
+    }
+    catch (RuntimeException e)
+    {
+      // a bad stream only loses its own connection, not the loop's thread
+      connection.failed (e);
+    }
+  }
+}
@@ -0,0 +1,378 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+import com.bytezone.dm3270.session.BinaryCaptureReader;
+import com.bytezone.dm3270.session.BinaryCaptureWriter;
+import com.bytezone.dm3270.session.CaptureReader;
+import com.bytezone.dm3270.session.CaptureRecord;
+import com.bytezone.dm3270.session.CaptureWriter;
+import com.bytezone.dm3270.streams.TelnetSocket.Source;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+
+// Records a spy session to disk without slowing down the connection. The socket
+// threads only add each buffer to a bounded queue, which never blocks - if the writer
+// has fallen that far behind the buffer is dropped (and counted), and the next buffer
+// that is queued is labelled with the number dropped, so the gap shows in a replay.
+// A single writer thread appends the buffers to a binary capture, rolling over to a
+// new file when the current one reaches the roll size, and then passes them to the
+// display listeners, so even the table of records is built away from the socket
+// threads.
+//
+// Every file starts with the telnet negotiation from the start of the session, so
+// that each one can be replayed on its own. save() joins the files back together.
+
+public class SpyRecorder implements BufferListener
+{
+  private static final DateTimeFormatter formatter =
+      DateTimeFormatter.ofPattern ("yyyyMMdd-HHmmss");
+
+  private final Queue<CaptureRecord> queue = new ConcurrentLinkedQueue<> ();
+  private final AtomicInteger queued = new AtomicInteger ();
+  private final AtomicLong dropped = new AtomicLong ();
+  private final AtomicLong droppedMarked = new AtomicLong ();   // labelled so far
+
+  private final Path folder;
+  private final String baseName;
+  private final List<Part> parts = new ArrayList<> ();    // guarded by parts
+  private final List<CaptureRecord> preamble = new ArrayList<> ();
+  private boolean preambleComplete;
+  private BinaryCaptureWriter writer;
+
+  private BufferListener clientListener;
+  private BufferListener serverListener;
+
+  private Thread writerThread;
+  private volatile boolean running;
+  private volatile boolean writerClosed;                  // set under the parts lock
+  private int unflushed;
+  private long flushDue;
+
+  // configuration - set before start()
+  private int queueCapacity = 10_000;
+  private int batchSize = 64;
+  private long flushInterval = TimeUnit.MILLISECONDS.toNanos (100);
+  private boolean force;
+  private long rollSize = 64 * 1024 * 1024;
+  private LongConsumer dropListener;
+
+  public SpyRecorder (Path folder)
+  {
+    this.folder = folder;
+    baseName = "spy-" + LocalDateTime.now ().format (formatter);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Configuration
+  // ---------------------------------------------------------------------------------//
+
+  public void setQueueCapacity (int queueCapacity)
+  {
+    this.queueCapacity = queueCapacity;
+  }
+
+  // buffers written between flushes, at most
+  public void setBatchSize (int batchSize)
+  {
+    this.batchSize = batchSize;
+  }
+
+  // how long a written buffer may wait before it is flushed
+  public void setFlushInterval (long flushInterval, TimeUnit unit)
+  {
+    this.flushInterval = unit.toNanos (flushInterval);
+  }
+
+  // whether each flush waits for the data to reach the disk
+  public void setForce (boolean force)
+  {
+    this.force = force;
+  }
+
+  public void setRollSize (long rollSize)
+  {
+    this.rollSize = rollSize;
+  }
+
+  // told the total dropped so far, on the writer thread, after each gap is recorded
+  public void setDropListener (LongConsumer dropListener)
+  {
+    this.dropListener = dropListener;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Recording
+  // ---------------------------------------------------------------------------------//
+
+  // called from SpyServer.run()
+  public void start (BufferListener clientListener, BufferListener serverListener)
+      throws IOException
+  {
+    this.clientListener = clientListener;
+    this.serverListener = serverListener;
+
+    Files.createDirectories (folder);
+    roll ();
+
+    running = true;
+    writerThread = new Thread (this::run, "SpyRecorder");
+    writerThread.setDaemon (true);
+    writerThread.start ();
+  }
+
+  // called from TelnetSocket.received() and TelnetSocket.fakeReplySent()
+  @Override
+  public void listen (Source source, byte[] message, LocalDateTime dateTime,
+      boolean genuine)
+  {
+    // the writer has given up, but the display can still be kept up to date
+    if (writerClosed)
+    {
+      (source == Source.CLIENT ? clientListener : serverListener).listen (source,
+          message, dateTime, genuine);
+      return;
+    }
+
+    int size = queued.incrementAndGet ();
+    if (size > queueCapacity)
+    {
+      queued.decrementAndGet ();
+      if (dropped.getAndIncrement () == 0)
+        System.out.println ("Spy recorder has fallen behind, dropping buffers");
+      return;
+    }
+
+    queue.offer (new CaptureRecord (source, genuine, dateTime, getGapLabel (), message));
+
+    // otherwise the writer wakes up by itself after the flush interval
+    if (size % batchSize == 0)
+      LockSupport.unpark (writerThread);
+  }
+
+  // Returns a label for the first buffer after a gap, or null. Both socket threads
+  // come here, but only one of them can claim each gap.
+  private String getGapLabel ()
+  {
+    long marked = droppedMarked.get ();
+    long total = dropped.get ();
+    if (total == marked || !droppedMarked.compareAndSet (marked, total))
+      return null;
+    return String.format ("Dropped %,d buffers", total - marked);
+  }
+
+  // the writer thread
+  private void run ()
+  {
+    try
+    {
+      while (true)
+      {
+        CaptureRecord record = queue.poll ();
+        if (record == null)
+        {
+          if (unflushed > 0 && System.nanoTime () - flushDue >= 0)
+            flush ();
+          if (!running && queue.isEmpty ())
+            break;
+          LockSupport.parkNanos (this,
+                                 unflushed > 0 ? flushDue - System.nanoTime ()
+                                     : flushInterval);
+          continue;
+        }
+
+        queued.decrementAndGet ();
+        if (unflushed++ == 0)
+          flushDue = System.nanoTime () + flushInterval;
+
+        write (record);
+        if (unflushed >= batchSize)
+          flush ();
+        if (record.label != null && dropListener != null)
+          dropListener.accept (dropped.get ());
+
+        BufferListener listener =
+            record.source == Source.CLIENT ? clientListener : serverListener;
+        try
+        {
+          listener.listen (record.source, record.buffer, record.dateTime,
+                           record.genuine);
+        }
+        catch (RuntimeException e)
+        {
+          e.printStackTrace ();               // the buffer has still been recorded
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      running = false;
+    }
+    finally
+    {
+      synchronized (parts)
+      {
+        writerClosed = true;
+        try
+        {
+          writer.close ();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace ();
+        }
+      }
+    }
+
+    long total = dropped.get ();
+    if (total > 0)
+      System.out.printf ("Spy recorder dropped %,d buffers%n", total);
+  }
+
+  private void write (CaptureRecord record) throws IOException
+  {
+    synchronized (parts)
+    {
+      if (writer.size () >= rollSize)
+        roll ();
+
+      writer.write (record);
+      parts.get (parts.size () - 1).records++;
+    }
+
+    // keep the negotiation until the first 3270 data stream
+    if (!preambleComplete)
+    {
+      preamble.add (record);
+      int length = record.buffer.length;
+      preambleComplete = length >= 2 && record.buffer[length - 2] == TelnetCommand.IAC
+          && record.buffer[length - 1] == TelnetCommand.EOR;
+    }
+  }
+
+  private void flush () throws IOException
+  {
+    synchronized (parts)
+    {
+      if (force)
+        writer.force ();
+      else
+        writer.flush ();
+    }
+    unflushed = 0;
+  }
+
+  // called with the parts lock held (apart from the first time)
+  private void roll () throws IOException
+  {
+    if (writer != null)
+      writer.close ();
+
+    Path path = folder.resolve (String.format ("%s-%03d%s", baseName, parts.size () + 1,
+                                               CaptureWriter.BINARY_EXTENSION));
+    writer = new BinaryCaptureWriter (path);
+
+    Part part = new Part (path, preamble.size ());
+    for (CaptureRecord record : preamble)
+      writer.write (record);
+    part.records = preamble.size ();
+    parts.add (part);
+  }
+
+  // called from SpyServer.close() after both sockets have been closed
+  @Override
+  public void close ()
+  {
+    if (writerThread == null)
+      return;
+
+    running = false;
+    LockSupport.unpark (writerThread);
+    try
+    {
+      writerThread.join ();
+    }
+    catch (InterruptedException e)
+    {
+      e.printStackTrace ();
+    }
+    writerThread = null;
+  }
+
+  public long getDropped ()
+  {
+    return dropped.get ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  // Saving
+  // ---------------------------------------------------------------------------------//
+
+  // Join everything recorded so far into a single capture (binary or text, depending
+  // on the file name). Recording continues while the files are being copied.
+  // called from SpyPane
+  public void save (Path path) throws IOException
+  {
+    List<Part> snapshot = new ArrayList<> ();
+    synchronized (parts)
+    {
+      if (writerThread != null && !writerClosed)
+        writer.flush ();
+      for (Part part : parts)
+        snapshot.add (part.copy ());
+    }
+
+    try (CaptureWriter captureWriter = CaptureWriter.getInstance (path))
+    {
+      for (int i = 0; i < snapshot.size (); i++)
+      {
+        Part part = snapshot.get (i);
+        try (CaptureReader reader = new BinaryCaptureReader (part.path))
+        {
+          for (int n = 0; n < part.records; n++)
+          {
+            CaptureRecord record = reader.next ();
+            if (record == null)
+              break;
+            if (i == 0 || n >= part.preambleRecords)      // skip repeated negotiation
+              captureWriter.write (record);
+          }
+        }
+      }
+    }
+  }
+
+  // one rolled file, and how many of its records can be read
+  private static class Part
+  {
+    final Path path;
+    final int preambleRecords;
+    int records;
+
+    Part (Path path, int preambleRecords)
+    {
+      this.path = path;
+      this.preambleRecords = preambleRecords;
+    }
+
+    Part copy ()
+    {
+      Part part = new Part (path, preambleRecords);
+      part.records = records;
+      return part;
+    }
+  }
+}
@@ -1,12 +1,12 @@
 package com.bytezone.dm3270.streams;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
-import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
 
 import com.bytezone.dm3270.application.Console;
 import com.bytezone.dm3270.display.Screen;
@@ -16,8 +16,8 @@ import com.bytezone.dm3270.utilities.Site;
 
 public class SpyServer implements Runnable
 {
-  private Socket clientSocket;
-  private final Socket serverSocket = new Socket ();
+  private SocketChannel clientChannel;
+  private SocketChannel serverChannel;
   private final TelnetState telnetState;
 
   private final String serverURL;
@@ -25,13 +25,15 @@ public class SpyServer implements Runnable
   private final int serverPort;
   private boolean prevent3270E;
 
-  private ServerSocket clientServerSocket;
+  private ServerSocketChannel clientServerChannel;
   private TelnetSocket clientTelnetSocket;
   private TelnetSocket serverTelnetSocket;
   private final Session session;
+  private final SpyRecorder spyRecorder;
   private Screen screen;
 
-  public SpyServer (Site server, int clientPort, Session session, TelnetState telnetState)
+  public SpyServer (Site server, int clientPort, Session session, TelnetState telnetState,
+      SpyRecorder spyRecorder)
   {
     if (server == null)
       throw new IllegalArgumentException ("Server cannot be null or empty");
@@ -39,6 +41,8 @@ public class SpyServer implements Runnable
       throw new IllegalArgumentException ("Client Port must be a positive integer");
     if (session == null)
       throw new IllegalArgumentException ("Session cannot be null");
+    if (spyRecorder == null)
+      throw new IllegalArgumentException ("SpyRecorder cannot be null");
 
     serverURL = server.getURL ();
     serverPort = server.getPort ();
@@ -46,6 +50,7 @@ public class SpyServer implements Runnable
     this.clientPort = clientPort;
     this.session = session;
     this.telnetState = telnetState;
+    this.spyRecorder = spyRecorder;
   }
 
   private void prevent3270E (boolean value)
@@ -59,25 +64,31 @@ public class SpyServer implements Runnable
     try
     {
       // wait for a tn3270 client to connect to us
-      clientServerSocket = new ServerSocket (clientPort);
-      clientSocket = clientServerSocket.accept ();      // blocks
+      clientServerChannel = ServerSocketChannel.open ();
+      clientServerChannel.bind (new InetSocketAddress (clientPort));
+      clientChannel = clientServerChannel.accept ();      // blocks
 
       // leave a message on the terminal screen while we connect to the MF
       String message = "Connecting to " + serverURL + ":" + serverPort;
-      OutputStream clientOut = clientSocket.getOutputStream ();
-      clientOut.write (message.getBytes ("ASCII"));
-      clientOut.flush ();
+      ByteBuffer messageBuffer = ByteBuffer.wrap (message.getBytes ("ASCII"));
+      while (messageBuffer.hasRemaining ())
+        clientChannel.write (messageBuffer);
 
       // now connect to the real mainframe
-      serverSocket.connect (new InetSocketAddress (serverURL, serverPort));
+      serverChannel = SocketChannel.open ();
+      serverChannel.connect (new InetSocketAddress (serverURL, serverPort));
+
+      // the sockets only hand their buffers to the recorder, which writes them to
+      // disk and then passes them to the TelnetListeners on its own thread
+      spyRecorder.start (
+          new TelnetListener (Source.CLIENT, session, Console.Function.SPY, screen,
+              telnetState),
+          new TelnetListener (Source.SERVER, session, Console.Function.SPY, screen,
+              telnetState));
 
       // create two SocketListeners and link them to each other
-      clientTelnetSocket =
-          new TelnetSocket (Source.CLIENT, clientSocket, new TelnetListener (
-              Source.CLIENT, session, Console.Function.SPY, screen, telnetState));
-      serverTelnetSocket =
-          new TelnetSocket (Source.SERVER, serverSocket, new TelnetListener (
-              Source.SERVER, session, Console.Function.SPY, screen, telnetState));
+      clientTelnetSocket = new TelnetSocket (Source.CLIENT, clientChannel, spyRecorder);
+      serverTelnetSocket = new TelnetSocket (Source.SERVER, serverChannel, spyRecorder);
 
       // TelnetSocket.link() will connect both sockets to each other (bidirectional)
       serverTelnetSocket.link (clientTelnetSocket);
@@ -86,19 +97,19 @@ public class SpyServer implements Runnable
       System.out.printf ("Prevent 3270E: %s%n", prevent3270E);
       serverTelnetSocket.prevent3270E (prevent3270E);
 
-      // start up the two listeners, each in its own thread 
-      new Thread (clientTelnetSocket).start ();
-      new Thread (serverTelnetSocket).start ();
+      // hand both channels to the shared SelectorLoops
+      clientTelnetSocket.start ();
+      serverTelnetSocket.start ();
 
       // we're done now, not waiting for any more connections
-      clientServerSocket.close ();
-      clientServerSocket = null;
+      clientServerChannel.close ();
+      clientServerChannel = null;
     }
-    catch (UnknownHostException e)
+    catch (UnresolvedAddressException e)
     {
       System.out.println ("Unknown host");
     }
-    catch (SocketException e)     // caused by closing the clientServerSocket
+    catch (AsynchronousCloseException e)     // caused by closing the clientServerChannel
     {
       System.out.println ("tata");
       close ();
@@ -121,11 +132,11 @@ public class SpyServer implements Runnable
 
   public void close ()
   {
-    if (clientServerSocket != null)
+    if (clientServerChannel != null)
       try
       {
-        clientServerSocket.close ();
-        clientServerSocket = null;
+        clientServerChannel.close ();
+        clientServerChannel = null;
       }
       catch (IOException e)
       {
@@ -143,5 +154,7 @@ public class SpyServer implements Runnable
       serverTelnetSocket.close ();
       serverTelnetSocket = null;
     }
+
+    spyRecorder.close ();
   }
 }
\ No newline at end of file
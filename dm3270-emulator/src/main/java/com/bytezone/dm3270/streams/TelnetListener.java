@@ -1,12 +1,15 @@
 package com.bytezone.dm3270.streams;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import com.bytezone.dm3270.application.Console.Function;
 import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.buffers.ReplyBuffer;
 import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.commands.WriteCommand;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.extended.BindCommand;
 import com.bytezone.dm3270.extended.CommandHeader;
@@ -20,6 +23,7 @@ import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
 import com.bytezone.dm3270.streams.TelnetSocket.Source;
 import com.bytezone.dm3270.telnet.*;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 import javafx.application.Platform;
 
@@ -32,13 +36,18 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor
   private final Function function;
   private final Screen screen;
 
-  private CommandHeader currentCommandHeader;
   private LocalDateTime currentDateTime;
   private boolean currentGenuine;
   private boolean debug;
 
   private final TelnetProcessor telnetProcessor = new TelnetProcessor (this);
 
+  // REPLAY - the capture being indexed, and where the last message ended in it
+  private ByteBuffer currentBuffer;
+  private int bufferStart;
+  private int messageEnd;
+  private boolean continued;          // the previous buffer ended mid-message
+
   // Use this when recording the session in SPY mode, or replaying the session
   // in REPLAY mode.
   public TelnetListener (Source source, Session session, Function function, Screen screen,
@@ -89,39 +98,103 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor
       telnetState.setLastAccess (dateTime, buffer.length);
   }
 
+  // Called from Session when indexing a capture - REPLAY mode. The buffer is a view
+  // of the whole capture, positioned at this buffer's offset. Telnet commands are
+  // processed as usual, but 3270 records only remember where they are in the capture,
+  // and are decoded when they are needed.
+  public synchronized void listen (Source source, ByteBuffer buffer,
+      LocalDateTime dateTime, boolean genuine)
+  {
+    assert source == this.source : "Incorrect source: " + source + ", expecting: "
+        + this.source;
+    assert function == Function.REPLAY;
+
+    currentDateTime = dateTime;
+    currentGenuine = genuine;
+    currentBuffer = buffer;
+    bufferStart = buffer.position ();
+
+    try
+    {
+      telnetProcessor.listen (buffer);
+      continued = messageEnd != buffer.limit ();
+    }
+    finally
+    {
+      currentBuffer = null;
+    }
+  }
+
   @Override
   public void close ()
   {
-    Platform.runLater ( () -> screen.displayText (telnetState.getSummary ()));
+    if (!screen.isHeadless ())
+      Platform.runLater ( () -> screen.displayText (telnetState.getSummary ()));
   }
 
   @Override
   public void processData (byte[] buffer, int length)
   {
+    markMessageEnd ();
     System.out.println ("Unknown telnet data received:");
     System.out.println (new String (buffer, 0, length));
     System.out.println (Dm3270Utility.toHex (buffer, 0, length, false));
   }
 
+  @Override
+  public void processRecord (ByteBuffer record)
+  {
+    if (currentBuffer == null)
+    {
+      byte[] buffer = new byte[record.remaining ()];
+      record.get (buffer);
+      processRecord (buffer, buffer.length);
+    }
+    else
+      indexRecord (record);
+  }
+
   @Override
   public void processRecord (byte[] data, int dataPtr)
+  {
+    ReplyBuffer message =
+        getMessage (source, data, dataPtr, telnetState.does3270Extended (),
+                    telnetState.getCodec ());
+
+    // measured here, before the message waits for the EDT
+    if (function == Function.TERMINAL && getWriteCommand (message) != null)
+      telnetState.getResponseTimes ().writeReceived ();
+
+    if (message != null)
+      addDataRecord (message,
+                     message instanceof Command || message instanceof TN3270ExtendedCommand
+                         ? SessionRecordType.TN3270 : SessionRecordType.TN3270E);
+  }
+
+  // converts a complete record (including the IAC/EOR) to a message
+  // called from processRecord()
+  // called from IndexedRecord.get()
+  // called from CaptureStatistics.processRecord()
+  public static ReplyBuffer getMessage (Source source, byte[] data, int dataPtr,
+      boolean extended, EbcdicCodec codec)
   {
     int offset;
     int length;
+    CommandHeader commandHeader;
     DataType dataType;
 
-    if (telnetState.does3270Extended ())
+    if (extended)
     {
       offset = 5;
       length = dataPtr - 7;         // exclude IAC/EOR and header
-      currentCommandHeader = new CommandHeader (data, 0, 5);
-      dataType = currentCommandHeader.getDataType ();
+      commandHeader = new CommandHeader (data, 0, 5);
+      dataType = commandHeader.getDataType ();
     }
     else
     {
       offset = 0;
       length = dataPtr - 2;         // exclude IAC/EOR
-      currentCommandHeader = null;
+      commandHeader = null;
       dataType = DataType.TN3270_DATA;
     }
 
@@ -134,38 +207,168 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor
         else
           command = Command.getReply (data, offset, length);
 
-        if (currentCommandHeader != null)
-          command = new TN3270ExtendedCommand (currentCommandHeader, (Command) command);
-        addDataRecord (command, SessionRecordType.TN3270);
-        break;
+        if (commandHeader != null)
+          command = new TN3270ExtendedCommand (commandHeader, (Command) command);
+        return command;
 
       case BIND_IMAGE:
-        BindCommand bindCommand =
-            new BindCommand (currentCommandHeader, data, offset, length);
-        addDataRecord (bindCommand, SessionRecordType.TN3270E);
-        break;
+        return new BindCommand (commandHeader, data, offset, length, codec);
 
       case UNBIND:
-        UnbindCommand unbindCommand =
-            new UnbindCommand (currentCommandHeader, data, offset, length);
-        addDataRecord (unbindCommand, SessionRecordType.TN3270E);
-        break;
+        return new UnbindCommand (commandHeader, data, offset, length);
 
       case RESPONSE:
-        ResponseCommand responseCommand =
-            new ResponseCommand (currentCommandHeader, data, offset, length);
-        addDataRecord (responseCommand, SessionRecordType.TN3270E);
-        break;
+        return new ResponseCommand (commandHeader, data, offset, length);
 
       default:
         System.out.println ("Data type not written: " + dataType);
         System.out.println (Dm3270Utility.toHex (data, offset, length));
+        return null;
+    }
+  }
+
+  // Add a SessionRecord that will decode the record from the capture when it is
+  // needed. Only the header of an extended record is examined now.
+  private void indexRecord (ByteBuffer record)
+  {
+    int start = Math.max (messageEnd, bufferStart);
+    int end = currentBuffer.position ();
+    boolean split = continued && start == bufferStart;   // started in an earlier buffer
+    messageEnd = end;
+    continued = false;
+
+    int dataPtr = record.remaining ();
+    boolean extended = telnetState.does3270Extended ();
+
+    DataType dataType = DataType.TN3270_DATA;
+    if (extended)
+    {
+      byte[] header = new byte[5];
+      record.duplicate ().get (header);
+      dataType = new CommandHeader (header).getDataType ();
+    }
+
+    switch (dataType)
+    {
+      case TN3270_DATA:
+      case BIND_IMAGE:
+      case UNBIND:
+      case RESPONSE:
+        break;
+
+      default:
+        System.out.println ("Data type not written: " + dataType);
+        return;
+    }
+
+    IndexedRecord indexedRecord;
+    if (split)
+    {
+      byte[] data = new byte[dataPtr];          // keep a copy of the rare split record
+      record.get (data);
+      indexedRecord = new IndexedRecord (source, data, extended, telnetState);
+    }
+    else
+      indexedRecord =
+          new IndexedRecord (source, currentBuffer, start, end, dataPtr, extended,
+              telnetState);
+
+    SessionRecordType sessionRecordType = dataType == DataType.TN3270_DATA
+        ? SessionRecordType.TN3270 : SessionRecordType.TN3270E;
+    session.add (new SessionRecord (sessionRecordType, indexedRecord,
+        dataPtr - 2, source, currentDateTime, currentGenuine));
+  }
+
+  // A 3270 record's position in a capture. The record is copied out of the capture
+  // (removing any doubled IAC bytes) and converted to a message each time it is
+  // needed.
+  private static class IndexedRecord implements Supplier<ReplyBuffer>
+  {
+    private final Source source;
+    private final boolean extended;
+    private final TelnetState telnetState;        // the code page may be set later
+    private final ByteBuffer capture;
+    private final int start;
+    private final int end;
+    private final int dataPtr;
+    private final byte[] data;
+
+    IndexedRecord (Source source, ByteBuffer capture, int start, int end, int dataPtr,
+        boolean extended, TelnetState telnetState)
+    {
+      this.source = source;
+      this.capture = capture;
+      this.start = start;
+      this.end = end;
+      this.dataPtr = dataPtr;
+      this.extended = extended;
+      this.telnetState = telnetState;
+      data = null;
+    }
+
+    IndexedRecord (Source source, byte[] data, boolean extended, TelnetState telnetState)
+    {
+      this.source = source;
+      this.data = data;
+      this.extended = extended;
+      this.telnetState = telnetState;
+      capture = null;
+      start = end = 0;
+      dataPtr = data.length;
+    }
+
+    @Override
+    public ReplyBuffer get ()
+    {
+      return getMessage (source, data == null ? read () : data, dataPtr, extended,
+                         telnetState.getCodec ());
+    }
+
+    private byte[] read ()
+    {
+      byte[] buffer = new byte[dataPtr];
+      int ptr = 0;
+      boolean iac = false;
+
+      for (int i = start; i < end; i++)
+      {
+        byte value = capture.get (i);
+        if (value == TelnetProcessor.IAC && iac)      // the second of a pair
+        {
+          iac = false;
+          continue;
+        }
+        iac = value == TelnetProcessor.IAC;
+        buffer[ptr++] = value;
+      }
+
+      assert ptr == dataPtr;
+      return buffer;
+    }
+  }
+
+  // the WriteCommand in the message, if there is one
+  private static WriteCommand getWriteCommand (ReplyBuffer message)
+  {
+    if (message instanceof TN3270ExtendedCommand)
+      message = ((TN3270ExtendedCommand) message).getCommand ();
+    return message instanceof WriteCommand ? (WriteCommand) message : null;
+  }
+
+  // REPLAY - the next message starts here
+  private void markMessageEnd ()
+  {
+    if (currentBuffer != null)
+    {
+      messageEnd = currentBuffer.position ();
+      continued = false;
     }
   }
 
   @Override
   public void processTelnetCommand (byte[] data, int dataPtr)
   {
+    markMessageEnd ();
     TelnetCommand telnetCommand = new TelnetCommand (telnetState, data, dataPtr);
     addDataRecord (telnetCommand, SessionRecordType.TELNET);
     telnetCommand.process (screen);       // updates TelnetState
@@ -174,6 +377,7 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor
   @Override
   public void processTelnetSubcommand (byte[] data, int dataPtr)
   {
+    markMessageEnd ();
     TelnetSubcommand subcommand = null;
 
     if (data[2] == TelnetSubcommand.TERMINAL_TYPE)
@@ -206,7 +410,8 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor
 
     if (function == Function.TERMINAL)
     {
-      if (sessionRecordType == SessionRecordType.TELNET)      // no gui involved
+      if (sessionRecordType == SessionRecordType.TELNET      // no gui involved
+          || screen.isHeadless ())
         processMessage (message);
       else
         Platform.runLater ( () -> processMessage (message));
@@ -216,6 +421,11 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor
   private void processMessage (ReplyBuffer message)
   {
     message.process (screen);
+
+    WriteCommand writeCommand = getWriteCommand (message);
+    if (writeCommand != null && writeCommand.getWriteControlCharacter () != null
+        && writeCommand.getWriteControlCharacter ().isRestoreKeyboard ())
+      telnetState.getResponseTimes ().keyboardUnlocked ();
     Optional<Buffer> reply = message.getReply ();
     if (reply.isPresent ())
       telnetState.write (reply.get ().getTelnetData ());
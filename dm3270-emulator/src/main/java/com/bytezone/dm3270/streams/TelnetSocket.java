@@ -1,16 +1,14 @@
 package com.bytezone.dm3270.streams;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.time.LocalDateTime;
 
 import com.bytezone.dm3270.telnet.TelnetCommand;
 import com.bytezone.dm3270.telnet.TelnetSubcommand;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
 
-public class TelnetSocket implements Runnable
+public class TelnetSocket extends ChannelConnection
 {
   private static final boolean debug = false;
 
@@ -20,12 +18,7 @@ public class TelnetSocket implements Runnable
   private final String name;
   private final Source source;
 
-  private Socket socket;
-  private InputStream inputStream;
-  private OutputStream outputStream;
-
-  private final byte[] buffer = new byte[4096];
-  private int bytesRead;
+  private SocketChannel channel;
 
   private final BufferListener telnetListener;
   private volatile boolean running;
@@ -39,27 +32,22 @@ public class TelnetSocket implements Runnable
   }
 
   // Only used by a SpyServer, which creates two SocketListeners. Each SocketListener
-  // copies its inputStream to its partner's outputStream after sending a copy to
-  // the listener.
+  // copies its input to its partner's channel after sending a copy to the listener.
 
-  public TelnetSocket (Source source, Socket socket, BufferListener listener)
-      throws IOException
+  public TelnetSocket (Source source, SocketChannel channel, BufferListener listener)
   {
     if (source == null)
       throw new IllegalArgumentException ("Source cannot be null");
-    if (socket == null)
-      throw new IllegalArgumentException ("Socket cannot be null");
+    if (channel == null)
+      throw new IllegalArgumentException ("Channel cannot be null");
     if (listener == null)
       throw new IllegalArgumentException ("Listener cannot be null");
 
     this.name = source == Source.CLIENT ? "Client" : "Server";
     this.source = source;
-    this.socket = socket;
+    this.channel = channel;
     this.telnetListener = listener;
 
-    this.inputStream = socket.getInputStream ();
-    this.outputStream = socket.getOutputStream ();
-
     if (debug)
     {
       System.out.printf ("Creating TelnetSocket for %s%n", source);
@@ -80,57 +68,48 @@ public class TelnetSocket implements Runnable
     prevent3270E = value;
   }
 
-  @Override
-  public void run ()
+  // called from SpyServer.run() after both sockets are linked
+  public void start () throws IOException
   {
     running = true;
-    while (running)
+    register (channel);
+  }
+
+  // called on the SelectorLoop thread
+  @Override
+  void received (byte[] message)
+  {
+    if (debug)
     {
-      if (Thread.interrupted ())
-      {
-        System.out.println ("TelnetSocket interrupted");
-        break;
-      }
-      try
-      {
-        bytesRead = inputStream.read (buffer);      // blocks
-        if (bytesRead == -1)
-        {
-          System.out.println (name + " has no data on input stream");
-          close ();
-          return;
-        }
-
-        if (debug)
-        {
-          System.out.println (toString ());
-          System.out.println ("reading:");
-          System.out.println (Dm3270Utility.toHex (buffer, 0, bytesRead));
-        }
-
-        // take a copy of the input buffer and send it to the TelnetListener
-        byte[] message = new byte[bytesRead];
-        System.arraycopy (buffer, 0, message, 0, message.length);
-        telnetListener.listen (source, message, LocalDateTime.now (), GENUINE);
-
-        if (prevent3270E && fakeReplySent ())   // did we reject a request for 3270-E?
-          continue;
-
-        if (partner != null)
-          partner.write (message);              // write to partner's OutputStream
-      }
-      catch (IOException e)
-      {
-        if (running)
-          System.out.println (name + " closing due to IOException: " + e);
-        else
-          System.out.println (name + " quitting");
-        close ();
-        return;
-      }
+      System.out.println (toString ());
+      System.out.println ("reading:");
+      System.out.println (Dm3270Utility.toHex (message));
     }
 
-    System.out.println (name + " closing - bye everyone");
+    // send the buffer to the TelnetListener
+    telnetListener.listen (source, message, LocalDateTime.now (), GENUINE);
+
+    if (prevent3270E && fakeReplySent (message))   // did we reject a request for 3270-E?
+      return;
+
+    if (partner != null)
+      partner.write (message);                      // write to partner's channel
+  }
+
+  @Override
+  void endOfStream ()
+  {
+    System.out.println (name + " has no data on input stream");
+    close ();
+  }
+
+  @Override
+  void failed (Exception e)
+  {
+    if (running)
+      System.out.println (name + " closing due to " + e);
+    else
+      System.out.println (name + " quitting");
     close ();
   }
 
@@ -138,8 +117,7 @@ public class TelnetSocket implements Runnable
   {
     try
     {
-      outputStream.write (buffer);
-      outputStream.flush ();
+      send (buffer);
     }
     catch (IOException e)
     {
@@ -154,15 +132,15 @@ public class TelnetSocket implements Runnable
     }
   }
 
-  private boolean fakeReplySent () throws IOException
+  private boolean fakeReplySent (byte[] message)
   {
     // If the server sends a request for us to DO 3270E and we don't want to, then
     // send a fake WONT reply instead of passing on the request.
     if (source == Source.SERVER                     //
-        && bytesRead == 3                           //
-        && buffer[0] == TelnetCommand.IAC           //
-        && buffer[1] == TelnetCommand.DO            //
-        && buffer[2] == TelnetSubcommand.TN3270E)
+        && message.length == 3                      //
+        && message[0] == TelnetCommand.IAC          //
+        && message[1] == TelnetCommand.DO           //
+        && message[2] == TelnetSubcommand.TN3270E)
     {
       byte[] reply = new byte[3];
 
@@ -180,23 +158,12 @@ public class TelnetSocket implements Runnable
     return false;
   }
 
+  @Override
   public void close ()
   {
     running = false;
-
-    try
-    {
-      if (socket != null)
-        socket.close ();
-    }
-    catch (IOException e)
-    {
-      e.printStackTrace ();
-    }
-
-    socket = null;
-    inputStream = null;
-    outputStream = null;
+    super.close ();
+    channel = null;
 
     if (debug)
       System.out.printf ("Closing %s%n", toString ());
@@ -207,4 +174,4 @@ public class TelnetSocket implements Runnable
   {
     return String.format ("TelnetSocket: Source=%s, name=%s", source, name);
   }
-}
\ No newline at end of file
+}
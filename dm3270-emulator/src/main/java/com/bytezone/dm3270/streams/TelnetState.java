@@ -8,7 +8,9 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.metrics.ResponseTimes;
 import com.bytezone.dm3270.telnet.TN3270ExtendedSubcommand.Function;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 public class TelnetState implements Runnable
 {
@@ -48,6 +50,9 @@ public class TelnetState implements Runnable
   private final ScreenDimensions primary = new ScreenDimensions (24, 80);
   private ScreenDimensions secondary = new ScreenDimensions (24, 80);
 
+  private final ResponseTimes responseTimes = new ResponseTimes ();
+  private volatile EbcdicCodec codec = EbcdicCodec.getDefault ();
+
   private int totalReads;
   private int totalWrites;
   private int totalBytesRead;
@@ -64,10 +69,39 @@ public class TelnetState implements Runnable
   }
 
   public void setTerminalServer (TerminalServer terminalServer)
+  {
+    setTerminalServer (terminalServer, true);
+  }
+
+  // Automated sessions talk to the server continuously and don't need a keep-alive
+  // thread each.
+  public void setTerminalServer (TerminalServer terminalServer, boolean keepAlive)
   {
     this.terminalServer = terminalServer;
-    thread = new Thread (this);
-    thread.start ();
+    lastAccess = new AtomicLong (System.currentTimeMillis ());
+
+    if (keepAlive)
+    {
+      thread = new Thread (this);
+      thread.start ();
+    }
+  }
+
+  public ResponseTimes getResponseTimes ()
+  {
+    return responseTimes;
+  }
+
+  // the server's code page, which every EBCDIC translation in this session uses
+  // called from Console.setCodePage() before the Screen is created
+  public void setCodec (EbcdicCodec codec)
+  {
+    this.codec = codec;
+  }
+
+  public EbcdicCodec getCodec ()
+  {
+    return codec;
   }
 
   public void setLastAccess (LocalDateTime dateTime, int bytes)
@@ -104,7 +138,6 @@ public class TelnetState implements Runnable
   public void run ()
   {
     long lastTimeIChecked;
-    lastAccess = new AtomicLong (System.currentTimeMillis ());
     running = true;
     long limit = 120;      // seconds to wait
 
@@ -153,6 +186,16 @@ public class TelnetState implements Runnable
     return secondary;
   }
 
+  public int getTotalBytesRead ()
+  {
+    return totalBytesRead;
+  }
+
+  public int getTotalBytesWritten ()
+  {
+    return totalBytesWritten;
+  }
+
   public String getSummary ()
   {
     if (totalReads == 0 || totalWrites == 0)
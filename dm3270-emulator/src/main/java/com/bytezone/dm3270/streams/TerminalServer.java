@@ -1,25 +1,19 @@
 package com.bytezone.dm3270.streams;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
 import java.time.LocalDateTime;
 
 import com.bytezone.dm3270.streams.TelnetSocket.Source;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
 
-public class TerminalServer implements Runnable
+public class TerminalServer extends ChannelConnection implements Runnable
 {
   private final int serverPort;
   private final String serverURL;
-  private final Socket serverSocket = new Socket ();
-  private InputStream serverIn;
-  private OutputStream serverOut;
-
-  private final byte[] buffer = new byte[4096];
-  private int bytesRead;
   private volatile boolean running;
 
   private final BufferListener telnetListener;
@@ -32,70 +26,90 @@ public class TerminalServer implements Runnable
     this.telnetListener = listener;
   }
 
+  // Connects to the server and hands the channel to a SelectorLoop. This thread
+  // is finished once the connection is registered.
   @Override
   public void run ()
   {
     try
     {
-      serverSocket.connect (new InetSocketAddress (serverURL, serverPort));
+      connect ();
+    }
+    catch (UnknownHostException e)
+    {
+      System.out.println ("Unknown host: " + serverURL);
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+    }
+  }
 
-      serverIn = serverSocket.getInputStream ();
-      serverOut = serverSocket.getOutputStream ();
+  // Blocks until the connection is registered with a SelectorLoop. If it fails the
+  // server is closed.
+  // called from run() and AutomationSession.connect()
+  public void connect () throws IOException
+  {
+    SocketChannel serverChannel = SocketChannel.open ();
+    boolean connected = false;
+    try
+    {
+      serverChannel.connect (new InetSocketAddress (serverURL, serverPort));   // blocks
 
       running = true;
-      while (running)
-      {
-        if (Thread.interrupted ())
-        {
-          System.out.println ("TerminalServer interrupted");
-          break;
-        }
-
-        bytesRead = serverIn.read (buffer);
-        if (bytesRead < 0)
-        {
-          close ();
-          break;
-        }
-
-        if (Thread.currentThread ().isInterrupted ())
-          System.out.println ("TerminalServer was interrupted!");
-
-        if (debug)
-        {
-          System.out.println (toString ());
-          System.out.println ("reading:");
-          System.out.println (Dm3270Utility.toHex (buffer, 0, bytesRead));
-        }
-
-        byte[] message = new byte[bytesRead];
-        System.arraycopy (buffer, 0, message, 0, bytesRead);
-        telnetListener.listen (Source.SERVER, message, LocalDateTime.now (), true);
-      }
+      register (serverChannel);
+      connected = true;
     }
-    catch (IOException e)
+    catch (UnresolvedAddressException e)
+    {
+      throw new UnknownHostException (serverURL);
+    }
+    finally
     {
-      if (running)
+      if (!connected)
       {
-        e.printStackTrace ();
+        serverChannel.close ();         // register() may not have taken it yet
         close ();
       }
     }
   }
 
+  // called on the SelectorLoop thread
+  @Override
+  void received (byte[] message)
+  {
+    if (debug)
+    {
+      System.out.println (toString ());
+      System.out.println ("reading:");
+      System.out.println (Dm3270Utility.toHex (message));
+    }
+
+    telnetListener.listen (Source.SERVER, message, LocalDateTime.now (), true);
+  }
+
+  @Override
+  void failed (Exception e)
+  {
+    if (running)
+    {
+      e.printStackTrace ();
+      close ();
+    }
+  }
+
   synchronized void write (byte[] buffer)
   {
-    if (serverOut == null)
+    if (!running || !isOpen ())
     {
       // the no-op may come here if the program is not closed after disconnection
-      System.out.println ("serverOut is null in TerminalServer");
+      System.out.println ("server channel is closed in TerminalServer");
       return;
     }
 
     try
     {
-      serverOut.write (buffer);
-      serverOut.flush ();
+      send (buffer);
     }
     catch (IOException e)
     {
@@ -110,25 +124,14 @@ public class TerminalServer implements Runnable
     }
   }
 
+  @Override
   public void close ()
   {
-    try
-    {
-      running = false;
-
-      serverIn = null;
-      serverOut = null;
-
-      if (serverSocket != null)
-        serverSocket.close ();
+    running = false;
+    super.close ();
 
-      if (telnetListener != null)
-        telnetListener.close ();
-    }
-    catch (IOException e)
-    {
-      e.printStackTrace ();
-    }
+    if (telnetListener != null)
+      telnetListener.close ();
   }
 
   @Override
@@ -136,4 +139,4 @@ public class TerminalServer implements Runnable
   {
     return String.format ("TerminalSocket listening to %s : %d", serverURL, serverPort);
   }
-}
\ No newline at end of file
+}
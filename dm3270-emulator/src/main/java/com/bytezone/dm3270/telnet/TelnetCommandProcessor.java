@@ -1,12 +1,23 @@
 package com.bytezone.dm3270.telnet;
 
+import java.nio.ByteBuffer;
+
 public interface TelnetCommandProcessor
 {
   public void processData (byte[] buffer, int length);
 
   public void processRecord (byte[] buffer, int length);
 
+  // called by TelnetProcessor with a read-only view of the record (including the
+  // trailing IAC/EOR), which is only valid until this method returns
+  public default void processRecord (ByteBuffer record)
+  {
+    byte[] buffer = new byte[record.remaining ()];
+    record.get (buffer);
+    processRecord (buffer, buffer.length);
+  }
+
   public void processTelnetCommand (byte[] buffer, int length);
 
   public void processTelnetSubcommand (byte[] buffer, int length);
-}
\ No newline at end of file
+}
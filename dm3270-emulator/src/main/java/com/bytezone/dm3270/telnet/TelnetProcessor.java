@@ -1,5 +1,8 @@
 package com.bytezone.dm3270.telnet;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public class TelnetProcessor
 {
   // command prefix
@@ -25,7 +28,7 @@ public class TelnetProcessor
   public static final byte SB_TN3270E = 0x28;
 
   // state variables
-  private final byte[] data = new byte[16500];      // see also SessionReader
+  private byte[] data = new byte[16500];            // grows when a record needs it
   private int dataPtr;
   private boolean pending;              // last byte was IAC, must check next byte
   private boolean weirdData;            // when stream starts with two IACs
@@ -47,79 +50,141 @@ public class TelnetProcessor
 
   public void listen (byte... buffer)
   {
-    for (byte thisByte : buffer)
+    listen (ByteBuffer.wrap (buffer));
+  }
+
+  // Scans the buffer for IAC bytes rather than examining every byte. A record that
+  // is entirely contained in the buffer and has no doubled IACs is passed on as a
+  // read-only slice of the buffer without being copied. Anything else (telnet
+  // commands, records split across reads, IAC-IAC escapes) is copied in bulk into
+  // the staging array. Slices are only valid for the duration of the call.
+  public void listen (ByteBuffer buffer)
+  {
+    while (buffer.hasRemaining ())
     {
-      data[dataPtr++] = thisByte;           // store every byte we receive
+      if (pending || command != 0)            // the next byte completes a sequence
+      {
+        process (buffer.get ());
+        continue;
+      }
+
+      int start = buffer.position ();
+      int iac = indexOfIAC (buffer, start);
 
-      if (thisByte == IAC)
+      // a complete unescaped record at the start of the buffer needs no copying
+      if (dataPtr == 0 && iac >= 0 && iac + 1 < buffer.limit ()
+          && buffer.get (iac + 1) == EOR)
       {
-        if (pending)                        // previous byte might have been an IAC
-        {
-          pending = false;                  // treat it as a data 0xFF
-          --dataPtr;                        // remove the second one
-          if (dataPtr == 1)                 // if there is just that data 0xFF in the
-            weirdData = true;               // buffer, then flag it
-        }
-        else
-          pending = true;                   // this byte might be an IAC
+        ByteBuffer record = buffer.duplicate ();
+        record.limit (iac + 2);
+        buffer.position (iac + 2);
+        commandProcessor.processRecord (record.slice ().asReadOnlyBuffer ());
         continue;
       }
 
-      if (pending)                          // previous byte really was an IAC
+      // copy everything up to the next IAC (or the end of the buffer)
+      int length = (iac < 0 ? buffer.limit () : iac) - start;
+      if (length > 0)
       {
-        pending = false;
-
-        // first check for a valid 3270 data record
-        if (thisByte == EOR)
-        {
-          commandProcessor.processRecord (data, dataPtr);
-          reset ();
-          continue;
-        }
-
-        // next remove any non-telnet data
-        if (data[0] != IAC || weirdData)    // some non-telnet data is in the buffer
-        {
-          dataPtr -= 2;                     // hide IAC and this byte
-          commandProcessor.processData (data, dataPtr);
-          reset ();
-
-          data[dataPtr++] = IAC;            // drop through and process the new byte
-          data[dataPtr++] = thisByte;
-        }
-
-        if (thisByte == SB)                 // leave IAC SB in buffer
-          continue;
-
-        if (thisByte == SE)
-        {
-          commandProcessor.processTelnetSubcommand (data, dataPtr);
-          reset ();
-          continue;
-        }
-
-        // known three-byte commands
-        if (thisByte == DO || thisByte == DONT || thisByte == WILL | thisByte == WONT)
-        {
-          command = thisByte;               // save it and wait for the third byte
-          continue;
-        }
-
-        // known two-byte commands
-        if (thisByte == NOP || thisByte == IP)
-        {
-          commandProcessor.processTelnetCommand (data, dataPtr);
-          reset ();
-          continue;
-        }
-
-        System.err.printf ("Unknown command: %02X%n", thisByte);   // handle error somehow
+        ensureCapacity (dataPtr + length);
+        buffer.get (data, dataPtr, length);
+        dataPtr += length;
       }
-      else if (command != 0)                // the third byte has arrived (in thisByte)
+
+      if (iac >= 0)
+        process (buffer.get ());              // the IAC itself
+    }
+  }
+
+  private static int indexOfIAC (ByteBuffer buffer, int from)
+  {
+    int limit = buffer.limit ();
+    for (int i = from; i < limit; i++)
+      if (buffer.get (i) == IAC)
+        return i;
+    return -1;
+  }
+
+  private void ensureCapacity (int size)
+  {
+    if (size > data.length)
+      data = Arrays.copyOf (data, Math.max (size, data.length * 2));
+  }
+
+  private void process (byte thisByte)
+  {
+    ensureCapacity (dataPtr + 1);
+    data[dataPtr++] = thisByte;             // store every byte we receive
+
+    if (thisByte == IAC)
+    {
+      if (pending)                          // previous byte might have been an IAC
+      {
+        pending = false;                    // treat it as a data 0xFF
+        --dataPtr;                          // remove the second one
+        if (dataPtr == 1)                   // if there is just that data 0xFF in the
+          weirdData = true;                 // buffer, then flag it
+      }
+      else
+        pending = true;                     // this byte might be an IAC
+      return;
+    }
+
+    if (pending)                            // previous byte really was an IAC
+    {
+      pending = false;
+
+      // first check for a valid 3270 data record
+      if (thisByte == EOR)
+      {
+        commandProcessor
+            .processRecord (ByteBuffer.wrap (data, 0, dataPtr).asReadOnlyBuffer ());
+        reset ();
+        return;
+      }
+
+      // next remove any non-telnet data
+      if (data[0] != IAC || weirdData)      // some non-telnet data is in the buffer
+      {
+        dataPtr -= 2;                       // hide IAC and this byte
+        commandProcessor.processData (data, dataPtr);
+        reset ();
+
+        data[dataPtr++] = IAC;              // drop through and process the new byte
+        data[dataPtr++] = thisByte;
+      }
+
+      if (thisByte == SB)                   // leave IAC SB in buffer
+        return;
+
+      if (thisByte == SE)
+      {
+        commandProcessor.processTelnetSubcommand (data, dataPtr);
+        reset ();
+        return;
+      }
+
+      // known three-byte commands
+      if (thisByte == DO || thisByte == DONT || thisByte == WILL | thisByte == WONT)
+      {
+        command = thisByte;                 // save it and wait for the third byte
+        return;
+      }
+
+      // known two-byte commands
+      if (thisByte == NOP || thisByte == IP)
       {
         commandProcessor.processTelnetCommand (data, dataPtr);
         reset ();
+        return;
       }
+
+      System.err.printf ("Unknown command: %02X%n", thisByte);   // handle error somehow
+    }
+    else if (command != 0)                  // the third byte has arrived (in thisByte)
+    {
+      commandProcessor.processTelnetCommand (data, dataPtr);
+      reset ();
     }
   }
 
@@ -1,39 +1,11 @@
 package com.bytezone.reporter.text;
 
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import com.bytezone.reporter.record.Record;
 
-import java.io.UnsupportedEncodingException;
-
+// Translates with the session's code page
 public class EbcdicTextMaker implements TextMaker
 {
-  static final String EBCDIC = "CP1047";
-
-  public static final int[] ebc2asc = new int[256];
-  public static final int[] asc2ebc = new int[256];
-
-  static
-  {
-    byte[] values = new byte[256];
-    for (int i = 0; i < 256; i++)
-      values[i] = (byte) i;
-
-    try
-    {
-      String s = new String (values, EBCDIC);
-      char[] chars = s.toCharArray ();
-      for (int i = 0; i < 256; i++)
-      {
-        int val = chars[i];
-        ebc2asc[i] = val;
-        asc2ebc[val] = i;
-      }
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
-  }
-
   @Override
   public String getText (byte[] buffer, int offset, int length)
   {
@@ -49,6 +21,7 @@ public class EbcdicTextMaker implements TextMaker
   private StringBuilder getStringBuilder (byte[] buffer, int offset, int length)
   {
     final StringBuilder textLine = new StringBuilder ();
+    EbcdicCodec codec = EbcdicCodec.getDefault ();
 
     int max = Math.min (offset + length, buffer.length);
     for (int ptr = offset; ptr < max; ptr++)
@@ -57,7 +30,7 @@ public class EbcdicTextMaker implements TextMaker
       if (value != 0x40 && (value < 0x4B || value == 0xFF))
         textLine.append ('.');
       else
-        textLine.append ((char) ebc2asc[value]);
+        textLine.append (codec.toChar ((byte) value));
     }
     return textLine;
   }
@@ -65,7 +38,7 @@ public class EbcdicTextMaker implements TextMaker
   @Override
   public char getChar (int value)
   {
-    return (char) ebc2asc[value];
+    return EbcdicCodec.getDefault ().toChar ((byte) value);
   }
 
   @Override
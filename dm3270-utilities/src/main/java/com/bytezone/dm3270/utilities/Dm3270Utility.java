@@ -1,6 +1,5 @@
 package com.bytezone.dm3270.utilities;
 
-import java.io.UnsupportedEncodingException;
 import java.util.Optional;
 
 import javafx.scene.control.Alert;
@@ -9,45 +8,18 @@ import javafx.scene.control.ButtonType;
 
 public class Dm3270Utility
 {
-  public static final String EBCDIC = "CP1047";
-  public static final String FROG = "CP1047";
   private static final int LINESIZE = 16;
 
-  public static final int[] ebc2asc = new int[256];
-  public static final int[] asc2ebc = new int[256];
-
-  static
-  {
-    byte[] values = new byte[256];
-    for (int i = 0; i < 256; i++)
-      values[i] = (byte) i;
-
-    try
-    {
-      String s = new String (values, EBCDIC);
-      char[] chars = s.toCharArray ();
-      for (int i = 0; i < 256; i++)
-      {
-        int val = chars[i];
-        ebc2asc[i] = val;
-        asc2ebc[val] = i;
-      }
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-    }
-  }
-
   public static String ebc2asc (byte[] buffer)
   {
-    byte[] newBuffer = new byte[buffer.length];
+    EbcdicCodec codec = EbcdicCodec.getDefault ();
+    char[] chars = new char[buffer.length];
     int ptr = 0;
     for (int i = 0; i < buffer.length; i++)
       if (buffer[i] != 0)                                       // suppress nulls
-        newBuffer[ptr++] = (byte) ebc2asc[buffer[i] & 0xFF];
+        chars[ptr++] = codec.toChar (buffer[i]);
 
-    return new String (newBuffer);
+    return new String (chars, 0, ptr);
   }
 
   public static String getString (byte[] buffer)
@@ -57,17 +29,9 @@ public class Dm3270Utility
 
   public static String getString (byte[] buffer, int offset, int length)
   {
-    try
-    {
-      if (offset + length > buffer.length)
-        length = buffer.length - offset - 1;
-      return new String (buffer, offset, length, EBCDIC);
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
-      return "FAIL";
-    }
+    if (offset + length > buffer.length)
+      length = buffer.length - offset - 1;
+    return EbcdicCodec.getDefault ().getString (buffer, offset, length);
   }
 
   public static String getSanitisedString (byte[] buffer, int offset, int length)
@@ -139,39 +103,33 @@ public class Dm3270Utility
 
   public static String toHex (byte[] b, int offset, int length, boolean ebcdic)
   {
+    EbcdicCodec codec = EbcdicCodec.getDefault ();
     StringBuilder text = new StringBuilder ();
 
-    try
+    for (int ptr = offset, max = offset + length; ptr < max; ptr += LINESIZE)
     {
-      for (int ptr = offset, max = offset + length; ptr < max; ptr += LINESIZE)
+      final StringBuilder hexLine = new StringBuilder ();
+      final StringBuilder textLine = new StringBuilder ();
+      for (int linePtr = 0; linePtr < LINESIZE; linePtr++)
       {
-        final StringBuilder hexLine = new StringBuilder ();
-        final StringBuilder textLine = new StringBuilder ();
-        for (int linePtr = 0; linePtr < LINESIZE; linePtr++)
-        {
-          if (ptr + linePtr >= max)
-            break;
-
-          int val = b[ptr + linePtr] & 0xFF;
-          hexLine.append (String.format ("%02X ", val));
-
-          if (ebcdic)
-            if (val < 0x40 || val == 0xFF)
-              textLine.append ('.');
-            else
-              textLine.append (new String (b, ptr + linePtr, 1, EBCDIC));
-          else if (val < 0x20 || val >= 0xF0)
+        if (ptr + linePtr >= max)
+          break;
+
+        int val = b[ptr + linePtr] & 0xFF;
+        hexLine.append (String.format ("%02X ", val));
+
+        if (ebcdic)
+          if (val < 0x40 || val == 0xFF)
             textLine.append ('.');
           else
-            textLine.append (new String (b, ptr + linePtr, 1));
-        }
-        text.append (String.format ("%04X  %-48s %s%n", ptr, hexLine.toString (),
-                                    textLine.toString ()));
+            textLine.append (codec.toChar (b[ptr + linePtr]));
+        else if (val < 0x20 || val >= 0xF0)
+          textLine.append ('.');
+        else
+          textLine.append (new String (b, ptr + linePtr, 1));
       }
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace ();
+      text.append (String.format ("%04X  %-48s %s%n", ptr, hexLine.toString (),
+                                  textLine.toString ()));
     }
 
     if (text.length () > 0)
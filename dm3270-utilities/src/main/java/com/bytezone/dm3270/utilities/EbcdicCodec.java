@@ -0,0 +1,143 @@
+package com.bytezone.dm3270.utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Translates between EBCDIC and Unicode with a pair of tables built once per code page
+// from the JDK's charset, instead of looking up the charset on every call. Only the
+// Latin-1 code pages are offered - every character they hold is below 256, which the
+// screen's character tables rely on.
+//
+// Each session carries its own codec (see TelnetState), set from its Site's code page
+// and reported to the host in the CharacterSets query reply. The default codec is
+// only for code that has no session - hex dumps, the reporter and the mainframe
+// emulator.
+
+public final class EbcdicCodec
+{
+  public static final int DEFAULT_CODE_PAGE = 1047;
+  public static final int[] CODE_PAGES =
+      { 37, 273, 277, 278, 280, 284, 285, 297, 500, 871, 1047 };
+
+  private static final Map<Integer, EbcdicCodec> codecs = new ConcurrentHashMap<> ();
+  private static final EbcdicCodec defaultCodec = forCodePage (DEFAULT_CODE_PAGE);
+
+  private final int codePage;
+  private final char[] toChar = new char[256];
+  private final byte[] toByte = new byte[256];
+  private final byte substitute;              // for characters not in the code page
+
+  private EbcdicCodec (int codePage)
+  {
+    this.codePage = codePage;
+    Charset charset = Charset.forName (String.format ("IBM%03d", codePage));
+
+    byte[] values = new byte[256];
+    for (int i = 0; i < 256; i++)
+      values[i] = (byte) i;
+    new String (values, charset).getChars (0, 256, toChar, 0);
+
+    CharsetEncoder encoder = charset.newEncoder ();
+    substitute = encoder.replacement ()[0];
+    for (int i = 0; i < 256; i++)
+      toByte[i] = encode (encoder, (char) i);
+  }
+
+  private byte encode (CharsetEncoder encoder, char c)
+  {
+    if (!encoder.canEncode (c))
+      return substitute;
+    try
+    {
+      ByteBuffer buffer = encoder.encode (CharBuffer.wrap (new char[] { c }));
+      return buffer.get (0);
+    }
+    catch (CharacterCodingException e)
+    {
+      return substitute;
+    }
+  }
+
+  public static EbcdicCodec forCodePage (int codePage)
+  {
+    if (!isSupported (codePage))
+      throw new IllegalArgumentException ("Unsupported code page: " + codePage);
+    return codecs.computeIfAbsent (codePage, EbcdicCodec::new);
+  }
+
+  public static boolean isSupported (int codePage)
+  {
+    for (int supported : CODE_PAGES)
+      if (supported == codePage)
+        return true;
+    return false;
+  }
+
+  public static EbcdicCodec getDefault ()
+  {
+    return defaultCodec;
+  }
+
+  public int getCodePage ()
+  {
+    return codePage;
+  }
+
+  public char toChar (byte value)
+  {
+    return toChar[value & 0xFF];
+  }
+
+  public byte toByte (char c)
+  {
+    return c < 256 ? toByte[c] : substitute;
+  }
+
+  // Translates into the caller's array, and returns the position after the last
+  // character.
+  public int decode (byte[] buffer, int offset, int length, char[] chars, int charPtr)
+  {
+    int max = offset + length;
+    for (int ptr = offset; ptr < max; ptr++)
+      chars[charPtr++] = toChar[buffer[ptr] & 0xFF];
+    return charPtr;
+  }
+
+  // Translates into the caller's array, and returns the position after the last byte.
+  public int encode (CharSequence text, byte[] buffer, int offset)
+  {
+    for (int i = 0, max = text.length (); i < max; i++)
+      buffer[offset++] = toByte (text.charAt (i));
+    return offset;
+  }
+
+  public String getString (byte[] buffer)
+  {
+    return getString (buffer, 0, buffer.length);
+  }
+
+  public String getString (byte[] buffer, int offset, int length)
+  {
+    char[] chars = new char[length];
+    decode (buffer, offset, length, chars, 0);
+    return new String (chars);
+  }
+
+  public byte[] getBytes (String text)
+  {
+    byte[] buffer = new byte[text.length ()];
+    encode (text, buffer, 0);
+    return buffer;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return String.format ("CP%03d", codePage);
+  }
+}
@@ -11,22 +11,25 @@ public class Site
   public final TextField port = new TextField ();
   public final CheckBox extended = new CheckBox ();
   public final TextField model = new TextField ();
+  public final TextField codePage = new TextField ();
   public final CheckBox plugins = new CheckBox ();
   public final TextField folder = new TextField ();
 
   private final TextField[] textFieldList =
-      { name, url, port, null, model, null, folder };
+      { name, url, port, null, model, codePage, null, folder };
   private final CheckBox[] checkBoxFieldList =
-      { null, null, null, extended, null, plugins, null };
+      { null, null, null, extended, null, null, plugins, null };
 
   public Site (String name, String url, int port, boolean extended, int model,
-      boolean plugins, String folder)
+      int codePage, boolean plugins, String folder)
   {
     this.name.setText (name);
     this.url.setText (url);
     this.port.setText (port == 23 && name.isEmpty () ? "" : port + "");
     this.extended.setSelected (extended);
     this.model.setText (model == 2 && name.isEmpty () ? "" : model + "");
+    this.codePage.setText (codePage == EbcdicCodec.DEFAULT_CODE_PAGE && name.isEmpty ()
+        ? "" : codePage + "");
     this.plugins.setSelected (plugins);
     this.folder.setText (folder);
   }
@@ -88,6 +91,27 @@ public class Site
     }
   }
 
+  public int getCodePage ()
+  {
+    try
+    {
+      int codePageValue = Integer.parseInt (codePage.getText ());
+      if (!EbcdicCodec.isSupported (codePageValue))
+      {
+        System.out.println ("Invalid code page: " + codePage.getText ());
+        codePage.setText (EbcdicCodec.DEFAULT_CODE_PAGE + "");
+        codePageValue = EbcdicCodec.DEFAULT_CODE_PAGE;
+      }
+      return codePageValue;
+    }
+    catch (NumberFormatException e)
+    {
+      System.out.println ("Invalid code page: " + codePage.getText ());
+      codePage.setText (EbcdicCodec.DEFAULT_CODE_PAGE + "");
+      return EbcdicCodec.DEFAULT_CODE_PAGE;
+    }
+  }
+
   public boolean getPlugins ()
   {
     return plugins.isSelected ();